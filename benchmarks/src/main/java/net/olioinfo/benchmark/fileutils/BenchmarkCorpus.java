@@ -0,0 +1,123 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.benchmark.fileutils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import net.olioinfo.test.fileutils.CorpusGenerator;
+
+
+/**
+ * <p>A directory tree and Jar files built in a temporary directory as input for the benchmarks.</p>
+ *
+ * <p>The corpus is written by the CorpusGenerator of the library tests, with a fixed seed so every run measures the
+ * same files. The tree holds treeSize regular files, ten to a directory and ten directories wide; one file in five
+ * is a property file, a quarter of them in the XML format, with names such as application.properties,
+ * application-dev.properties or module-2.xml. Each Jar file holds jarEntries entries, mostly class files, with the
+ * same mix of property files under config/.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public class BenchmarkCorpus {
+
+    /**
+     * The kinds of file name pattern measured, from the cheapest to match to the most expensive
+     */
+    public enum PatternType {
+        /** A literal name, answered by String.equals */
+        LITERAL("application\\.properties"),
+        /** A suffix, answered by String.endsWith */
+        SUFFIX(".*\\.properties$"),
+        /** A general regular expression */
+        REGEX(".*application-(dev|prod)\\.properties$");
+
+        private final String regex;
+
+        PatternType(String regex) {
+            this.regex = regex;
+        }
+
+        /**
+         * Get the regular expression of this kind of pattern
+         *
+         * @return The regular expression
+         */
+        public String getRegex() {
+            return regex;
+        }
+    }
+
+    private static final long SEED = 20091018L;
+
+    private final CorpusGenerator.Corpus corpus;
+
+    /**
+     * <p>Create the corpus in a new temporary directory.</p>
+     *
+     * @param treeSize Number of regular files in the tree
+     * @param jarCount Number of Jar files, placed in a lib directory beside the tree
+     * @param jarEntries Number of entries in each Jar file
+     * @throws IOException if the corpus cannot be written
+     */
+    public BenchmarkCorpus(int treeSize, int jarCount, int jarEntries) throws IOException {
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setSeed(SEED);
+        generator.setTreeSize(treeSize, 10);
+        generator.setJarCount(jarCount);
+        generator.setEntriesPerJar(jarEntries);
+        this.corpus = generator.generate();
+    }
+
+    /**
+     * Get the directory holding the tree and the Jar files
+     *
+     * @return Root of the corpus
+     */
+    public Path getRoot() {
+        return corpus.getRoot();
+    }
+
+    /**
+     * Get the directory tree, without the Jar files
+     *
+     * @return Root of the tree
+     */
+    public Path getTree() {
+        return corpus.getTree();
+    }
+
+    /**
+     * Get one of the Jar files
+     *
+     * @param index Index of the Jar file
+     * @return Path of the Jar file
+     */
+    public Path getJar(int index) {
+        return corpus.getJars().get(index);
+    }
+
+    /**
+     * Delete the corpus
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    public void delete() throws IOException {
+        corpus.delete();
+    }
+
+}
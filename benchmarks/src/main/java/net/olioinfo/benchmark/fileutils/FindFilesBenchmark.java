@@ -0,0 +1,88 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.benchmark.fileutils;
+
+import net.olioinfo.fileutils.MatchingFileAndJarTraverser;
+import net.olioinfo.fileutils.VirtualFileEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures MatchingFileAndJarTraverser.findFilesFromPaths over a tree and a directory of Jar files, without a Jar
+ * entry index so every Jar file is read on each call
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindFilesBenchmark {
+
+    @Param({"1000", "10000"})
+    public int treeSize;
+
+    @Param({"10", "100"})
+    public int jarCount;
+
+    @Param({"1000"})
+    public int jarEntries;
+
+    @Param({"LITERAL", "SUFFIX", "REGEX"})
+    public BenchmarkCorpus.PatternType patternType;
+
+    private BenchmarkCorpus corpus;
+
+    private ArrayList<String> paths;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = new BenchmarkCorpus(treeSize, jarCount, jarEntries);
+        paths = new ArrayList<String>();
+        paths.add(corpus.getRoot().toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public ArrayList<VirtualFileEntry> findFilesFromPaths() {
+        return MatchingFileAndJarTraverser.findFilesFromPaths(paths, Collections.singletonList(patternType.getRegex()), null);
+    }
+
+}
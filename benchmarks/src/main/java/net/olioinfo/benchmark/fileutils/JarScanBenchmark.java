@@ -0,0 +1,138 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.benchmark.fileutils;
+
+import net.olioinfo.fileutils.AbstractFileAndJarTraverser;
+import net.olioinfo.fileutils.FileNameMatcher;
+import net.olioinfo.fileutils.JarEntryIndex;
+import net.olioinfo.fileutils.MultiPatternMatcher;
+import net.olioinfo.fileutils.VirtualFileEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures the enumeration of the entries of a single Jar file by AbstractFileAndJarTraverser.onFile, reading the
+ * central directory each time or answering from a warm Jar entry index, and decoding every entry name or only those
+ * whose encoded bytes match the pattern
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JarScanBenchmark {
+
+    @Param({"1000", "50000"})
+    public int jarEntries;
+
+    @Param({"LITERAL", "SUFFIX", "REGEX"})
+    public BenchmarkCorpus.PatternType patternType;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    @Param({"false", "true"})
+    public boolean nameBytes;
+
+    private BenchmarkCorpus corpus;
+
+    private Path jar;
+
+    private BasicFileAttributes jarAttributes;
+
+    private FileNameMatcher fileNameMatcher;
+
+    private MultiPatternMatcher entryNameMatcher;
+
+    private JarEntryIndex jarEntryIndex;
+
+    /**
+     * Traverser selecting the Jar entries whose name matches a pattern
+     */
+    static class MatchingTraverser extends AbstractFileAndJarTraverser {
+
+        private final FileNameMatcher fileNameMatcher;
+
+        private final MultiPatternMatcher entryNameMatcher;
+
+        MatchingTraverser(FileNameMatcher fileNameMatcher, MultiPatternMatcher entryNameMatcher) {
+            this.fileNameMatcher = fileNameMatcher;
+            this.entryNameMatcher = entryNameMatcher;
+        }
+
+        @Override
+        public boolean includeFile(VirtualFileEntry virtualFileEntry) {
+            return fileNameMatcher.matches(virtualFileEntry.getRelativeFilePath());
+        }
+
+        @Override
+        public boolean includeDirectory(VirtualFileEntry virtualFileEntry) {
+            return false;
+        }
+
+        @Override
+        protected MultiPatternMatcher getEntryNameMatcher() {
+            return entryNameMatcher;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = new BenchmarkCorpus(0, 1, jarEntries);
+        jar = corpus.getJar(0);
+        jarAttributes = Files.readAttributes(jar, BasicFileAttributes.class);
+        fileNameMatcher = FileNameMatcher.regex(patternType.getRegex());
+        entryNameMatcher = nameBytes ? new MultiPatternMatcher(Collections.singletonList(fileNameMatcher)) : null;
+        jarEntryIndex = indexed ? new JarEntryIndex(corpus.getRoot().resolve("jar-entries.index")) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public int scanJar() {
+        MatchingTraverser traverser = new MatchingTraverser(fileNameMatcher, entryNameMatcher);
+        traverser.setJarEntryIndex(jarEntryIndex);
+        traverser.onFile(jar, jarAttributes);
+        return traverser.getFileList().size();
+    }
+
+}
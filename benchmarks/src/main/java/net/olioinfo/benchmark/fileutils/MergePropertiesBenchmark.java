@@ -0,0 +1,81 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.benchmark.fileutils;
+
+import net.olioinfo.fileutils.CombinedPropertyFileManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures CombinedPropertyFileManager.mergeProperties. Half of the keys of the fresh properties override original
+ * ones. The original properties are copied before each call, since mergeProperties modifies them.
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergePropertiesBenchmark {
+
+    @Param({"1000", "100000"})
+    public int propertyCount;
+
+    private Properties template;
+
+    private Properties original;
+
+    private Properties fresh;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        template = new Properties();
+        fresh = new Properties();
+        for (int i = 0; i < propertyCount; i++) {
+            template.setProperty("merge.key." + i, "original " + i);
+            fresh.setProperty("merge.key." + (i + propertyCount / 2), "fresh " + i);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copyOriginal() {
+        original = new Properties();
+        original.putAll(template);
+    }
+
+    @Benchmark
+    public Properties mergeProperties() {
+        return CombinedPropertyFileManager.mergeProperties(original, fresh);
+    }
+
+}
@@ -0,0 +1,138 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.benchmark.fileutils;
+
+import net.olioinfo.fileutils.AbstractFileTraverser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures AbstractFileTraverser.traverse over a directory tree, with a traverser that only counts what it sees
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TraversalBenchmark {
+
+    @Param({"1000", "10000"})
+    public int treeSize;
+
+    private BenchmarkCorpus corpus;
+
+    /**
+     * Traverser counting directories and files through the Path hooks, so no File objects are created
+     */
+    static class CountingTraverser extends AbstractFileTraverser {
+
+        int directories = 0;
+
+        int files = 0;
+
+        @Override
+        public void onDirectory(Path d, BasicFileAttributes attributes) {
+            directories++;
+        }
+
+        @Override
+        public void onFile(Path f, BasicFileAttributes attributes) {
+            files++;
+        }
+
+        @Override
+        public void onDirectory(File d) {
+        }
+
+        @Override
+        public void onFile(File f) {
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = new BenchmarkCorpus(treeSize, 0, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public int traverse() throws IOException {
+        CountingTraverser traverser = new CountingTraverser();
+        traverser.traverse(corpus.getTree());
+        return traverser.directories + traverser.files;
+    }
+
+    @Benchmark
+    public int traverseParallel() throws IOException {
+        CountingTraverser traverser = new CountingTraverser() {
+            @Override
+            public synchronized void onFile(Path f, BasicFileAttributes attributes) {
+                files++;
+            }
+
+            @Override
+            public synchronized void onDirectory(Path d, BasicFileAttributes attributes) {
+                directories++;
+            }
+        };
+        traverser.traverseParallel(corpus.getTree().toFile(), 4);
+        return traverser.directories + traverser.files;
+    }
+
+    @Benchmark
+    public int traverseConcurrently() throws IOException {
+        CountingTraverser traverser = new CountingTraverser() {
+            @Override
+            public synchronized void onFile(Path f, BasicFileAttributes attributes) {
+                files++;
+            }
+
+            @Override
+            public synchronized void onDirectory(Path d, BasicFileAttributes attributes) {
+                directories++;
+            }
+        };
+        traverser.traverseConcurrently(corpus.getTree(), 16);
+        return traverser.directories + traverser.files;
+    }
+
+}
@@ -15,10 +15,23 @@
 package net.olioinfo.fileutils;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -35,8 +48,29 @@ public abstract class AbstractFileAndJarTraverser extends AbstractFileTraverser
 
     private static final String JAR_FILE_EXTENSION = ".jar";
 
+    private static final String[] NESTED_ARCHIVE_EXTENSIONS = { ".jar", ".war", ".ear" };
+
+    private static final byte[][] NESTED_ARCHIVE_EXTENSION_BYTES = { { '.', 'j', 'a', 'r' }, { '.', 'w', 'a', 'r' }, { '.', 'e', 'a', 'r' } };
+
     private ArrayList<VirtualFileEntry> fileList = new ArrayList<VirtualFileEntry>();
     private ArrayList<VirtualFileEntry> directoryList = new ArrayList<VirtualFileEntry>();
+    private VirtualFileEntryList fileEntries = null;
+
+    private JarEntryIndex jarEntryIndex = JarEntryIndex.getShared();
+
+    private int nestedArchiveDepth = 0;
+
+    private String jarEntryPrefix = null;
+
+    private byte[] jarEntryPrefixBytes = null;
+
+    private Utf8NameMatcher entryNameBytesMatcher = null;
+
+    private boolean entryNameBytesMatcherBuilt = false;
+
+    private final boolean legacyOnFile;
+
+    private final boolean legacyOnDirectory;
 
     /**
      * <p>Create an instance of AbstractFileAndJarTraverser.</p>
@@ -44,6 +78,9 @@ public abstract class AbstractFileAndJarTraverser extends AbstractFileTraverser
      */
     public AbstractFileAndJarTraverser() {
         super();
+        LegacyFileHooks legacyFileHooks = LegacyFileHooks.of(getClass());
+        this.legacyOnFile = legacyFileHooks.overridesOnFile(AbstractFileAndJarTraverser.class);
+        this.legacyOnDirectory = legacyFileHooks.overridesOnDirectory(AbstractFileAndJarTraverser.class);
     }
     /**
      * Implementation of the AbstractFileTraverser.onFile method for Jar and regular files
@@ -52,70 +89,817 @@ public abstract class AbstractFileAndJarTraverser extends AbstractFileTraverser
      * 
      */
     public void onFile( final File f ) {
+        processFile(f.getAbsolutePath(), f.getName(), null);
+    }
 
-        String path = f.getAbsolutePath();
-        if (path.endsWith(AbstractFileAndJarTraverser.JAR_FILE_EXTENSION)) {
-            try {
-                JarFile jarFile = new JarFile(path);
-                Enumeration<JarEntry> entries = jarFile.entries();
-                while(entries.hasMoreElements()) {
-                    JarEntry jarEntry = entries.nextElement();
+    /**
+     * Implementation of the AbstractFileTraverser.onFile method for Jar and regular files that uses the path
+     * supplied by the traversal directly. A subclass that overrides onFile(File) has it called instead.
+     *
+     * @param f Path representing the file to be processed
+     * @param attributes Attributes of the file
+     * @since 0.7
+     */
+    @Override
+    public void onFile( final Path f, final BasicFileAttributes attributes ) {
+        if (legacyOnFile) {
+            onFile(f.toFile());
+            return;
+        }
+        processFile(f.toString(), f.getFileName().toString(), attributes);
+    }
+
+    /**
+     * Add the file, or the entries of the Jar file, that match includeFile to the list of matching files
+     *
+     * @param path Absolute path of the file
+     * @param fileName Name of the file without any directory
+     * @param attributes Attributes of the file, or null if they have not been read
+     */
+    private void processFile( final String path, final String fileName, final BasicFileAttributes attributes ) {
+
+        if (isArchiveFile(path)) {
+            addFileEntries(scanJar(path, attributes));
+        }
+        else {
+            VirtualFileEntry virtualFileEntry = matchFile(path, fileName);
+            if (virtualFileEntry != null) {
+                addFileEntry(virtualFileEntry);
+            }
+        }
+
+    }
+
+    /**
+     * Archive files are tracked under LinkPolicy.FOLLOW_ONCE, so a Jar file reachable through several links is only
+     * scanned once per traversal
+     *
+     * @param f Path of the file
+     * @return true if the file is an archive whose entries are scanned
+     * @since 0.7
+     */
+    @Override
+    protected boolean isVisitedOnce( final Path f ) {
+        return isArchiveFile(f.toString());
+    }
+
+    /**
+     * Indicate whether a file is treated as a Jar file whose entries are scanned
+     *
+     * @param path Absolute path of the file
+     * @return true if the file is a Jar file
+     */
+    static boolean isJarFile( final String path ) {
+        return path.endsWith(AbstractFileAndJarTraverser.JAR_FILE_EXTENSION);
+    }
+
+    /**
+     * Indicate whether a file is treated as an archive whose entries are scanned. Jar files always are; war and ear
+     * files are too when nested archives are scanned.
+     *
+     * @param path Absolute path of the file
+     * @return true if the entries of the file are scanned
+     */
+    boolean isArchiveFile( final String path ) {
+        return isJarFile(path) || (nestedArchiveDepth > 0 && isNestedArchiveName(path));
+    }
+
+    /**
+     * Indicate whether an archive entry is itself an archive to be scanned when nested archives are scanned
+     *
+     * @param name Name of the entry
+     * @return true if the entry is a jar, war or ear file
+     */
+    static boolean isNestedArchiveName( final String name ) {
+        for (String extension : NESTED_ARCHIVE_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indicate whether the current entry of a central directory is itself an archive to be scanned when nested
+     * archives are scanned, without decoding its name
+     *
+     * @param cursor Cursor positioned on the entry
+     * @return true if the entry is a jar, war or ear file
+     */
+    private static boolean isNestedArchiveName( final ZipCentralDirectory.Cursor cursor ) {
+        for (byte[] extension : NESTED_ARCHIVE_EXTENSION_BYTES) {
+            if (cursor.nameEndsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Build the entry for a regular file and check it against includeFile
+     *
+     * @param path Absolute path of the file
+     * @param fileName Name of the file without any directory
+     * @return The entry for the file, or null if the file is not included
+     */
+    VirtualFileEntry matchFile( final String path, final String fileName ) {
+
+        VirtualFileEntry virtualFileEntry = new VirtualFileEntry();
+        virtualFileEntry.setAbsoluteFilePath(path);
+        virtualFileEntry.setFileType(VirtualFileEntry.TYPE_FILE);
+        virtualFileEntry.setRelativeFilePath(fileName);
+
+        ScanMetrics metrics = ScanMetrics.getShared();
+        long startNanos = System.nanoTime();
+        boolean included = includeFile(virtualFileEntry);
+        metrics.addTime(ScanMetrics.Phase.MATCH, startNanos);
+        metrics.patternEvaluations(1);
+        if (included) {
+            if (consoleTracing) System.out.format("AbstractFileAndJarTraverser:onFile Adding regular file entry %s to virtual file list\n" , path );
+            return virtualFileEntry;
+        }
+        return null;
+    }
+
+    /**
+     * Scan the entries of a Jar file and collect those that match includeFile. The entry names come from the Jar
+     * entry index when one is in use, and otherwise from the memory-mapped central directory of the Jar file. A Jar
+     * file that cannot be read is ignored. When isReadingJarEntries is true, the matching entries are then handed
+     * to onJarEntry before the Jar file is closed. A scan taking longer than 5 ms is recorded as a JarScanEvent
+     * while a flight recording is running.
+     *
+     * @param path Absolute path of the Jar file
+     * @param attributes Attributes of the Jar file, or null if they have not been read
+     * @return The matching entries, in the order they appear in the Jar file
+     */
+    ArrayList<VirtualFileEntry> scanJar( final String path, final BasicFileAttributes attributes ) {
+
+        ArrayList<VirtualFileEntry> matchingEntries = new ArrayList<VirtualFileEntry>();
+        ZipCentralDirectory centralDirectory = null;
+        JarScanEvent event = new JarScanEvent();
+        int entryCount = 0;
+        event.begin();
+        try {
+            List<String> allEntryNames = null;
+            List<String> entryNames;
+            BasicFileAttributes jarAttributes = attributes;
+            Utf8NameMatcher nameBytesMatcher = null;
+            if (jarEntryIndex == null) {
+                centralDirectory = openCentralDirectory(path);
+                nameBytesMatcher = centralDirectory == null ? null : getEntryNameBytesMatcher();
+                if (nameBytesMatcher != null) {
+                    entryNames = null;
+                }
+                else {
+                    allEntryNames = centralDirectory == null ? JarEntryIndex.readEntryNamesWithJarFile(path) : centralDirectory.getEntryNames();
+                    entryNames = jarEntryPrefix == null ? allEntryNames : withPrefix(allEntryNames, jarEntryPrefix);
+                }
+            }
+            else {
+                if (jarAttributes == null) {
+                    jarAttributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+                }
+                if (jarEntryPrefix == null) {
+                    allEntryNames = jarEntryIndex.getEntryNames(Paths.get(path), jarAttributes);
+                    entryNames = allEntryNames;
+                }
+                else {
+                    entryNames = jarEntryIndex.getEntryNamesWithPrefix(Paths.get(path), jarAttributes, jarEntryPrefix);
+                }
+            }
+
+            if (nameBytesMatcher != null) {
+                entryCount = selectEntries(path, null, centralDirectory, nameBytesMatcher, matchingEntries);
+            }
+            else {
+                ScanMetrics metrics = ScanMetrics.getShared();
+                entryCount = allEntryNames == null ? entryNames.size() : allEntryNames.size();
+                metrics.jarEntriesScanned(entryCount);
+                metrics.patternEvaluations(entryNames.size());
+                long startNanos = System.nanoTime();
+                for (String entryName : entryNames) {
 
                     VirtualFileEntry virtualFileEntry = new VirtualFileEntry();
                     virtualFileEntry.setAbsoluteFilePath(path);
                     virtualFileEntry.setFileType(VirtualFileEntry.TYPE_JAR);
-                    virtualFileEntry.setRelativeFilePath(jarEntry.getName());
+                    virtualFileEntry.setRelativeFilePath(entryName);
 
                     if (includeFile(virtualFileEntry)) {
-                        if (consoleTracing) System.out.format("AbstractFileAndJarTraverser:onFile Adding Jar entry to virtual file list: %s:%s\n", path , jarEntry.getName());
-                        fileList.add(virtualFileEntry);
+                        if (consoleTracing) System.out.format("AbstractFileAndJarTraverser:onFile Adding Jar entry to virtual file list: %s:%s\n", path , entryName);
+                        matchingEntries.add(virtualFileEntry);
                     }
                 }
-                jarFile.close();
+                metrics.addTime(ScanMetrics.Phase.MATCH, startNanos);
             }
-            catch (Exception ex) {
-                if (consoleTracing) {
-                    System.out.format("AbstractFileAndJarTraverser:onFile This file will be ignored. Error while onFile was processing %s generated error %s\n",path, ex.toString());
-                    ex.printStackTrace(System.out);
+
+            if (isReadingJarEntries() && !matchingEntries.isEmpty()) {
+                if (centralDirectory == null) {
+                    centralDirectory = openCentralDirectory(path);
                 }
+                readJarEntries(path, matchingEntries, centralDirectory);
             }
 
+            if (nestedArchiveDepth > 0 && allEntryNames == null && jarEntryIndex != null) {
+                allEntryNames = jarEntryIndex.getEntryNames(Paths.get(path), jarAttributes);
+            }
+            // Without the names, scanNestedArchives looks for nested archives in the central directory itself
+            if (nestedArchiveDepth > 0 && (allEntryNames == null || containsNestedArchive(allEntryNames))) {
+                if (centralDirectory == null) {
+                    centralDirectory = openCentralDirectory(path);
+                }
+                if (centralDirectory != null) {
+                    scanNestedArchives(path, null, centralDirectory, 1, matchingEntries);
+                }
+            }
         }
-        else {
+        catch (Exception ex) {
+            if (consoleTracing) {
+                System.out.format("AbstractFileAndJarTraverser:onFile This file will be ignored. Error while onFile was processing %s generated error %s\n",path, ex.toString());
+                ex.printStackTrace(System.out);
+            }
+        }
+        finally {
+            if (centralDirectory != null) {
+                try {
+                    centralDirectory.close();
+                }
+                catch (IOException ex) {
+                    // Nothing more to do with it
+                }
+            }
+            commit(event, path, attributes, entryCount, matchingEntries.size());
+        }
+        return matchingEntries;
+    }
+
+    /**
+     * Fill in the figures of a Jar file scan and commit its event, if it is to be recorded
+     *
+     * @param event Event begun at the start of the scan
+     * @param path Absolute path of the Jar file
+     * @param attributes Attributes of the Jar file, or null if they have not been read
+     * @param entryCount Number of entry names scanned
+     * @param matchingEntryCount Number of entries selected
+     */
+    private static void commit( final JarScanEvent event, final String path, final BasicFileAttributes attributes, final int entryCount, final int matchingEntryCount ) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.entryCount = entryCount;
+            event.matchingEntryCount = matchingEntryCount;
+            try {
+                event.bytes = attributes != null ? attributes.size() : Files.size(Paths.get(path));
+            }
+            catch (IOException ex) {
+                event.bytes = -1;
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Select the entries of an archive by testing their raw UTF-8 names, so that only the names that match are
+     * decoded and handed to includeFile
+     *
+     * @param path Absolute path of the outermost Jar file
+     * @param nestedArchivePath Nested archive path of the archive, or null for the outermost Jar file
+     * @param archive Central directory of the archive
+     * @param nameBytesMatcher Byte form of the patterns the names must match
+     * @param matchingEntries List to add the matching entries to
+     * @return Number of entries in the archive
+     * @throws IOException if the central directory is malformed
+     */
+    private int selectEntries( final String path, final String nestedArchivePath, final ZipCentralDirectory archive, final Utf8NameMatcher nameBytesMatcher, final List<VirtualFileEntry> matchingEntries ) throws IOException {
+
+        int entryCount = 0;
+        int evaluations = 0;
+        long startNanos = System.nanoTime();
+        ZipCentralDirectory.Cursor cursor = archive.cursor();
+        while (cursor.next()) {
+            entryCount++;
+            if (jarEntryPrefixBytes != null && !cursor.nameStartsWith(jarEntryPrefixBytes)) {
+                continue;
+            }
+            evaluations++;
+            if (!nameBytesMatcher.matches(cursor)) {
+                continue;
+            }
 
             VirtualFileEntry virtualFileEntry = new VirtualFileEntry();
             virtualFileEntry.setAbsoluteFilePath(path);
-            virtualFileEntry.setFileType(VirtualFileEntry.TYPE_FILE);
-            virtualFileEntry.setRelativeFilePath(new File(path).getName());
+            virtualFileEntry.setFileType(nestedArchivePath == null ? VirtualFileEntry.TYPE_JAR : VirtualFileEntry.TYPE_NESTED_JAR);
+            virtualFileEntry.setNestedArchivePath(nestedArchivePath);
+            virtualFileEntry.setRelativeFilePath(cursor.getName());
 
             if (includeFile(virtualFileEntry)) {
-                if (consoleTracing) System.out.format("AbstractFileAndJarTraverser:onFile Adding regular file entry %s to virtual file list\n" , path );
-                fileList.add(virtualFileEntry);
+                if (consoleTracing) System.out.format("AbstractFileAndJarTraverser:onFile Adding Jar entry to virtual file list: %s\n", virtualFileEntry.getVirtualPath());
+                matchingEntries.add(virtualFileEntry);
             }
         }
+        ScanMetrics metrics = ScanMetrics.getShared();
+        metrics.addTime(ScanMetrics.Phase.MATCH, startNanos);
+        metrics.jarEntriesScanned(entryCount);
+        metrics.patternEvaluations(evaluations);
+        return entryCount;
+    }
 
+    /**
+     * Get the byte form of the patterns of getEntryNameMatcher(), building it the first time
+     *
+     * @return The byte form, or null if Jar entry names must be decoded and handed to includeFile
+     */
+    private Utf8NameMatcher getEntryNameBytesMatcher() {
+        if (!entryNameBytesMatcherBuilt) {
+            MultiPatternMatcher entryNameMatcher = getEntryNameMatcher();
+            entryNameBytesMatcher = entryNameMatcher == null ? null : Utf8NameMatcher.of(entryNameMatcher);
+            entryNameBytesMatcherBuilt = true;
+        }
+        return entryNameBytesMatcher;
+    }
+
+    /**
+     * <p>Get the patterns that the name of a Jar entry must match for includeFile to accept it, if there are any.</p>
+     *
+     * <p>When the patterns are all literals, prefixes or suffixes, the entries of a Jar file read without a Jar
+     * entry index, and of nested archives, are first tested on the raw UTF-8 bytes of their names in the central
+     * directory. Entries whose names do not match are skipped without being decoded, and includeFile is only
+     * called for the rest. The default implementation returns null, so every entry is handed to includeFile.</p>
+     *
+     * @return Patterns every accepted Jar entry name matches, or null if there are none
+     * @since 0.7
+     */
+    protected MultiPatternMatcher getEntryNameMatcher() {
+        return null;
+    }
+
+    /**
+     * Select the entry names starting with a prefix
+     *
+     * @param entryNames Entry names
+     * @param prefix Prefix of the names to select
+     * @return The names starting with the prefix, in their original order
+     */
+    private static List<String> withPrefix( final List<String> entryNames, final String prefix ) {
+        ArrayList<String> selectedNames = new ArrayList<String>();
+        for (String entryName : entryNames) {
+            if (entryName.startsWith(prefix)) {
+                selectedNames.add(entryName);
+            }
+        }
+        return selectedNames;
+    }
+
+    /**
+     * Indicate whether any of the entries of an archive is itself an archive
+     *
+     * @param entryNames Entry names of the archive
+     * @return true if there is a nested archive
+     */
+    private static boolean containsNestedArchive( final List<String> entryNames ) {
+        for (String entryName : entryNames) {
+            if (isNestedArchiveName(entryName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Implementation of the AbstractFileTraverser.onDirectory method for Jar and regular files
+     * Scan the archives nested in an archive and collect their entries that match includeFile. A stored nested
+     * archive is read in place from the outer file; a compressed one is inflated into memory. Nothing is extracted
+     * to disk. A nested archive that cannot be read is ignored.
+     *
+     * @param path Absolute path of the outermost Jar file
+     * @param archivePath Nested archive path of the archive being scanned, or null for the outermost Jar file
+     * @param archive Central directory of the archive being scanned
+     * @param depth Nesting depth of the archives found in the archive being scanned
+     * @param matchingEntries List to add the matching entries to
+     * @throws IOException if the central directory of the archive being scanned is malformed
+     */
+    private void scanNestedArchives( final String path, final String archivePath, final ZipCentralDirectory archive, final int depth, final ArrayList<VirtualFileEntry> matchingEntries ) throws IOException {
+
+        ArrayList<ZipCentralDirectory.Entry> nestedArchives = new ArrayList<ZipCentralDirectory.Entry>();
+        ZipCentralDirectory.Cursor cursor = archive.cursor();
+        while (cursor.next()) {
+            if (!cursor.isDirectory() && isNestedArchiveName(cursor)) {
+                nestedArchives.add(cursor.getEntry());
+            }
+        }
+
+        for (ZipCentralDirectory.Entry nestedArchive : nestedArchives) {
+            String nestedArchivePath = archivePath == null ? nestedArchive.getName() : archivePath + ZipCentralDirectory.NESTED_SEPARATOR + nestedArchive.getName();
+            try {
+                ZipCentralDirectory nestedDirectory = archive.openNested(nestedArchive);
+                ArrayList<VirtualFileEntry> nestedEntries = new ArrayList<VirtualFileEntry>();
+                Utf8NameMatcher nameBytesMatcher = getEntryNameBytesMatcher();
+                if (nameBytesMatcher != null) {
+                    selectEntries(path, nestedArchivePath, nestedDirectory, nameBytesMatcher, nestedEntries);
+                }
+                else {
+                    List<String> nestedEntryNames = nestedDirectory.getEntryNames();
+                    List<String> selectedEntryNames = jarEntryPrefix == null ? nestedEntryNames : withPrefix(nestedEntryNames, jarEntryPrefix);
+                    ScanMetrics metrics = ScanMetrics.getShared();
+                    metrics.jarEntriesScanned(nestedEntryNames.size());
+                    metrics.patternEvaluations(selectedEntryNames.size());
+                    long startNanos = System.nanoTime();
+                    for (String entryName : selectedEntryNames) {
+
+                        VirtualFileEntry virtualFileEntry = new VirtualFileEntry();
+                        virtualFileEntry.setAbsoluteFilePath(path);
+                        virtualFileEntry.setFileType(VirtualFileEntry.TYPE_NESTED_JAR);
+                        virtualFileEntry.setNestedArchivePath(nestedArchivePath);
+                        virtualFileEntry.setRelativeFilePath(entryName);
+
+                        if (includeFile(virtualFileEntry)) {
+                            if (consoleTracing) System.out.format("AbstractFileAndJarTraverser:onFile Adding nested Jar entry to virtual file list: %s\n", virtualFileEntry.getVirtualPath());
+                            nestedEntries.add(virtualFileEntry);
+                        }
+                    }
+                    metrics.addTime(ScanMetrics.Phase.MATCH, startNanos);
+                }
+                if (isReadingJarEntries() && !nestedEntries.isEmpty()) {
+                    readJarEntries(path, nestedEntries, nestedDirectory);
+                }
+                matchingEntries.addAll(nestedEntries);
+
+                if (depth < nestedArchiveDepth) {
+                    scanNestedArchives(path, nestedArchivePath, nestedDirectory, depth + 1, matchingEntries);
+                }
+            }
+            catch (Exception ex) {
+                if (consoleTracing) {
+                    System.out.format("AbstractFileAndJarTraverser:onFile This nested archive will be ignored. Error while onFile was processing %s!/%s generated error %s\n", path, nestedArchivePath, ex.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Map the central directory of a Jar file
+     *
+     * @param path Absolute path of the Jar file
+     * @return The central directory, or null if the Jar file cannot be read that way and must be opened as a JarFile
+     */
+    private static ZipCentralDirectory openCentralDirectory( final String path ) {
+        try {
+            return ZipCentralDirectory.open(Paths.get(path));
+        }
+        catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Hand each matching entry of a Jar file to onJarEntry while the Jar file is open. The central directory is
+     * searched once for all the entries. An entry that cannot be read is skipped.
+     *
+     * @param path Absolute path of the Jar file
+     * @param matchingEntries Matching entries of the Jar file
+     * @param centralDirectory Central directory of the Jar file, or null to read the entries with a JarFile
+     * @throws IOException if the Jar file cannot be opened
+     */
+    private void readJarEntries( final String path, final List<VirtualFileEntry> matchingEntries, final ZipCentralDirectory centralDirectory ) throws IOException {
+
+        if (centralDirectory == null) {
+            JarFile jarFile = new JarFile(path);
+            ScanMetrics.getShared().jarOpened();
+            try {
+                for (VirtualFileEntry virtualFileEntry : matchingEntries) {
+                    JarEntry jarEntry = jarFile.getJarEntry(virtualFileEntry.getRelativeFilePath());
+                    readJarEntry(virtualFileEntry, jarEntry == null ? null : jarFile.getInputStream(jarEntry));
+                }
+            }
+            finally {
+                jarFile.close();
+            }
+            return;
+        }
+
+        // Like JarFile, the last of several entries with the same name wins
+        HashMap<String, ZipCentralDirectory.Entry> zipEntries = new HashMap<String, ZipCentralDirectory.Entry>();
+        // Only names of the same encoded length as a matching entry are decoded
+        BitSet nameLengths = new BitSet();
+        for (VirtualFileEntry virtualFileEntry : matchingEntries) {
+            zipEntries.put(virtualFileEntry.getRelativeFilePath(), null);
+            nameLengths.set(virtualFileEntry.getRelativeFilePath().getBytes(StandardCharsets.UTF_8).length);
+        }
+        ZipCentralDirectory.Cursor cursor = centralDirectory.cursor();
+        while (cursor.next()) {
+            if (!nameLengths.get(cursor.getNameLength())) {
+                continue;
+            }
+            String entryName = cursor.getName();
+            if (zipEntries.containsKey(entryName)) {
+                zipEntries.put(entryName, cursor.getEntry());
+            }
+        }
+
+        for (VirtualFileEntry virtualFileEntry : matchingEntries) {
+            ZipCentralDirectory.Entry zipEntry = zipEntries.get(virtualFileEntry.getRelativeFilePath());
+            try {
+                readJarEntry(virtualFileEntry, zipEntry == null ? null : centralDirectory.getInputStream(zipEntry));
+            }
+            catch (IOException ex) {
+                if (consoleTracing) System.out.format("AbstractFileAndJarTraverser:onJarEntry Error while reading %s:%s generated error %s\n", path, virtualFileEntry.getRelativeFilePath(), ex.toString());
+            }
+        }
+    }
+
+    /**
+     * Hand one Jar entry to onJarEntry and close its stream
+     *
+     * @param virtualFileEntry The Jar entry
+     * @param inputStream Content of the Jar entry, or null if the entry cannot be found
+     */
+    private void readJarEntry( final VirtualFileEntry virtualFileEntry, final InputStream inputStream ) {
+        if (inputStream == null) {
+            if (consoleTracing) System.out.format("AbstractFileAndJarTraverser:onJarEntry Jar entry %s:%s not found\n", virtualFileEntry.getAbsoluteFilePath(), virtualFileEntry.getRelativeFilePath());
+            return;
+        }
+        try {
+            onJarEntry(virtualFileEntry, inputStream);
+        }
+        catch (Exception ex) {
+            if (consoleTracing) {
+                System.out.format("AbstractFileAndJarTraverser:onJarEntry Error while processing %s:%s generated error %s\n", virtualFileEntry.getAbsoluteFilePath(), virtualFileEntry.getRelativeFilePath(), ex.toString());
+                ex.printStackTrace(System.out);
+            }
+        }
+        finally {
+            try {
+                inputStream.close();
+            }
+            catch (IOException ex) {
+                // Nothing more to do with it
+            }
+        }
+    }
+
+    /**
+     * Indicate whether the content of matching Jar entries is handed to onJarEntry while the Jar file is still
+     * open from the scan. Defaults to false, so Jar entries are only listed.
+     *
+     * @return true to read matching Jar entries during the traversal
+     * @since 0.7
+     */
+    protected boolean isReadingJarEntries() {
+        return false;
+    }
+
+    /**
+     * Process the content of a matching Jar entry while its Jar file is open. Only called when isReadingJarEntries
+     * is true, after the entry has been added to the scan results. The stream is closed after the call. Does
+     * nothing by default.
+     *
+     * @param virtualFileEntry The matching Jar entry
+     * @param inputStream Uncompressed content of the Jar entry
+     * @throws IOException if the content cannot be read
+     * @since 0.7
+     */
+    protected void onJarEntry( final VirtualFileEntry virtualFileEntry, final InputStream inputStream ) throws IOException {
+        //Do nothing
+    }
+
+    /**
+     * Implementation of the AbstractFileTraverser.onDirectory method for Jar and regular files. Adds the directory
+     * to the list of matching directories if includeDirectory accepts it.
      *
      * @param f File object representing the file to be processed
      *
      */
     public void onDirectory( final File f ) {
-        //Do nothing
+        processDirectory(f.getAbsolutePath(), f.getName());
     }
 
+    /**
+     * Implementation of the AbstractFileTraverser.onDirectory method for Jar and regular files. Adds the directory
+     * to the list of matching directories if includeDirectory accepts it. A subclass that overrides
+     * onDirectory(File) has it called instead.
+     *
+     * @param d Path representing the directory to be processed
+     * @param attributes Attributes of the directory
+     * @since 0.7
+     */
+    @Override
+    public void onDirectory( final Path d, final BasicFileAttributes attributes ) {
+        if (legacyOnDirectory) {
+            onDirectory(d.toFile());
+            return;
+        }
+        Path name = d.getFileName();
+        processDirectory(d.toString(), name == null ? d.toString() : name.toString());
+    }
 
     /**
-     * Get a list of the matching file entries
+     * Add the directory to the list of matching directories if includeDirectory accepts it. Whether the traversal
+     * enters the directory is decided beforehand by descendIntoDirectory.
+     *
+     * @param path Absolute path of the directory
+     * @param directoryName Name of the directory without its parent
+     */
+    private void processDirectory( final String path, final String directoryName ) {
+
+        VirtualFileEntry virtualFileEntry = new VirtualFileEntry();
+        virtualFileEntry.setAbsoluteFilePath(path);
+        virtualFileEntry.setFileType(VirtualFileEntry.TYPE_DIR);
+        virtualFileEntry.setRelativeFilePath(directoryName);
+
+        if (includeDirectory(virtualFileEntry)) {
+            if (consoleTracing) System.out.format("AbstractFileAndJarTraverser:onDirectory Adding directory entry %s to virtual directory list\n", path);
+            synchronized (directoryList) {
+                directoryList.add(virtualFileEntry);
+            }
+        }
+    }
+
+
+    /**
+     * Add an entry to the list of matching file entries. Safe to call from several threads during traverseParallel and traverseConcurrently.
+     *
+     * @param virtualFileEntry Entry to add
+     */
+    private void addFileEntry(VirtualFileEntry virtualFileEntry) {
+        synchronized (fileListLock()) {
+            if (fileEntries != null) {
+                fileEntries.add(virtualFileEntry);
+            }
+            else {
+                fileList.add(virtualFileEntry);
+            }
+        }
+    }
+
+    /**
+     * Add several entries to the list of matching file entries, keeping them together
+     *
+     * @param virtualFileEntries Entries to add
+     */
+    private void addFileEntries(ArrayList<VirtualFileEntry> virtualFileEntries) {
+        if (virtualFileEntries.isEmpty()) {
+            return;
+        }
+        synchronized (fileListLock()) {
+            if (fileEntries != null) {
+                fileEntries.addAll(virtualFileEntries);
+            }
+            else {
+                fileList.addAll(virtualFileEntries);
+            }
+        }
+    }
+
+    /**
+     * Get the object guarding the matching file entries: the compact list when one is set, as it may be shared with
+     * other traversers, otherwise the file list
+     */
+    private Object fileListLock() {
+        return fileEntries != null ? fileEntries : fileList;
+    }
+
+    /**
+     * <p>Lazily find the matching file entries in the trees rooted at the given paths.</p>
+     *
+     * <p>Entries are produced in the same order as traverse() would add them to the file list, but directories are
+     * only listed and Jar files only opened as the caller consumes the iterator. The iterator does not add to the
+     * file list. Close it to release the open directory handles if it is abandoned before the end.</p>
+     *
+     * @param roots Starting points of the traversal
+     * @return Iterator over the matching file entries
+     * @since 0.7
+     */
+    public VirtualFileEntryIterator iterator(List<Path> roots) {
+        return new VirtualFileEntryIterator(this, roots);
+    }
+
+    /**
+     * <p>Lazily find the matching file entries in the trees rooted at the given paths as a sequential stream.</p>
+     *
+     * <p>Short-circuiting operations such as findFirst() or limit() stop the traversal, so the remaining directories
+     * and Jar files are never opened. Close the stream, for example with try-with-resources, when it is not consumed
+     * to the end.</p>
+     *
+     * @param roots Starting points of the traversal
+     * @return Stream of the matching file entries
+     * @since 0.7
+     */
+    public Stream<VirtualFileEntry> stream(List<Path> roots) {
+        VirtualFileEntryIterator virtualFileEntryIterator = iterator(roots);
+        Spliterator<VirtualFileEntry> spliterator = Spliterators.spliteratorUnknownSize(virtualFileEntryIterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(virtualFileEntryIterator::close);
+    }
+
+    /**
+     * Get the index used to look up the entry names of Jar files
+     *
+     * @return The Jar entry index, or null if every Jar file is opened to read its entries
+     * @since 0.7
+     */
+    public JarEntryIndex getJarEntryIndex() {
+        return jarEntryIndex;
+    }
+
+    /**
+     * Set the index used to look up the entry names of Jar files. Defaults to the shared index,
+     * see JarEntryIndex.getShared().
+     *
+     * @param jarEntryIndex The Jar entry index, or null to open every Jar file to read its entries
+     * @since 0.7
+     */
+    public void setJarEntryIndex(JarEntryIndex jarEntryIndex) {
+        this.jarEntryIndex = jarEntryIndex;
+    }
+
+    /**
+     * Get the prefix that the names of scanned Jar entries must start with
+     *
+     * @return The prefix, or null if every Jar entry is scanned
+     * @since 0.7
+     */
+    public String getJarEntryPrefix() {
+        return jarEntryPrefix;
+    }
+
+    /**
+     * Set a prefix that the names of scanned Jar entries must start with, such as the directory of a package.
+     * Entries outside the prefix are never offered to includeFile. With a Jar entry index the entries under the
+     * prefix are found by a binary search, so the cost of a scan depends on the number of entries under the prefix
+     * rather than on the size of the Jar file. Regular files are not affected. Defaults to null.
+     *
+     * @param jarEntryPrefix The prefix, for example "net/olioinfo/fileutils/", or null to scan every Jar entry
+     * @since 0.7
+     */
+    public void setJarEntryPrefix(String jarEntryPrefix) {
+        this.jarEntryPrefix = jarEntryPrefix;
+        this.jarEntryPrefixBytes = jarEntryPrefix == null ? null : jarEntryPrefix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get how many levels of archives nested in Jar files are scanned
+     *
+     * @return Depth of nested archives scanned, 0 if nested archives are not scanned
+     * @since 0.7
+     */
+    public int getNestedArchiveDepth() {
+        return nestedArchiveDepth;
+    }
+
+    /**
+     * <p>Set how many levels of archives nested in Jar files are scanned. Defaults to 0, so only the entries of the
+     * Jar files themselves are scanned.</p>
+     *
+     * <p>Above 0, war and ear files are scanned like Jar files, and every jar, war or ear entry of an archive is
+     * scanned in turn, up to the given depth. For example a depth of 1 reaches WEB-INF/lib/*.jar in a war file or
+     * BOOT-INF/lib/*.jar in an executable Jar file. Entries found this way have the type
+     * VirtualFileEntry.TYPE_NESTED_JAR and follow the entries of the archive holding them.</p>
+     *
+     * @param nestedArchiveDepth Depth of nested archives to scan, 0 to scan none
+     * @since 0.7
+     */
+    public void setNestedArchiveDepth(int nestedArchiveDepth) {
+        this.nestedArchiveDepth = nestedArchiveDepth;
+    }
+
+    /**
+     * Get a list of the matching file entries. When the entries are collected into a VirtualFileEntryList, see
+     * setFileEntries(), each call builds a new copy of every entry in the compact list, which takes time and memory
+     * in proportion to its size, and the copy does not follow entries added later. Read the compact list from
+     * getFileEntries() instead to avoid the copy.
      *
      * @return List of file entries
      */
     public ArrayList<VirtualFileEntry> getFileList() {
+        if (fileEntries != null) {
+            synchronized (fileEntries) {
+                return new ArrayList<VirtualFileEntry>(fileEntries);
+            }
+        }
         return fileList;
     }
 
+    /**
+     * Get the compact list the matching file entries are collected into
+     *
+     * @return The compact list, or null if the entries are collected into the file list
+     * @since 0.7
+     */
+    public VirtualFileEntryList getFileEntries() {
+        return fileEntries;
+    }
+
+    /**
+     * Collect the matching file entries into a compact list instead of the file list, for traversals that find
+     * millions of entries. The VirtualFileEntry built for each match is dropped as soon as its values are copied.
+     * Several traversers can share one list to combine their results in order, even while they run at the same
+     * time, as each locks the list while appending to it. Code reading the list during such a traversal must lock
+     * it as well. Set before traversing.
+     *
+     * @param fileEntries The compact list, or null to collect the entries into the file list
+     * @since 0.7
+     */
+    public void setFileEntries(VirtualFileEntryList fileEntries) {
+        this.fileEntries = fileEntries;
+    }
+
     /**
      * Get a list of the matching directory entries
      *
@@ -136,7 +920,9 @@ public abstract class AbstractFileAndJarTraverser extends AbstractFileTraverser
 
 
     /**
-     * Indicate whether directory should be included in the list of matching files
+     * Indicate whether directory should be included in the list of matching files. This does not decide whether
+     * the traversal enters the directory; override descendIntoDirectory, or set a maximum depth or excluded
+     * directories, to prune the traversal.
      *
      * @param virtualFileEntry
      * @return true if the  directory should be included in the list, false otherwise
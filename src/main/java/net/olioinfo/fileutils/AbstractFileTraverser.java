@@ -17,6 +17,26 @@ package net.olioinfo.fileutils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -26,6 +46,27 @@ import java.io.IOException;
  * per directory or file encountered while traversing the tree. Call traverse(somePath) on the root of the tree to
  * start the traversal.</p>
  *
+ * <p>Call traverseParallel(somePath, parallelism) instead to spread the walk over a fork-join pool. Each
+ * subdirectory becomes a separate task, so onDirectory() and onFile() may then be called concurrently from several
+ * threads and must be thread-safe.</p>
+ *
+ * <p>On file systems where each directory listing or file open waits on the network, such as NFS or FUSE mounts,
+ * call traverseConcurrently(somePath, maxConcurrency) to keep up to maxConcurrency of them in flight at once. The
+ * walk runs on virtual threads where the Java runtime provides them. onDirectory() and onFile() must then be
+ * thread-safe as well.</p>
+ *
+ * <p>Before a directory is listed, descendIntoDirectory() decides whether the walk enters it. By default the walk
+ * stops at the maximum depth and skips the directories matching the excluded directory globs, for example .git,
+ * node_modules or target. A directory that is not entered is never listed, and neither onDirectory() nor onFile()
+ * is called for anything in it.</p>
+ *
+ * <p>Symbolic links are handled according to the link policy, see setLinkPolicy(). Whatever the policy, a walk
+ * never enters a directory that is one of its own ancestors, so link and bind mount loops terminate.</p>
+ *
+ * <p>Traversals record the directories listed, the files examined and the time spent walking in
+ * ScanMetrics.getShared(). Traversals that take longer than 20 ms are also recorded as TraversalEvent
+ * (net.olioinfo.fileutils.Traversal) while a flight recording is running.</p>
+ *
  * <p>The following JVM options are available for use in debugging and isolating problems during initialization.
  * They should not be used in other cases or in production, since they cause performance degradation and
  * may generate a lot of output. These options apply to the whole package.</p>
@@ -40,8 +81,36 @@ import java.io.IOException;
  */
 public abstract class AbstractFileTraverser {
 
+    /**
+     * How a traversal handles symbolic links below its starting point. The starting point itself is always
+     * followed.
+     *
+     * @since 0.7
+     */
+    public enum LinkPolicy {
+        /** Follow links to directories and files, skipping only a directory that is one of its own ancestors */
+        FOLLOW,
+        /** Do not enter links to directories. Links to files are still visited, since they cannot form a loop */
+        NO_FOLLOW,
+        /**
+         * Follow links, but enter each directory and visit each tracked file at most once per traversal, however
+         * many paths lead to it. Directories and files are identified by file system key (device and inode).
+         */
+        FOLLOW_ONCE
+    }
+
     protected boolean consoleTracing = false;
 
+    private LinkPolicy linkPolicy = LinkPolicy.FOLLOW_ONCE;
+
+    private int maxDepth = Integer.MAX_VALUE;
+
+    private List<String> excludedDirectories = Collections.emptyList();
+
+    private PathMatcher[] excludedDirectoryMatchers = new PathMatcher[0];
+
+    private Set<Path> prunedPaths = Collections.emptySet();
+
     /**
      * <p>Create an instance of AbstractFileTraverser.</p>
      *
@@ -74,20 +143,590 @@ public abstract class AbstractFileTraverser {
      * @throws IOException
      */
     public final void traverse( final File f ) throws IOException {
-        if (consoleTracing) System.out.format("AbstractFileTraverser: traverse: file %s\n", f.getAbsolutePath());
-        if (f.exists()) {
-            if (consoleTracing) System.out.format("AbstractFileTraverser: traverse: file exists %s\n", f.getAbsolutePath());
-            if (f.isDirectory()) {
-                if (consoleTracing) System.out.format("AbstractFileTraverser: traverse: file is a directory %s\n", f.getAbsolutePath());
-                onDirectory(f);
-                final File[] children = f.listFiles();
-                for( File child : children ) {
-                    traverse(child);
+        traverse(f.toPath());
+    }
+
+    /**
+     * <p>Traverse a tree from a given starting point.</p>
+     *
+     * <p>Directories are read with a directory stream and the attributes of each entry are read exactly once. The
+     * attributes are handed to onDirectory(Path, BasicFileAttributes) and onFile(Path, BasicFileAttributes), so
+     * implementations overriding those hooks need no further calls to the file system to classify an entry.</p>
+     *
+     * @param root Path indicating starting point
+     * @throws IOException if a directory cannot be listed
+     * @since 0.7
+     */
+    public final void traverse( final Path root ) throws IOException {
+        Path start = root.toAbsolutePath();
+        if (consoleTracing) System.out.format("AbstractFileTraverser: traverse: file %s\n", start);
+        BasicFileAttributes attributes = readAttributes(start);
+        if (attributes != null) {
+            TraversalEvent event = new TraversalEvent();
+            LinkTracker linkTracker = new LinkTracker(linkPolicy, prunedPaths, event.isEnabled());
+            long startNanos = System.nanoTime();
+            event.begin();
+            try {
+                visit(linkTracker, start, attributes, 0, null);
+            }
+            finally {
+                ScanMetrics.getShared().addTime(ScanMetrics.Phase.WALK, startNanos);
+                linkTracker.commit(event, start);
+            }
+        }
+    }
+
+    /**
+     * Visit a single entry, recursing into it if it is a directory
+     *
+     * @param linkTracker Link handling for this traversal
+     * @param path Path of the entry
+     * @param attributes Attributes of the entry
+     * @param depth Depth of the entry below the starting point, 0 for the starting point itself
+     * @param ancestors Directories entered on the way to the entry, null for the starting point
+     * @throws IOException if a directory cannot be listed
+     */
+    private void visit( final LinkTracker linkTracker, final Path path, final BasicFileAttributes attributes, final int depth, final LinkTracker.Ancestor ancestors ) throws IOException {
+        if (attributes.isDirectory()) {
+            if (!descendIntoDirectory(path, attributes, depth)) {
+                if (consoleTracing) System.out.format("AbstractFileTraverser: traverse: skipping directory %s\n", path);
+                return;
+            }
+            LinkTracker.Ancestor directory = linkTracker.enter(path, attributes, ancestors);
+            if (directory == null) {
+                if (consoleTracing) System.out.format("AbstractFileTraverser: traverse: directory already visited %s\n", path);
+                return;
+            }
+            if (consoleTracing) System.out.format("AbstractFileTraverser: traverse: file is a directory %s\n", path);
+            onDirectory(path, attributes);
+            ScanMetrics.getShared().directoryListed();
+            linkTracker.countDirectory();
+            DirectoryStream<Path> children = Files.newDirectoryStream(path);
+            try {
+                for (Path child : children) {
+                    BasicFileAttributes childAttributes = linkTracker.readAttributes(child);
+                    if (childAttributes != null) {
+                        visit(linkTracker, child, childAttributes, depth + 1, directory);
+                    }
                 }
+            }
+            finally {
+                children.close();
+            }
+            return;
+        }
+        if (linkTracker.visitFile(this, path, attributes)) {
+            ScanMetrics.getShared().fileExamined();
+            linkTracker.countFile(attributes);
+            onFile(path, attributes);
+        }
+    }
+
+    /**
+     * Read the attributes of an entry, following symbolic links
+     *
+     * @param path Path of the entry
+     * @return Attributes of the entry, or null if the entry does not exist (for example a dangling link)
+     * @throws IOException if the attributes cannot be read
+     */
+    static BasicFileAttributes readAttributes( final Path path ) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        }
+        catch (NoSuchFileException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Traverse a tree from a given starting point, using a fork-join pool to walk subdirectories in parallel
+     *
+     * <p>onDirectory() and onFile() are called from the pool's worker threads, so implementations must be
+     * thread-safe. The order in which entries are visited is not defined. The call returns once the whole tree
+     * has been visited.</p>
+     *
+     * @param f File object indicating starting point
+     * @param parallelism Number of worker threads to use
+     * @throws IOException if a directory cannot be listed
+     * @since 0.7
+     */
+    public final void traverseParallel( final File f, int parallelism ) throws IOException {
+        Path start = f.toPath().toAbsolutePath();
+        if (consoleTracing) System.out.format("AbstractFileTraverser: traverseParallel: file %s parallelism %d\n", start, parallelism);
+        BasicFileAttributes attributes = readAttributes(start);
+        if (attributes == null) {
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        TraversalEvent event = new TraversalEvent();
+        LinkTracker linkTracker = new LinkTracker(linkPolicy, prunedPaths, event.isEnabled());
+        long startNanos = System.nanoTime();
+        event.begin();
+        try {
+            pool.invoke(new TraversalTask(linkTracker, start, attributes, 0, null));
+        }
+        catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        finally {
+            pool.shutdown();
+            ScanMetrics.getShared().addTime(ScanMetrics.Phase.WALK, startNanos);
+            linkTracker.commit(event, start);
+        }
+    }
+
+    /**
+     * Fork-join task visiting a single file or directory. Subdirectories are forked as new tasks, plain files are
+     * processed in the current task.
+     */
+    private class TraversalTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final LinkTracker linkTracker;
+
+        private final Path path;
+
+        private final BasicFileAttributes attributes;
+
+        private final int depth;
+
+        private final LinkTracker.Ancestor ancestors;
+
+        TraversalTask( final LinkTracker linkTracker, final Path path, final BasicFileAttributes attributes, final int depth, final LinkTracker.Ancestor ancestors ) {
+            this.linkTracker = linkTracker;
+            this.path = path;
+            this.attributes = attributes;
+            this.depth = depth;
+            this.ancestors = ancestors;
+        }
+
+        @Override
+        protected void compute() {
+            if (!attributes.isDirectory()) {
+                if (linkTracker.visitFile(AbstractFileTraverser.this, path, attributes)) {
+                    ScanMetrics.getShared().fileExamined();
+                    linkTracker.countFile(attributes);
+                    onFile(path, attributes);
+                }
+                return;
+            }
+            if (!descendIntoDirectory(path, attributes, depth)) {
+                if (consoleTracing) System.out.format("AbstractFileTraverser: traverseParallel: skipping directory %s\n", path);
                 return;
             }
-            onFile(f);
+            LinkTracker.Ancestor directory = linkTracker.enter(path, attributes, ancestors);
+            if (directory == null) {
+                if (consoleTracing) System.out.format("AbstractFileTraverser: traverseParallel: directory already visited %s\n", path);
+                return;
+            }
+            onDirectory(path, attributes);
+            ScanMetrics.getShared().directoryListed();
+            linkTracker.countDirectory();
+            List<TraversalTask> subTasks = new ArrayList<TraversalTask>();
+            try {
+                DirectoryStream<Path> children = Files.newDirectoryStream(path);
+                try {
+                    for (Path child : children) {
+                        BasicFileAttributes childAttributes = linkTracker.readAttributes(child);
+                        if (childAttributes == null) {
+                            continue;
+                        }
+                        if (childAttributes.isDirectory()) {
+                            subTasks.add(new TraversalTask(linkTracker, child, childAttributes, depth + 1, directory));
+                        }
+                        else if (linkTracker.visitFile(AbstractFileTraverser.this, child, childAttributes)) {
+                            ScanMetrics.getShared().fileExamined();
+                            linkTracker.countFile(childAttributes);
+                            onFile(child, childAttributes);
+                        }
+                    }
+                }
+                finally {
+                    children.close();
+                }
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            invokeAll(subTasks);
+        }
+    }
+
+    /**
+     * <p>Traverse a tree from a given starting point, keeping several directory listings and file visits in flight
+     * at once.</p>
+     *
+     * <p>Meant for file systems with a high latency per call, such as NFS or FUSE mounts, where a serial walk
+     * spends nearly all of its time waiting. Every directory listing, attribute read and call to onFile() is a
+     * separate unit of work, taken up by one of maxConcurrency threads. So an onFile() that opens a Jar file does
+     * not hold up the listing of other directories. The threads are virtual threads on Java 21 and later, and
+     * daemon platform threads before that.</p>
+     *
+     * <p>onDirectory() and onFile() are called from several threads at once and must be thread-safe. The order in
+     * which entries are visited is not defined. The call returns once the whole tree has been visited. If a
+     * directory cannot be listed or a hook throws an exception, no further work is started and the first failure
+     * is thrown once the work in flight has finished.</p>
+     *
+     * @param root Path indicating starting point
+     * @param maxConcurrency Maximum number of file system calls and hooks in flight at once, at least 1
+     * @throws IOException if a directory cannot be listed, or the calling thread is interrupted
+     * @throws IllegalArgumentException if maxConcurrency is less than 1
+     * @since 0.7
+     */
+    public final void traverseConcurrently( final Path root, final int maxConcurrency ) throws IOException {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1, was " + maxConcurrency);
+        }
+        Path start = root.toAbsolutePath();
+        if (consoleTracing) System.out.format("AbstractFileTraverser: traverseConcurrently: file %s maxConcurrency %d\n", start, maxConcurrency);
+        BasicFileAttributes attributes = readAttributes(start);
+        if (attributes == null) {
+            return;
+        }
+        TraversalEvent event = new TraversalEvent();
+        LinkTracker linkTracker = new LinkTracker(linkPolicy, prunedPaths, event.isEnabled());
+        long startNanos = System.nanoTime();
+        event.begin();
+        try {
+            new ConcurrentTraversal(linkTracker, maxConcurrency).run(start, attributes);
+        }
+        finally {
+            ScanMetrics.getShared().addTime(ScanMetrics.Phase.WALK, startNanos);
+            linkTracker.commit(event, start);
+        }
+    }
+
+    /**
+     * A single concurrent walk. Entries still to be visited wait in a queue, from which a fixed number of workers
+     * take them, so the number of threads stays at maxConcurrency however large the tree. A count of the entries
+     * queued or being visited tells the workers when the walk is over.
+     */
+    private class ConcurrentTraversal {
+
+        private final LinkTracker linkTracker;
+
+        private final int workerCount;
+
+        private final LinkedBlockingQueue<PendingEntry> queue = new LinkedBlockingQueue<PendingEntry>();
+
+        private final AtomicInteger pendingCount = new AtomicInteger();
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        ConcurrentTraversal( final LinkTracker linkTracker, final int workerCount ) {
+            this.linkTracker = linkTracker;
+            this.workerCount = workerCount;
+        }
+
+        /**
+         * Walk the tree, returning once every worker has stopped
+         */
+        void run( final Path start, final BasicFileAttributes attributes ) throws IOException {
+            enqueue(new PendingEntry(start, attributes, 0, null));
+            ExecutorService executor = VirtualThreads.newExecutor(workerCount, "AbstractFileTraverser");
+            try {
+                for (int i = 0; i < workerCount; i++) {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            work();
+                        }
+                    });
+                }
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            catch (InterruptedException ex) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Traversal of " + start + " interrupted");
+            }
+            Throwable firstFailure = failure.get();
+            if (firstFailure instanceof IOException) {
+                throw (IOException) firstFailure;
+            }
+            if (firstFailure instanceof RuntimeException) {
+                throw (RuntimeException) firstFailure;
+            }
+            if (firstFailure instanceof Error) {
+                throw (Error) firstFailure;
+            }
         }
+
+        private void enqueue( final PendingEntry entry ) {
+            pendingCount.incrementAndGet();
+            queue.add(entry);
+        }
+
+        /**
+         * Visit queued entries until the walk is over. The worker finishing the last entry queues one end marker
+         * for each worker.
+         */
+        private void work() {
+            while (true) {
+                PendingEntry entry;
+                try {
+                    entry = queue.take();
+                }
+                catch (InterruptedException ex) {
+                    return;
+                }
+                if (entry == PendingEntry.END) {
+                    return;
+                }
+                try {
+                    if (failure.get() == null) {
+                        visit(entry);
+                    }
+                }
+                catch (Throwable ex) {
+                    failure.compareAndSet(null, ex);
+                }
+                finally {
+                    if (pendingCount.decrementAndGet() == 0) {
+                        for (int i = 0; i < workerCount; i++) {
+                            queue.add(PendingEntry.END);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Visit a single entry. The entries of a directory are queued rather than visited, so that their attributes
+         * are read and their subdirectories listed by the other workers.
+         */
+        private void visit( final PendingEntry entry ) throws IOException {
+            BasicFileAttributes attributes = entry.attributes != null ? entry.attributes : linkTracker.readAttributes(entry.path);
+            if (attributes == null) {
+                return;
+            }
+            if (!attributes.isDirectory()) {
+                if (linkTracker.visitFile(AbstractFileTraverser.this, entry.path, attributes)) {
+                    ScanMetrics.getShared().fileExamined();
+                    linkTracker.countFile(attributes);
+                    onFile(entry.path, attributes);
+                }
+                return;
+            }
+            if (!descendIntoDirectory(entry.path, attributes, entry.depth)) {
+                if (consoleTracing) System.out.format("AbstractFileTraverser: traverseConcurrently: skipping directory %s\n", entry.path);
+                return;
+            }
+            LinkTracker.Ancestor directory = linkTracker.enter(entry.path, attributes, entry.ancestors);
+            if (directory == null) {
+                if (consoleTracing) System.out.format("AbstractFileTraverser: traverseConcurrently: directory already visited %s\n", entry.path);
+                return;
+            }
+            onDirectory(entry.path, attributes);
+            ScanMetrics.getShared().directoryListed();
+            linkTracker.countDirectory();
+            DirectoryStream<Path> children = Files.newDirectoryStream(entry.path);
+            try {
+                for (Path child : children) {
+                    enqueue(new PendingEntry(child, null, entry.depth + 1, directory));
+                }
+            }
+            finally {
+                children.close();
+            }
+        }
+    }
+
+    /**
+     * An entry waiting to be visited by a concurrent walk
+     */
+    private static final class PendingEntry {
+
+        /** Marker telling a worker that the walk is over */
+        static final PendingEntry END = new PendingEntry(null, null, 0, null);
+
+        final Path path;
+
+        /** Attributes of the entry, or null if they are still to be read */
+        final BasicFileAttributes attributes;
+
+        final int depth;
+
+        final LinkTracker.Ancestor ancestors;
+
+        PendingEntry( final Path path, final BasicFileAttributes attributes, final int depth, final LinkTracker.Ancestor ancestors ) {
+            this.path = path;
+            this.attributes = attributes;
+            this.depth = depth;
+            this.ancestors = ancestors;
+        }
+    }
+
+    /**
+     * <p>Decide whether the walk enters a directory. Called before the directory is listed and before onDirectory(),
+     * including for the starting point. When it returns false the directory is not listed, onDirectory() is not
+     * called for it, and nothing below it is visited.</p>
+     *
+     * <p>The default implementation enters a directory unless it is deeper than the maximum depth, or it is below
+     * the starting point and matches one of the excluded directory globs. Override to prune on other criteria,
+     * calling this implementation to keep the depth limit and the globs.</p>
+     *
+     * @param d Path of the directory
+     * @param attributes Attributes of the directory
+     * @param depth Depth of the directory below the starting point, 0 for the starting point itself
+     * @return true to list the directory and visit its entries, false to skip the whole subtree
+     * @since 0.7
+     */
+    public boolean descendIntoDirectory( final Path d, final BasicFileAttributes attributes, final int depth ) {
+        if (depth > maxDepth) {
+            return false;
+        }
+        if (depth == 0 || excludedDirectoryMatchers.length == 0) {
+            return true;
+        }
+        Path name = d.getFileName();
+        Path relativePath = d.subpath(d.getNameCount() - depth, d.getNameCount());
+        for (PathMatcher matcher : excludedDirectoryMatchers) {
+            if (matcher.matches(name) || matcher.matches(relativePath)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicate whether a file is visited at most once per traversal under LinkPolicy.FOLLOW_ONCE, however many
+     * paths lead to it. Tracking a file costs an entry in a set for the rest of the traversal, so by default only
+     * directories are tracked and every file is visited each time it is reached.
+     *
+     * @param f Path of the file
+     * @return true to visit the file only once per traversal
+     * @since 0.7
+     */
+    protected boolean isVisitedOnce( final Path f ) {
+        return false;
+    }
+
+    /**
+     * Get how symbolic links are handled
+     *
+     * @return The link policy
+     * @since 0.7
+     */
+    public LinkPolicy getLinkPolicy() {
+        return linkPolicy;
+    }
+
+    /**
+     * Set how symbolic links below the starting point are handled. Defaults to LinkPolicy.FOLLOW_ONCE, so a
+     * directory reached through several links or bind mounts is only walked once per traversal.
+     *
+     * @param linkPolicy The link policy
+     * @since 0.7
+     */
+    public void setLinkPolicy( LinkPolicy linkPolicy ) {
+        if (linkPolicy == null) {
+            throw new IllegalArgumentException("linkPolicy must not be null");
+        }
+        this.linkPolicy = linkPolicy;
+    }
+
+    /**
+     * Get the paths of the entries that traversals skip
+     *
+     * @return Paths to skip
+     */
+    Set<Path> getPrunedPaths() {
+        return prunedPaths;
+    }
+
+    /**
+     * Set the paths of the entries that traversals skip, whatever descendIntoDirectory() decides. Used to keep a
+     * traversal out of a nested search path that is walked separately, see SearchPaths. Only entries below the
+     * starting point are skipped.
+     *
+     * @param prunedPaths Absolute paths to skip, as reached by the traversal
+     */
+    void setPrunedPaths( Set<Path> prunedPaths ) {
+        this.prunedPaths = prunedPaths;
+    }
+
+    /**
+     * Get the depth below the starting point beyond which directories are not entered
+     *
+     * @return The maximum depth, Integer.MAX_VALUE if there is no limit
+     * @since 0.7
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Set the depth below the starting point beyond which directories are not entered. With 0 only the files
+     * directly in the starting point are visited, with 1 the files of its subdirectories as well, and so on.
+     * Defaults to Integer.MAX_VALUE, so the whole tree is walked.
+     *
+     * @param maxDepth The maximum depth, at least 0
+     * @throws IllegalArgumentException if maxDepth is negative
+     * @since 0.7
+     */
+    public void setMaxDepth( int maxDepth ) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must be at least 0, was " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Get the globs of the directories that are not entered
+     *
+     * @return The excluded directory globs
+     * @since 0.7
+     */
+    public List<String> getExcludedDirectories() {
+        return excludedDirectories;
+    }
+
+    /**
+     * <p>Set the globs of the directories that are not entered. Each glob, in java.nio.file.PathMatcher glob syntax,
+     * is matched against both the name of a directory and its path relative to the starting point. So ".git" or
+     * "node_modules" skip directories of that name anywhere in the tree, while "build/tmp" only skips the one
+     * directly below the starting point and "**&#47;build/tmp" skips it at any depth. The starting point itself is
+     * never excluded. Defaults to no globs.</p>
+     *
+     * @param excludedDirectories The excluded directory globs
+     * @throws IllegalArgumentException if a glob is malformed
+     * @since 0.7
+     */
+    public void setExcludedDirectories( List<String> excludedDirectories ) {
+        PathMatcher[] matchers = new PathMatcher[excludedDirectories.size()];
+        for (int i = 0; i < matchers.length; i++) {
+            matchers[i] = FileSystems.getDefault().getPathMatcher("glob:" + excludedDirectories.get(i));
+        }
+        this.excludedDirectories = Collections.unmodifiableList(new ArrayList<String>(excludedDirectories));
+        this.excludedDirectoryMatchers = matchers;
+    }
+
+    /**
+     * <p>Perform this processing on each directory, given the attributes already read by the traversal.</p>
+     *
+     * <p>The default implementation adapts the call to onDirectory(File). Override to avoid creating the File.</p>
+     *
+     * @param d Path representing the directory to be processed
+     * @param attributes Attributes of the directory
+     * @since 0.7
+     */
+    public void onDirectory( final Path d, final BasicFileAttributes attributes ) {
+        onDirectory(d.toFile());
+    }
+
+    /**
+     * <p>Perform this processing on each file, given the attributes already read by the traversal.</p>
+     *
+     * <p>The default implementation adapts the call to onFile(File). Override to avoid creating the File.</p>
+     *
+     * @param f Path representing the file to be processed
+     * @param attributes Attributes of the file
+     * @since 0.7
+     */
+    public void onFile( final Path f, final BasicFileAttributes attributes ) {
+        onFile(f.toFile());
     }
 
     /**
@@ -0,0 +1,308 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+
+/**
+ * <p>The directories and Jar files a class loader loads classes and resources from, as search paths for
+ * MatchingFileAndJarTraverser and CombinedPropertyFileManager.</p>
+ *
+ * <p>The class loader and its parents are asked for their roots, parents first:</p>
+ *
+ * <ul>
+ *   <li>The system class loader contributes the entries of the java.class.path property.</li>
+ *   <li>A URLClassLoader contributes its file: URLs.</li>
+ *   <li>Any other class loader contributes the directories and Jar files holding its META-INF/MANIFEST.MF
+ *   resources and its root resource "".</li>
+ * </ul>
+ *
+ * <p>Each Jar file is followed by the Jar files and directories named in the Class-Path attribute of its manifest,
+ * resolved against the Jar file and followed in turn, as the class loader itself would. Every root is listed once,
+ * at its first occurrence, whether it is reached from several class loaders, from several manifests or through a
+ * symbolic link, so Class-Path cycles terminate. Roots that do not exist are left out.</p>
+ *
+ * <p>The roots are in class loading order, where the first occurrence of a resource wins. Results combined by
+ * CombinedPropertyFileManager let the last occurrence win, so reverse the list to give the class loader's choice
+ * the final say.</p>
+ *
+ * <p>The roots of each class loader are found once and cached for as long as the class loader is reachable. Call
+ * invalidate() after adding URLs to a class loader.</p>
+ *
+ * <p>The methods are safe for use by several threads.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public final class ClasspathSource {
+
+    private static final Map<ClassLoader, List<String>> cache = new WeakHashMap<ClassLoader, List<String>>();
+
+    private static final boolean consoleTracing = Boolean.parseBoolean(System.getProperty("net.olioinfo.fileutils.consoleTracing"));
+
+    private ClasspathSource() {
+    }
+
+    /**
+     * Get the roots of a class loader and its parents, finding them the first time the class loader is asked for
+     *
+     * @param classLoader Class loader, or null for the system class loader
+     * @return Unmodifiable list of the absolute paths of the directories and Jar files, in class loading order
+     */
+    public static List<String> getPaths(ClassLoader classLoader) {
+        ClassLoader key = classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader;
+        synchronized (cache) {
+            List<String> paths = cache.get(key);
+            if (paths != null) {
+                return paths;
+            }
+        }
+        List<String> paths = Collections.unmodifiableList(findPaths(key));
+        synchronized (cache) {
+            // Another thread may have found the roots in the meantime; keep the first list so callers share it
+            List<String> cachedPaths = cache.get(key);
+            if (cachedPaths != null) {
+                return cachedPaths;
+            }
+            cache.put(key, paths);
+            return paths;
+        }
+    }
+
+    /**
+     * Get the roots of a class loader and its parents as a list of search paths
+     *
+     * @param classLoader Class loader, or null for the system class loader
+     * @return New list of the absolute paths of the directories and Jar files, in class loading order
+     */
+    public static ArrayList<String> getSearchPaths(ClassLoader classLoader) {
+        return new ArrayList<String>(getPaths(classLoader));
+    }
+
+    /**
+     * Forget the cached roots of a class loader, so that they are found again the next time they are asked for
+     *
+     * @param classLoader Class loader, or null for the system class loader
+     */
+    public static void invalidate(ClassLoader classLoader) {
+        ClassLoader key = classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader;
+        synchronized (cache) {
+            cache.remove(key);
+        }
+    }
+
+    /**
+     * Forget the cached roots of every class loader
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Find the roots of a class loader and its parents
+     *
+     * @param classLoader Class loader
+     * @return Roots in class loading order
+     */
+    private static List<String> findPaths(ClassLoader classLoader) {
+        ArrayList<ClassLoader> loaders = new ArrayList<ClassLoader>();
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            loaders.add(0, loader);
+        }
+        Roots roots = new Roots();
+        for (ClassLoader loader : loaders) {
+            if (loader == ClassLoader.getSystemClassLoader()) {
+                String classPath = System.getProperty("java.class.path", "");
+                for (String element : classPath.split(File.pathSeparator)) {
+                    if (!element.isEmpty()) {
+                        roots.add(toPath(element));
+                    }
+                }
+            }
+            else if (loader instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) loader).getURLs()) {
+                    roots.add(toPath(url));
+                }
+            }
+            else {
+                addResourceRoots(loader, roots);
+            }
+        }
+        return roots.paths;
+    }
+
+    /**
+     * Add the roots of a class loader that does not list its URLs, from the locations of its resources
+     */
+    private static void addResourceRoots(ClassLoader loader, Roots roots) {
+        try {
+            Enumeration<URL> directories = loader.getResources("");
+            while (directories.hasMoreElements()) {
+                roots.add(toPath(directories.nextElement()));
+            }
+            Enumeration<URL> manifests = loader.getResources(JarFile.MANIFEST_NAME);
+            while (manifests.hasMoreElements()) {
+                String url = manifests.nextElement().toString();
+                int separator = url.lastIndexOf("!/");
+                if (url.startsWith("jar:") && separator > 0) {
+                    try {
+                        roots.add(toPath(new URI(url.substring(4, separator))));
+                    }
+                    catch (URISyntaxException ex) {
+                        if (consoleTracing) System.out.format("ClasspathSource: ignoring manifest %s: %s\n", url, ex.toString());
+                    }
+                }
+            }
+        }
+        catch (IOException ex) {
+            if (consoleTracing) System.out.format("ClasspathSource: cannot list the resources of %s: %s\n", loader, ex.toString());
+        }
+    }
+
+    /**
+     * Roots found so far, each listed once
+     */
+    private static final class Roots {
+
+        private final ArrayList<String> paths = new ArrayList<String>();
+
+        private final Set<Path> seen = new HashSet<Path>();
+
+        /**
+         * Add a root if it exists and is new, followed by the Class-Path of its manifest if it is a Jar file
+         *
+         * @param path Absolute path of the root, or null if it is not in the file system
+         */
+        void add(Path path) {
+            if (path == null || !Files.exists(path)) {
+                return;
+            }
+            Path realPath;
+            try {
+                realPath = path.toRealPath();
+            }
+            catch (IOException ex) {
+                realPath = path;
+            }
+            if (!seen.add(realPath)) {
+                return;
+            }
+            paths.add(path.toString());
+            if (Files.isRegularFile(path)) {
+                for (Path classPathEntry : readManifestClassPath(path)) {
+                    add(classPathEntry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the Class-Path attribute of the manifest of a Jar file
+     *
+     * @param jar Path of the Jar file
+     * @return Paths of the entries of the Class-Path, resolved against the Jar file
+     */
+    private static List<Path> readManifestClassPath(Path jar) {
+        String classPath = null;
+        try {
+            JarFile jarFile = new JarFile(jar.toFile(), false);
+            ScanMetrics.getShared().jarOpened();
+            try {
+                Manifest manifest = jarFile.getManifest();
+                if (manifest != null) {
+                    classPath = manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+                }
+            }
+            finally {
+                jarFile.close();
+            }
+        }
+        catch (IOException ex) {
+            if (consoleTracing) System.out.format("ClasspathSource: cannot read the manifest of %s: %s\n", jar, ex.toString());
+        }
+        if (classPath == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<Path> entries = new ArrayList<Path>();
+        URI base = jar.toUri();
+        for (String entry : classPath.trim().split("\\s+")) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            try {
+                Path path = toPath(base.resolve(new URI(entry)));
+                if (path != null) {
+                    entries.add(path);
+                }
+            }
+            catch (URISyntaxException ex) {
+                if (consoleTracing) System.out.format("ClasspathSource: ignoring Class-Path entry %s of %s: %s\n", entry, jar, ex.toString());
+            }
+        }
+        return entries;
+    }
+
+    private static Path toPath(String element) {
+        try {
+            return Paths.get(element).toAbsolutePath().normalize();
+        }
+        catch (InvalidPathException ex) {
+            return null;
+        }
+    }
+
+    private static Path toPath(URL url) {
+        try {
+            return toPath(url.toURI());
+        }
+        catch (URISyntaxException ex) {
+            return null;
+        }
+    }
+
+    private static Path toPath(URI uri) {
+        try {
+            return "file".equalsIgnoreCase(uri.getScheme()) ? Paths.get(uri).normalize() : null;
+        }
+        catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+}
@@ -16,11 +16,26 @@ package net.olioinfo.fileutils;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
@@ -37,6 +52,9 @@ import java.util.regex.Pattern;
  * <p>will find load all the property files named 'test-props.properties' in the tree rooted at
  *  'System.getProperty("user.dir")' ('user.dir' is usually the directory active when the JVM is started).</p>
  *
+ * <p>The bytes parsed and the time spent loading and merging are recorded in ScanMetrics.getShared(), along with
+ * the work of the traversals that find the property files.</p>
+ *
  * @author Tracy Flynn
  * @version 0.6
  * @since 0.1
@@ -55,6 +73,20 @@ public class CombinedPropertyFileManager {
 
     private Class klass = null;
 
+    private JarEntryIndex jarEntryIndex = JarEntryIndex.getShared();
+
+    private int maxOpenJarFiles = JarFilePool.DEFAULT_MAX_OPEN;
+
+    private boolean singlePass = false;
+
+    private int parallelism = 1;
+
+    private Path snapshotFile = null;
+
+    private int nestedArchiveDepth = 0;
+
+    private boolean packageRootsOnly = false;
+
     /**
      * <p>Load and combine property files found in directory tree rooted at path.</p>
      *
@@ -166,6 +198,47 @@ public class CombinedPropertyFileManager {
         this.propertyFileName = propertyFileName;
     }
 
+    /**
+     * Get the class whose package qualifies the property files loaded by loadAllFromPackageAndPaths
+     *
+     * @return The class, or null if none has been set
+     * @since 0.7
+     */
+    public Class<?> getPackageClass() {
+        return klass;
+    }
+
+    /**
+     * Set the class whose package qualifies the property files loaded by loadAllFromPackageAndPaths
+     *
+     * @param klass Class from which to derive package
+     * @since 0.7
+     */
+    public void setPackageClass(Class<?> klass) {
+        this.klass = klass;
+    }
+
+    /**
+     * Get the index used to look up the entry names of Jar files while searching
+     *
+     * @return The Jar entry index, or null if every Jar file is opened
+     * @since 0.7
+     */
+    public JarEntryIndex getJarEntryIndex() {
+        return jarEntryIndex;
+    }
+
+    /**
+     * Set the index used to look up the entry names of Jar files while searching. Defaults to the shared index,
+     * see JarEntryIndex.getShared().
+     *
+     * @param jarEntryIndex The Jar entry index, or null to open every Jar file
+     * @since 0.7
+     */
+    public void setJarEntryIndex(JarEntryIndex jarEntryIndex) {
+        this.jarEntryIndex = jarEntryIndex;
+    }
+
     /**
      * Find all the properties in the search paths listed
      *
@@ -173,7 +246,7 @@ public class CombinedPropertyFileManager {
      */
     public ArrayList<VirtualFileEntry> findAllFromPaths() {
         ArrayList<String> paths = new ArrayList<String>();
-        ArrayList<VirtualFileEntry> matchingFileList = MatchingFileAndJarTraverser.findFilesFromPaths(searchPaths,propertyFileName);
+        ArrayList<VirtualFileEntry> matchingFileList = MatchingFileAndJarTraverser.findFilesFromPaths(searchPaths,Collections.singletonList(propertyFileName),jarEntryIndex,nestedArchiveDepth);
         return matchingFileList;
     }
 
@@ -185,10 +258,11 @@ public class CombinedPropertyFileManager {
      */
     public Properties loadAllFromPaths() {
 
-        ArrayList<VirtualFileEntry> allPropertyFileEntries = findAllFromPaths();
-        for (VirtualFileEntry virtualFileEntry: allPropertyFileEntries ) {
-            loadSingle(virtualFileEntry,combinedProperties);
+        if (singlePass) {
+            return loadAllInSinglePass(propertyFileName);
         }
+        ArrayList<VirtualFileEntry> allPropertyFileEntries = findAllFromPaths();
+        loadAll(allPropertyFileEntries, null);
         // Hand back whatever was found. Errors are logged but don't get loaded (obviously!)
         return combinedProperties;
 
@@ -201,26 +275,304 @@ public class CombinedPropertyFileManager {
      */
     public Properties loadAllFromPackageAndPaths() {
 
-        ArrayList<VirtualFileEntry> allPropertyFileEntries = findAllFromPackageAndPaths();
-        for (VirtualFileEntry virtualFileEntry: allPropertyFileEntries ) {
-            loadSingle(virtualFileEntry,combinedProperties);
+        if (singlePass && !packageRootsOnly) {
+            return loadAllInSinglePass(MatchingFileAndJarTraverser.packageFileNameRegex(klass,propertyFileName));
         }
+        ArrayList<VirtualFileEntry> allPropertyFileEntries = findAllFromPackageAndPaths();
+        loadAll(allPropertyFileEntries, null);
         // Hand back whatever was found. Errors are logged but don't get loaded (obviously!)
         return combinedProperties;
 
     }
 
     /**
-     * Find all the properties in the search paths listed
+     * Load all the properties in the search paths listed into an immutable map, whose lookups take no locks
+     *
+     * @return Immutable map with contents of all properties files combined
+     * @since 0.7
+     */
+    public ImmutablePropertyMap loadImmutableFromPaths() {
+        return ImmutablePropertyMap.of(loadAllFromPaths());
+    }
+
+    /**
+     * Load all the properties qualified by package in the search paths listed into an immutable map, whose lookups
+     * take no locks
+     *
+     * @return Immutable map with contents of all properties files combined
+     * @since 0.7
+     */
+    public ImmutablePropertyMap loadImmutableFromPackageAndPaths() {
+        return ImmutablePropertyMap.of(loadAllFromPackageAndPaths());
+    }
+
+    /**
+     * Load the given entries in order into the combined properties. Entries in the same Jar file share one open
+     * JarFile, and entries in the same nested archive share one reader of it, taken from a pool that lives for the
+     * duration of the call. When the parallelism is above 1 the
+     * entries are parsed concurrently into their own Properties instances, which are merged in the original order.
+     *
+     * @param allPropertyFileEntries Entries to load, in discovery order
+     * @param loadedJarEntries Entries that have already been parsed, or null if there are none
+     */
+    private void loadAll(ArrayList<VirtualFileEntry> allPropertyFileEntries, Map<VirtualFileEntry,Properties> loadedJarEntries) {
+        JarFilePool jarFilePool = new JarFilePool(maxOpenJarFiles);
+        try {
+            if (parallelism > 1 && allPropertyFileEntries.size() > 1) {
+                loadAllInParallel(allPropertyFileEntries, loadedJarEntries, jarFilePool);
+                return;
+            }
+            for (VirtualFileEntry virtualFileEntry: allPropertyFileEntries ) {
+                Properties loadedProperties = loadedJarEntries == null ? null : loadedJarEntries.get(virtualFileEntry);
+                if (loadedProperties != null) {
+                    mergeProperties(combinedProperties, loadedProperties);
+                }
+                else {
+                    loadSingle(virtualFileEntry,combinedProperties,jarFilePool);
+                }
+            }
+        }
+        finally {
+            jarFilePool.close();
+        }
+    }
+
+    /**
+     * Parse the given entries concurrently and merge them into the combined properties in the original order, so
+     * that a later file overrides an earlier one exactly as in a serial load
+     *
+     * @param allPropertyFileEntries Entries to load, in discovery order
+     * @param loadedJarEntries Entries that have already been parsed, or null if there are none
+     * @param jarFilePool Pool of open Jar files shared by the parsing threads
+     */
+    private void loadAllInParallel(ArrayList<VirtualFileEntry> allPropertyFileEntries, Map<VirtualFileEntry,Properties> loadedJarEntries, final JarFilePool jarFilePool) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, allPropertyFileEntries.size()));
+        try {
+            ArrayList<Future<Properties>> parsedEntries = new ArrayList<Future<Properties>>(allPropertyFileEntries.size());
+            for (final VirtualFileEntry virtualFileEntry : allPropertyFileEntries) {
+                Properties loadedProperties = loadedJarEntries == null ? null : loadedJarEntries.get(virtualFileEntry);
+                if (loadedProperties != null) {
+                    parsedEntries.add(CompletableFuture.completedFuture(loadedProperties));
+                }
+                else {
+                    parsedEntries.add(executor.submit(() -> loadSingle(virtualFileEntry, new Properties(), jarFilePool)));
+                }
+            }
+            for (Future<Properties> parsedEntry : parsedEntries) {
+                try {
+                    mergeProperties(combinedProperties, parsedEntry.get());
+                }
+                catch (ExecutionException ex) {
+                    if (consoleTracing) {
+                        System.out.format("CombinedPropertyFileManager:loadAllInParallel. Error while loading properties files. Ignoring .. %s\n", ex.getCause().toString());
+                        ex.getCause().printStackTrace(System.out);
+                    }
+                }
+            }
+        }
+        catch (InterruptedException ex) {
+            if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadAllInParallel. Interrupted while loading properties files\n");
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * <p>Find and load the property files matching the given pattern in one traversal of the search paths.</p>
+     *
+     * <p>Matching Jar entries are parsed while their Jar file is open for the scan, so each Jar file is opened once.
+     * The parsed entries and the regular files are then merged in discovery order, which gives the same result as
+     * finding everything first and loading it afterwards.</p>
+     *
+     * @param fileNameRegex Pattern for the property files to load
+     * @return Properties instance with contents of all properties files combined
+     */
+    private Properties loadAllInSinglePass(String fileNameRegex) {
+        return loadAllInSinglePass(fileNameRegex, null);
+    }
+
+    /**
+     * Find and load the property files matching the given pattern in one traversal of the search paths, recording
+     * the directories walked, the Jar files and the matching regular files
+     *
+     * @param fileNameRegex Pattern for the property files to load
+     * @param sources List to add the stamps of the sources to, or null if they are not wanted
+     * @return Properties instance with contents of all properties files combined
+     */
+    private Properties loadAllInSinglePass(String fileNameRegex, List<PropertySnapshot.SourceStamp> sources) {
+
+        ArrayList<VirtualFileEntry> allPropertyFileEntries = new ArrayList<VirtualFileEntry>();
+        IdentityHashMap<VirtualFileEntry,Properties> loadedJarEntries = new IdentityHashMap<VirtualFileEntry,Properties>();
+        try {
+            SearchPaths normalizedPaths = new SearchPaths(searchPaths);
+            for (Path path : normalizedPaths.getRoots()) {
+                LoadingFileAndJarTraverser fileAndJarTraverser = new LoadingFileAndJarTraverser(fileNameRegex, loadedJarEntries, sources);
+                fileAndJarTraverser.setJarEntryIndex(jarEntryIndex);
+                fileAndJarTraverser.setNestedArchiveDepth(nestedArchiveDepth);
+                fileAndJarTraverser.setPrunedPaths(normalizedPaths.getNestedRoots());
+                if (sources != null && !Files.exists(path)) {
+                    // A search path created later must invalidate the snapshot
+                    sources.add(new PropertySnapshot.SourceStamp(path.toString(), null));
+                }
+                fileAndJarTraverser.traverse(path);
+                allPropertyFileEntries.addAll(fileAndJarTraverser.getFileList());
+            }
+        }
+        catch (Exception ex) {
+            if (consoleTracing) {
+                System.out.format("CombinedPropertyFileManager:loadAllInSinglePass. Error while finding properties files. Ignoring .. %s\n", ex.toString());
+                ex.printStackTrace(System.out);
+            }
+            return combinedProperties;
+        }
+
+        loadAll(allPropertyFileEntries, loadedJarEntries);
+        return combinedProperties;
+    }
+
+    /**
+     * Traverser that parses each matching Jar entry into its own Properties instance while the Jar file is open
+     */
+    private static class LoadingFileAndJarTraverser extends MatchingFileAndJarTraverser.RegexFileAndJarTraverser {
+
+        private final IdentityHashMap<VirtualFileEntry,Properties> loadedJarEntries;
+
+        private final List<PropertySnapshot.SourceStamp> sources;
+
+        LoadingFileAndJarTraverser(String fileNameRegex, IdentityHashMap<VirtualFileEntry,Properties> loadedJarEntries, List<PropertySnapshot.SourceStamp> sources) {
+            super(fileNameRegex);
+            this.loadedJarEntries = loadedJarEntries;
+            this.sources = sources;
+        }
+
+        @Override
+        public void onDirectory(Path d, BasicFileAttributes attributes) {
+            if (sources != null) {
+                sources.add(new PropertySnapshot.SourceStamp(d.toString(), attributes));
+            }
+        }
+
+        @Override
+        public void onFile(Path f, BasicFileAttributes attributes) {
+            int firstEntry = getFileList().size();
+            super.onFile(f, attributes);
+            if (sources != null && (isArchiveFile(f.toString()) || getFileList().size() > firstEntry)) {
+                sources.add(new PropertySnapshot.SourceStamp(f.toString(), attributes));
+            }
+        }
+
+        @Override
+        protected boolean isReadingJarEntries() {
+            return true;
+        }
+
+        @Override
+        protected void onJarEntry(VirtualFileEntry virtualFileEntry, InputStream inputStream) throws IOException {
+            if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadAllInSinglePass About to load properties file from JAR %s:%s\n", virtualFileEntry.getAbsoluteFilePath() , virtualFileEntry.getRelativeFilePath());
+            Properties properties = new Properties();
+            // Keep whatever was read before an error, as loading straight into the combined properties would
+            loadedJarEntries.put(virtualFileEntry, properties);
+            PropertyLoadEvent event = new PropertyLoadEvent();
+            long bytes = -1;
+            event.begin();
+            try {
+                bytes = loadStream(inputStream, virtualFileEntry.getRelativeFilePath(), properties);
+            }
+            finally {
+                commit(event, virtualFileEntry, properties, bytes);
+            }
+        }
+
+    }
+
+    /**
+     * Find all the properties in the search paths listed. When package roots only are searched, see
+     * setPackageRootsOnly(), the Jar entries under the package directory are found by a prefix lookup.
      *
      * @return List of all matching properties files
      */
     public ArrayList<VirtualFileEntry> findAllFromPackageAndPaths() {
+        if (packageRootsOnly) {
+            JarEntryIndex lookupIndex = jarEntryIndex != null ? jarEntryIndex : JarEntryIndex.getLookupIndex();
+            return MatchingFileAndJarTraverser.findFilesInPackageFromPaths(klass, searchPaths, propertyFileName, lookupIndex);
+        }
         ArrayList<String> paths = new ArrayList<String>();
-        ArrayList<VirtualFileEntry> matchingFileList = MatchingFileAndJarTraverser.findFilesFromPackageAndPaths(klass,searchPaths,propertyFileName);
+        ArrayList<VirtualFileEntry> matchingFileList = MatchingFileAndJarTraverser.findFilesFromPackageAndPaths(klass,searchPaths,propertyFileName,jarEntryIndex,nestedArchiveDepth);
         return matchingFileList;
     }
 
+    /**
+     * <p>Load all the properties in the search paths listed through a snapshot.</p>
+     *
+     * <p>If the snapshot file holds a snapshot of the same search paths and file name pattern, and none of the files
+     * and directories it was loaded from has changed, it is memory-mapped and returned without searching or parsing
+     * anything. Otherwise the properties are loaded in a single pass and a new snapshot is written. Without a
+     * snapshot file the snapshot is only built in memory.</p>
+     *
+     * @return Snapshot of the combined properties
+     * @since 0.7
+     */
+    public PropertySnapshot loadSnapshotFromPaths() {
+        return loadSnapshot(propertyFileName);
+    }
+
+    /**
+     * Load all the properties qualified by package in the search paths listed through a snapshot, see
+     * loadSnapshotFromPaths().
+     *
+     * @return Snapshot of the combined properties
+     * @since 0.7
+     */
+    public PropertySnapshot loadSnapshotFromPackageAndPaths() {
+        return loadSnapshot(MatchingFileAndJarTraverser.packageFileNameRegex(klass,propertyFileName));
+    }
+
+    /**
+     * Use the snapshot file if it is current, and otherwise load the property files and write it
+     *
+     * @param fileNameRegex Pattern for the property files to load
+     * @return Snapshot of the combined properties
+     */
+    private PropertySnapshot loadSnapshot(String fileNameRegex) {
+
+        StringBuilder descriptor = new StringBuilder();
+        for (String path : searchPaths) {
+            descriptor.append(new File(path).getAbsolutePath()).append('\n');
+        }
+        descriptor.append(fileNameRegex);
+        if (nestedArchiveDepth > 0) {
+            descriptor.append('\n').append("nestedArchiveDepth=").append(nestedArchiveDepth);
+        }
+
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            try {
+                PropertySnapshot snapshot = PropertySnapshot.open(snapshotFile);
+                if (snapshot.getDescriptor().equals(descriptor.toString()) && snapshot.isCurrent()) {
+                    if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadSnapshot Using snapshot %s\n", snapshotFile);
+                    return snapshot;
+                }
+            }
+            catch (IOException ex) {
+                if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadSnapshot. Error while reading snapshot. Ignoring .. %s\n", ex.toString());
+            }
+        }
+
+        ArrayList<PropertySnapshot.SourceStamp> sources = new ArrayList<PropertySnapshot.SourceStamp>();
+        PropertySnapshot snapshot = PropertySnapshot.create(descriptor.toString(), loadAllInSinglePass(fileNameRegex, sources), sources);
+        if (snapshotFile != null) {
+            try {
+                snapshot.write(snapshotFile);
+                if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadSnapshot Wrote snapshot %s\n", snapshotFile);
+            }
+            catch (IOException ex) {
+                if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadSnapshot. Error while writing snapshot. Ignoring .. %s\n", ex.toString());
+            }
+        }
+        return snapshot;
+    }
+
     /**
      * Load a single file from a supplied virtual file entry
      *
@@ -229,48 +581,321 @@ public class CombinedPropertyFileManager {
      * @return Properties file instance with the specified file loaded, or empty instance if any errors
      */
     public Properties loadSingle(VirtualFileEntry virtualFileEntry,Properties properties){
+        return loadSingle(virtualFileEntry, properties, null);
+    }
+
+    /**
+     * Load a single file from a supplied virtual file entry, taking the Jar file from a pool of open Jar files. A
+     * load taking longer than 1 ms is recorded as a PropertyLoadEvent while a flight recording is running.
+     *
+     * @param virtualFileEntry
+     * @param properties Properties instance, if null a new properties instance is created and returned
+     * @param jarFilePool Pool of open Jar files and nested archives, or null to open and close the Jar file for this
+     *                    entry alone
+     * @return Properties file instance with the specified file loaded, or empty instance if any errors
+     * @since 0.7
+     */
+    public Properties loadSingle(VirtualFileEntry virtualFileEntry,Properties properties,JarFilePool jarFilePool){
 
         if (properties == null) {
             properties = new Properties();
         }
 
+        PropertyLoadEvent event = new PropertyLoadEvent();
+        long bytes = -1;
+        event.begin();
         try {
             if (virtualFileEntry.getFileType() == VirtualFileEntry.TYPE_JAR) {
-                JarFile jarFile = new JarFile(virtualFileEntry.getAbsoluteFilePath());
-                JarEntry jarEntry = jarFile.getJarEntry(virtualFileEntry.getRelativeFilePath());
-                InputStream jarEntryInputStream = jarFile.getInputStream(jarEntry);
-                if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadSingle About to load properties file from JAR %s:%s\n", virtualFileEntry.getAbsoluteFilePath() , virtualFileEntry.getRelativeFilePath());
-                if (virtualFileEntry.getRelativeFilePath().endsWith(".xml")) {
-                    properties.loadFromXML(jarEntryInputStream);
+                JarFile jarFile;
+                if (jarFilePool == null) {
+                    jarFile = new JarFile(virtualFileEntry.getAbsoluteFilePath());
+                    ScanMetrics.getShared().jarOpened();
                 }
                 else {
-                    properties.load(jarEntryInputStream);
+                    jarFile = jarFilePool.acquire(virtualFileEntry.getAbsoluteFilePath());
+                }
+                try {
+                    JarEntry jarEntry = jarFile.getJarEntry(virtualFileEntry.getRelativeFilePath());
+                    if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadSingle About to load properties file from JAR %s:%s\n", virtualFileEntry.getAbsoluteFilePath() , virtualFileEntry.getRelativeFilePath());
+                    bytes = loadStream(jarFile.getInputStream(jarEntry), virtualFileEntry.getRelativeFilePath(), properties);
+                }
+                finally {
+                    if (jarFilePool == null) {
+                        jarFile.close();
+                    }
+                    else {
+                        jarFilePool.release(jarFile);
+                    }
                 }
-                jarEntryInputStream.close();
-                jarFile.close();;
             }
-            else if (virtualFileEntry.getFileType() == virtualFileEntry.TYPE_FILE) {
-                if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadSingle About to load properties file %s\n", virtualFileEntry.getAbsoluteFilePath());
-                if (virtualFileEntry.getAbsoluteFilePath().endsWith(".xml")) {
-                    properties.loadFromXML(new FileInputStream(virtualFileEntry.getAbsoluteFilePath()));
+            else if (virtualFileEntry.getFileType() == VirtualFileEntry.TYPE_NESTED_JAR) {
+                if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadSingle About to load properties file from nested JAR %s\n", virtualFileEntry.getVirtualPath());
+                ZipCentralDirectory nestedArchive;
+                if (jarFilePool == null) {
+                    ZipCentralDirectory outerArchive = ZipCentralDirectory.open(Paths.get(virtualFileEntry.getAbsoluteFilePath()));
+                    try {
+                        nestedArchive = outerArchive.openNested(virtualFileEntry.getNestedArchivePath());
+                    }
+                    finally {
+                        outerArchive.close();
+                    }
                 }
                 else {
-                    properties.load(new FileInputStream(virtualFileEntry.getAbsoluteFilePath()));
+                    nestedArchive = jarFilePool.getNestedArchive(virtualFileEntry.getAbsoluteFilePath(), virtualFileEntry.getNestedArchivePath());
+                }
+                ZipCentralDirectory.Entry zipEntry = nestedArchive.getEntry(virtualFileEntry.getRelativeFilePath());
+                if (zipEntry == null) {
+                    throw new IOException(String.format("Nested JAR entry %s not found", virtualFileEntry.getVirtualPath()));
                 }
+                bytes = loadStream(nestedArchive.getInputStream(zipEntry), virtualFileEntry.getRelativeFilePath(), properties);
+            }
+            else if (virtualFileEntry.getFileType() == virtualFileEntry.TYPE_FILE) {
+                if (consoleTracing) System.out.format("CombinedPropertyFileManager:loadSingle About to load properties file %s\n", virtualFileEntry.getAbsoluteFilePath());
+                bytes = loadStream(new FileInputStream(virtualFileEntry.getAbsoluteFilePath()), virtualFileEntry.getAbsoluteFilePath(), properties);
             }
         }
         catch (Exception ex) {
             if (consoleTracing) {
-                System.out.format("CombinedPropertyFileManager:loadSingle. Error while loading properties files. Ignoring .. %s\n" + ex.toString());
+                System.out.format("CombinedPropertyFileManager:loadSingle. Error while loading properties files. Ignoring .. %s\n", ex.toString());
                 ex.printStackTrace(System.out);
             }
 
         }
+        finally {
+            commit(event, virtualFileEntry, properties, bytes);
+        }
 
         return properties;
 
     }
 
+    /**
+     * Load properties from a stream, as XML if the name ends with '.xml', and close the stream. The time taken and
+     * the bytes read are recorded in ScanMetrics.
+     *
+     * @param inputStream Stream holding the property file
+     * @param name Name of the property file
+     * @param properties Properties instance to load into
+     * @return Number of bytes parsed
+     * @throws IOException if the stream cannot be read or parsed
+     */
+    static long loadStream(InputStream inputStream, String name, Properties properties) throws IOException {
+        CountingInputStream countingStream = new CountingInputStream(inputStream);
+        long startNanos = System.nanoTime();
+        try {
+            if (name.endsWith(".xml")) {
+                properties.loadFromXML(countingStream);
+            }
+            else {
+                properties.load(countingStream);
+            }
+        }
+        finally {
+            inputStream.close();
+            ScanMetrics metrics = ScanMetrics.getShared();
+            metrics.addTime(ScanMetrics.Phase.LOAD, startNanos);
+            metrics.bytesParsed(countingStream.count);
+        }
+        return countingStream.count;
+    }
+
+    /**
+     * Fill in the figures of a property file load and commit its event, if it is to be recorded
+     *
+     * @param event Event begun at the start of the load
+     * @param virtualFileEntry The property file
+     * @param properties Properties instance loaded into
+     * @param bytes Number of bytes parsed, or -1 if the load failed before parsing
+     */
+    private static void commit(PropertyLoadEvent event, VirtualFileEntry virtualFileEntry, Properties properties, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = virtualFileEntry.getVirtualPath();
+            event.entryCount = properties.size();
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Stream counting the bytes read through it
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Get the maximum number of Jar files held open at the same time while loading
+     *
+     * @return Bound on open Jar files
+     * @since 0.7
+     */
+    public int getMaxOpenJarFiles() {
+        return maxOpenJarFiles;
+    }
+
+    /**
+     * Set the maximum number of Jar files held open at the same time while loading
+     *
+     * @param maxOpenJarFiles Bound on open Jar files, at least 1
+     * @since 0.7
+     */
+    public void setMaxOpenJarFiles(int maxOpenJarFiles) {
+        if (maxOpenJarFiles < 1) {
+            throw new IllegalArgumentException("maxOpenJarFiles must be at least 1");
+        }
+        this.maxOpenJarFiles = maxOpenJarFiles;
+    }
+
+    /**
+     * Indicate whether property files are found and loaded in a single traversal
+     *
+     * @return true if Jar entries are parsed while their Jar file is open for the scan
+     * @since 0.7
+     */
+    public boolean isSinglePass() {
+        return singlePass;
+    }
+
+    /**
+     * Set whether property files are found and loaded in a single traversal. In single-pass mode each Jar file is
+     * opened once, and matching entries are parsed while it is open for the scan, instead of being reopened to load
+     * them after the search. The combined properties are the same in both modes. Defaults to false.
+     *
+     * @param singlePass true to parse Jar entries while their Jar file is open for the scan
+     * @since 0.7
+     */
+    public void setSinglePass(boolean singlePass) {
+        this.singlePass = singlePass;
+    }
+
+    /**
+     * Get the number of threads that parse property files while loading
+     *
+     * @return Number of parsing threads
+     * @since 0.7
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set the number of threads that parse property files while loading. Above 1, files are parsed concurrently
+     * into separate Properties instances that are merged in discovery order, so the combined properties are the
+     * same as with a serial load. Defaults to 1, which loads each file in turn.
+     *
+     * @param parallelism Number of parsing threads, at least 1
+     * @since 0.7
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Get how many levels of archives nested in Jar files are searched
+     *
+     * @return Depth of nested archives searched, 0 if nested archives are not searched
+     * @since 0.7
+     */
+    public int getNestedArchiveDepth() {
+        return nestedArchiveDepth;
+    }
+
+    /**
+     * Set how many levels of archives nested in Jar files are searched, for example 1 to reach WEB-INF/lib/*.jar in
+     * war files or BOOT-INF/lib/*.jar in executable Jar files. Nested archives are read in place, without being
+     * extracted. Defaults to 0, see AbstractFileAndJarTraverser.setNestedArchiveDepth().
+     *
+     * @param nestedArchiveDepth Depth of nested archives to search, 0 to search none
+     * @since 0.7
+     */
+    public void setNestedArchiveDepth(int nestedArchiveDepth) {
+        this.nestedArchiveDepth = nestedArchiveDepth;
+    }
+
+    /**
+     * Indicate whether property files qualified by package are only looked for at the package directory from the
+     * root of each Jar file
+     *
+     * @return true if the Jar entries of a package are found by a prefix lookup
+     * @since 0.7
+     */
+    public boolean isPackageRootsOnly() {
+        return packageRootsOnly;
+    }
+
+    /**
+     * <p>Set whether property files qualified by package are only looked for at the package directory from the root
+     * of each Jar file, where a class loader finds them. The Jar entries under the package directory are then found
+     * by a prefix lookup in the Jar entry index, or in JarEntryIndex.getLookupIndex() if no index is set, instead of
+     * testing the package pattern against every entry name. Once a Jar file has been read, a lookup in it costs
+     * about the same however many entries it holds.</p>
+     *
+     * <p>This is not the default because the package pattern also matches the package directory deeper in a Jar
+     * file, for example under WEB-INF/classes/ in a war file, and in nested archives; those entries are not found
+     * when package roots only are searched. The regular files searched are the same. Single-pass loading does not
+     * apply to these loads, and snapshots still use the package pattern. Defaults to false.</p>
+     *
+     * @param packageRootsOnly true to look up the Jar entries of a package by prefix
+     * @since 0.7
+     */
+    public void setPackageRootsOnly(boolean packageRootsOnly) {
+        this.packageRootsOnly = packageRootsOnly;
+    }
+
+    /**
+     * Get the file holding the snapshot used by loadSnapshotFromPaths and loadSnapshotFromPackageAndPaths
+     *
+     * @return The snapshot file, or null if snapshots are only built in memory
+     * @since 0.7
+     */
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Set the file holding the snapshot used by loadSnapshotFromPaths and loadSnapshotFromPackageAndPaths
+     *
+     * @param snapshotFile The snapshot file, or null to only build snapshots in memory
+     * @since 0.7
+     */
+    public void setSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
     /**
      * Merge two sets of properties, returnning the original set (now merged)
      * 
@@ -279,12 +904,14 @@ public class CombinedPropertyFileManager {
      * @return Merged set
      */
     public static Properties mergeProperties(Properties original, Properties fresh) {
+        long startNanos = System.nanoTime();
         Enumeration freshPropsEnum = fresh.keys();
         while (freshPropsEnum.hasMoreElements()) {
             String key = (String) freshPropsEnum.nextElement();
             String value = fresh.getProperty(key);
             original.setProperty(key,value);
         }
+        ScanMetrics.getShared().addTime(ScanMetrics.Phase.MERGE, startNanos);
         return original;
     }
 }
\ No newline at end of file
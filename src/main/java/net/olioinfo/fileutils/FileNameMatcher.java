@@ -0,0 +1,383 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.util.regex.Pattern;
+
+
+/**
+ * <p>A file name pattern compiled once and reused for every name tested.</p>
+ *
+ * <p>Regular expressions and globs that amount to a literal name, a literal prefix or a literal suffix are answered
+ * with plain string comparisons. Everything else falls back to a precompiled java.util.regex.Pattern. Either way
+ * the result is the same as a full match (Matcher.matches()) of the original pattern.</p>
+ *
+ * <p>For example the regular expression ".*\\.properties$" and the glob "**.properties" are both answered with
+ * String.endsWith(".properties"), with the extra check that the part matched by the wildcard contains no line
+ * terminator (for the regular expression) or '/' (for a single '*' in a glob).</p>
+ *
+ * <p>Instances are immutable and may be shared between threads. Several matchers can be combined into a
+ * MultiPatternMatcher.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public final class FileNameMatcher {
+
+    /**
+     * How a matcher tests names
+     */
+    public enum Kind {
+        /** The whole name must equal a literal */
+        LITERAL,
+        /** The name must start with a literal */
+        PREFIX,
+        /** The name must end with a literal */
+        SUFFIX,
+        /** The name is tested with a regular expression */
+        REGEX
+    }
+
+    /**
+     * Characters not matched by '.' in a regular expression compiled without flags
+     */
+    static final String LINE_TERMINATORS = "\n\r\u0085\u2028\u2029";
+
+    /**
+     * Characters not matched by a single '*' in a glob
+     */
+    static final String GLOB_SEPARATORS = "/";
+
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private static final String GLOB_METACHARACTERS = "\\*?[]{}";
+
+    private final String pattern;
+
+    private final Kind kind;
+
+    private final String literal;
+
+    private final String excludedWildcardCharacters;
+
+    private final Pattern compiledPattern;
+
+    private FileNameMatcher(String pattern, Kind kind, String literal, String excludedWildcardCharacters, Pattern compiledPattern) {
+        this.pattern = pattern;
+        this.kind = kind;
+        this.literal = literal;
+        this.excludedWildcardCharacters = excludedWildcardCharacters;
+        this.compiledPattern = compiledPattern;
+    }
+
+    /**
+     * Compile a regular expression that must match the whole name
+     *
+     * @param regex Regular expression in java.util.regex syntax
+     * @return Compiled matcher
+     * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+     */
+    public static FileNameMatcher regex(String regex) {
+        Pattern compiledPattern = Pattern.compile(regex);
+
+        int start = 0;
+        int end = regex.length();
+        if (regex.startsWith("^")) {
+            start++;
+        }
+        if (end > start && regex.charAt(end - 1) == '$' && !isEscaped(regex, end - 1)) {
+            end--;
+        }
+        boolean leadingWildcard = regex.startsWith(".*", start);
+        if (leadingWildcard) {
+            start += 2;
+        }
+        boolean trailingWildcard = end - start >= 2 && regex.startsWith(".*", end - 2) && !isEscaped(regex, end - 2);
+        if (trailingWildcard) {
+            end -= 2;
+        }
+
+        String literal = unescapeRegexLiteral(regex, start, end);
+        if (literal == null || (leadingWildcard && trailingWildcard)) {
+            return new FileNameMatcher(regex, Kind.REGEX, null, null, compiledPattern);
+        }
+        return new FileNameMatcher(regex, kindOf(leadingWildcard, trailingWildcard), literal, LINE_TERMINATORS, compiledPattern);
+    }
+
+    /**
+     * <p>Compile a glob that must match the whole name.</p>
+     *
+     * <p>The syntax is that of FileSystem.getPathMatcher("glob:..."): '*' matches any characters except '/',
+     * '**' matches any characters, '?' matches one character other than '/', and '[...]' and '{a,b}' match
+     * character classes and alternatives.</p>
+     *
+     * @param glob Glob pattern
+     * @return Compiled matcher
+     * @throws java.util.regex.PatternSyntaxException if the glob is invalid
+     */
+    public static FileNameMatcher glob(String glob) {
+        int start = 0;
+        int end = glob.length();
+        String excludedWildcardCharacters = GLOB_SEPARATORS;
+        boolean leadingWildcard = false;
+        boolean trailingWildcard = false;
+        if (glob.startsWith("**")) {
+            leadingWildcard = true;
+            excludedWildcardCharacters = "";
+            start = 2;
+        }
+        else if (glob.startsWith("*")) {
+            leadingWildcard = true;
+            start = 1;
+        }
+        if (!leadingWildcard && glob.endsWith("**") && end >= 2 && !isEscaped(glob, end - 2)) {
+            trailingWildcard = true;
+            excludedWildcardCharacters = "";
+            end -= 2;
+        }
+        else if (!leadingWildcard && glob.endsWith("*") && end >= 1 && !isEscaped(glob, end - 1)) {
+            trailingWildcard = true;
+            end -= 1;
+        }
+
+        String literal = unescape(glob, start, end, GLOB_METACHARACTERS);
+        if (literal == null) {
+            return new FileNameMatcher(glob, Kind.REGEX, null, null, Pattern.compile(globToRegex(glob)));
+        }
+        return new FileNameMatcher(glob, kindOf(leadingWildcard, trailingWildcard), literal, excludedWildcardCharacters, null);
+    }
+
+    /**
+     * Get the pattern this matcher was compiled from
+     *
+     * @return Original regular expression or glob
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Get the way this matcher tests names
+     *
+     * @return Kind of matcher
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Get the literal compared against names by LITERAL, PREFIX and SUFFIX matchers
+     *
+     * @return Literal, or null for a REGEX matcher
+     */
+    public String getLiteral() {
+        return literal;
+    }
+
+    /**
+     * Get the characters that the wildcard part of a PREFIX or SUFFIX matcher may not match
+     *
+     * @return Excluded characters, or null for a REGEX matcher
+     */
+    String getExcludedWildcardCharacters() {
+        return excludedWildcardCharacters;
+    }
+
+    /**
+     * Test whether a name is matched in full by this pattern
+     *
+     * @param name Name to test
+     * @return true if the name matches
+     */
+    public boolean matches(CharSequence name) {
+        switch (kind) {
+            case LITERAL:
+                return literal.contentEquals(name);
+            case PREFIX:
+                return name.length() >= literal.length()
+                        && regionEquals(name, 0, literal)
+                        && !containsAny(name, literal.length(), name.length(), excludedWildcardCharacters);
+            case SUFFIX:
+                return name.length() >= literal.length()
+                        && regionEquals(name, name.length() - literal.length(), literal)
+                        && !containsAny(name, 0, name.length() - literal.length(), excludedWildcardCharacters);
+            default:
+                return compiledPattern.matcher(name).matches();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s]", kind, pattern);
+    }
+
+    private static Kind kindOf(boolean leadingWildcard, boolean trailingWildcard) {
+        if (leadingWildcard) {
+            return Kind.SUFFIX;
+        }
+        if (trailingWildcard) {
+            return Kind.PREFIX;
+        }
+        return Kind.LITERAL;
+    }
+
+    static boolean regionEquals(CharSequence name, int offset, String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (name.charAt(offset + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean containsAny(CharSequence name, int from, int to, String characters) {
+        if (characters.isEmpty()) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (characters.indexOf(name.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isEscaped(String pattern, int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && pattern.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+
+    /**
+     * Turn a section of a regular expression into the literal it matches
+     *
+     * @return The literal, or null if the section contains anything other than literal characters
+     */
+    private static String unescapeRegexLiteral(String regex, int start, int end) {
+        int quoteStart = regex.indexOf("\\Q", start);
+        if (quoteStart == start && regex.startsWith("\\E", end - 2) && regex.indexOf("\\E", start + 2) == end - 2) {
+            return regex.substring(start + 2, end - 2);
+        }
+        return unescape(regex, start, end, REGEX_METACHARACTERS);
+    }
+
+    /**
+     * Turn a section of a pattern into the literal it matches, given the metacharacters of the pattern syntax
+     *
+     * @return The literal, or null if the section contains an unescaped metacharacter or an escape other than a
+     * backslash before a punctuation character
+     */
+    private static String unescape(String pattern, int start, int end, String metacharacters) {
+        StringBuilder literal = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= end) {
+                    return null;
+                }
+                char escaped = pattern.charAt(i + 1);
+                if (Character.isLetterOrDigit(escaped) || escaped > 127) {
+                    return null;
+                }
+                literal.append(escaped);
+                i++;
+            }
+            else if (metacharacters.indexOf(c) >= 0) {
+                return null;
+            }
+            else {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+
+    /**
+     * Translate a glob into an equivalent regular expression
+     *
+     * @param glob Glob pattern
+     * @return Regular expression
+     */
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        boolean inGroup = false;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '\\':
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                    else {
+                        regex.append("\\\\");
+                    }
+                    break;
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        regex.append("(?s:.*)");
+                        i++;
+                    }
+                    else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    int close = glob.indexOf(']', i + 2);
+                    if (close < 0) {
+                        regex.append("\\[");
+                        break;
+                    }
+                    String characterClass = glob.substring(i + 1, close);
+                    if (characterClass.startsWith("!")) {
+                        characterClass = "^" + characterClass.substring(1);
+                    }
+                    regex.append('[').append(characterClass.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                    i = close;
+                    break;
+                case '{':
+                    regex.append("(?:");
+                    inGroup = true;
+                    break;
+                case '}':
+                    if (inGroup) {
+                        regex.append(')');
+                        inGroup = false;
+                    }
+                    else {
+                        regex.append("\\}");
+                    }
+                    break;
+                case ',':
+                    regex.append(inGroup ? "|" : ",");
+                    break;
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        regex.append(c);
+                    }
+                    else {
+                        regex.append('\\').append(c);
+                    }
+            }
+        }
+        return regex.toString();
+    }
+
+}
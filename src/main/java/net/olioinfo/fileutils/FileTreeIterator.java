@@ -0,0 +1,234 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * <p>A lazy, depth-first walk of the files in a directory tree.</p>
+ *
+ * <p>Files are returned in the same order in which AbstractFileTraverser.traverse() visits them. A directory is only
+ * opened when the walk reaches it, and at most one directory stream per level of the tree is held open. Directories
+ * themselves are walked but not returned.</p>
+ *
+ * <p>Errors while listing a directory are reported as UncheckedIOException. The iterator closes itself when the
+ * walk is exhausted or fails; call close() to abandon it early.</p>
+ *
+ * <p>When created with a traverser, the walk only enters the directories accepted by its descendIntoDirectory(), so
+ * pruned directories are never opened, and symbolic links are handled according to its link policy. Without a
+ * traverser, links are handled as under AbstractFileTraverser.LinkPolicy.FOLLOW_ONCE.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public class FileTreeIterator implements Iterator<Path>, Closeable {
+
+    private final ArrayDeque<DirectoryLevel> levels = new ArrayDeque<DirectoryLevel>();
+
+    private Path pendingRoot;
+
+    private final AbstractFileTraverser traverser;
+
+    private final LinkTracker linkTracker;
+
+    private Path nextPath = null;
+
+    private BasicFileAttributes nextAttributes = null;
+
+    private BasicFileAttributes currentAttributes = null;
+
+    private boolean closed = false;
+
+    /**
+     * <p>Create an instance of FileTreeIterator.</p>
+     *
+     * @param root Starting point of the walk. A root that does not exist produces no files
+     */
+    public FileTreeIterator(Path root) {
+        this(root, null);
+    }
+
+    /**
+     * <p>Create an instance of FileTreeIterator that prunes the walk like a traverser.</p>
+     *
+     * @param root Starting point of the walk. A root that does not exist produces no files
+     * @param traverser Traverser whose descendIntoDirectory() decides which directories are entered, or null to
+     * enter every directory
+     * @since 0.7
+     */
+    public FileTreeIterator(Path root, AbstractFileTraverser traverser) {
+        this.pendingRoot = root.toAbsolutePath();
+        this.traverser = traverser;
+        this.linkTracker = traverser == null
+            ? new LinkTracker(AbstractFileTraverser.LinkPolicy.FOLLOW_ONCE, Collections.<Path>emptySet())
+            : new LinkTracker(traverser.getLinkPolicy(), traverser.getPrunedPaths());
+    }
+
+    /**
+     * An open directory and the position of the walk within it
+     */
+    private static class DirectoryLevel {
+
+        private final DirectoryStream<Path> stream;
+
+        private final Iterator<Path> children;
+
+        private final LinkTracker.Ancestor directory;
+
+        DirectoryLevel(DirectoryStream<Path> stream, LinkTracker.Ancestor directory) {
+            this.stream = stream;
+            this.children = stream.iterator();
+            this.directory = directory;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextPath == null && !closed) {
+            advance();
+        }
+        return nextPath != null;
+    }
+
+    @Override
+    public Path next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Path path = nextPath;
+        currentAttributes = nextAttributes;
+        nextPath = null;
+        nextAttributes = null;
+        return path;
+    }
+
+    /**
+     * Get the attributes of the file most recently returned by next(), as read by the walk
+     *
+     * @return Attributes of the current file
+     */
+    public BasicFileAttributes getAttributes() {
+        return currentAttributes;
+    }
+
+    /**
+     * Release any directory streams still held open. The iterator produces no further files.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        while (!levels.isEmpty()) {
+            closeQuietly(levels.pop().stream);
+        }
+    }
+
+    /**
+     * Move the walk forward to the next file, opening and closing directories as needed
+     */
+    private void advance() {
+        try {
+            if (pendingRoot != null) {
+                Path root = pendingRoot;
+                pendingRoot = null;
+                BasicFileAttributes attributes = AbstractFileTraverser.readAttributes(root);
+                if (attributes == null) {
+                    close();
+                    return;
+                }
+                if (!attributes.isDirectory()) {
+                    setNext(root, attributes);
+                    return;
+                }
+                LinkTracker.Ancestor directory = descendInto(root, attributes, 0, null);
+                if (directory == null) {
+                    close();
+                    return;
+                }
+                ScanMetrics.getShared().directoryListed();
+                levels.push(new DirectoryLevel(Files.newDirectoryStream(root), directory));
+            }
+            while (!levels.isEmpty()) {
+                DirectoryLevel level = levels.peek();
+                if (!level.children.hasNext()) {
+                    closeQuietly(levels.pop().stream);
+                    continue;
+                }
+                Path child = level.children.next();
+                BasicFileAttributes attributes = linkTracker.readAttributes(child);
+                if (attributes == null) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    LinkTracker.Ancestor directory = descendInto(child, attributes, levels.size(), level.directory);
+                    if (directory != null) {
+                        ScanMetrics.getShared().directoryListed();
+                        levels.push(new DirectoryLevel(Files.newDirectoryStream(child), directory));
+                    }
+                    continue;
+                }
+                if (traverser != null && !linkTracker.visitFile(traverser, child, attributes)) {
+                    continue;
+                }
+                setNext(child, attributes);
+                return;
+            }
+            close();
+        }
+        catch (IOException ex) {
+            close();
+            throw new UncheckedIOException(ex);
+        }
+        catch (DirectoryIteratorException ex) {
+            close();
+            throw new UncheckedIOException(ex.getCause());
+        }
+    }
+
+    private LinkTracker.Ancestor descendInto(Path directory, BasicFileAttributes attributes, int depth, LinkTracker.Ancestor ancestors) {
+        if (traverser != null && !traverser.descendIntoDirectory(directory, attributes, depth)) {
+            return null;
+        }
+        return linkTracker.enter(directory, attributes, ancestors);
+    }
+
+    private void setNext(Path path, BasicFileAttributes attributes) {
+        this.nextPath = path;
+        this.nextAttributes = attributes;
+        ScanMetrics.getShared().fileExamined();
+    }
+
+    private static void closeQuietly(DirectoryStream<Path> stream) {
+        try {
+            stream.close();
+        }
+        catch (IOException ex) {
+            // Nothing useful can be done when a directory stream fails to close
+        }
+    }
+
+}
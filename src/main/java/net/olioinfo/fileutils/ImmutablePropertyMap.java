@@ -0,0 +1,417 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+
+/**
+ * <p>An immutable map of property keys to values, built once and optimized for reads from many threads.</p>
+ *
+ * <p>Entries are kept in an open-addressing table with linear probing, sized to be at most half full, with the
+ * hash of each key stored next to it so that most probes compare an int rather than a String. Equal values, and
+ * values equal to a key, share a single String instance. Reads take no locks, unlike java.util.Properties, whose
+ * methods are synchronized on the underlying Hashtable.</p>
+ *
+ * <p>asProperties() gives a read-only Properties view for code that needs a Properties instance. Its lookup methods
+ * read from this map without locking.</p>
+ *
+ * <p>Instances are immutable and safe for use by several threads.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public final class ImmutablePropertyMap extends AbstractMap<String, String> {
+
+    private static final ImmutablePropertyMap EMPTY = new ImmutablePropertyMap(Collections.<String, String>emptyMap());
+
+    private final int[] hashes;
+
+    private final String[] keys;
+
+    private final String[] values;
+
+    private final int mask;
+
+    private final int size;
+
+    private volatile Properties properties = null;
+
+    private ImmutablePropertyMap(Map<String, String> source) {
+        int capacity = 2;
+        while (capacity < source.size() * 2) {
+            capacity <<= 1;
+        }
+        hashes = new int[capacity];
+        keys = new String[capacity];
+        values = new String[capacity];
+        mask = capacity - 1;
+
+        HashMap<String, String> canonical = new HashMap<String, String>();
+        for (Map.Entry<String, String> entry : source.entrySet()) {
+            String key = deduplicate(canonical, entry.getKey());
+            String value = deduplicate(canonical, entry.getValue());
+            int hash = hash(key);
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            keys[slot] = key;
+            values[slot] = value;
+        }
+        size = source.size();
+    }
+
+    /**
+     * Get the empty map
+     *
+     * @return A map with no entries
+     */
+    public static ImmutablePropertyMap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Copy the string properties of a Properties instance, including its defaults
+     *
+     * @param properties Properties to copy
+     * @return The immutable map
+     */
+    public static ImmutablePropertyMap of(Properties properties) {
+        HashMap<String, String> source = new HashMap<String, String>();
+        for (String key : properties.stringPropertyNames()) {
+            source.put(key, properties.getProperty(key));
+        }
+        return new ImmutablePropertyMap(source);
+    }
+
+    /**
+     * Copy a map of strings
+     *
+     * @param map Map to copy, without null keys or values
+     * @return The immutable map
+     */
+    public static ImmutablePropertyMap copyOf(Map<String, String> map) {
+        if (map instanceof ImmutablePropertyMap) {
+            return (ImmutablePropertyMap) map;
+        }
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                throw new NullPointerException("ImmutablePropertyMap does not hold null keys or values");
+            }
+        }
+        return new ImmutablePropertyMap(map);
+    }
+
+    /**
+     * Look up a property
+     *
+     * @param key Key of the property
+     * @return The value, or null if there is no such property
+     */
+    public String getProperty(String key) {
+        int slot = find(key);
+        return slot < 0 ? null : values[slot];
+    }
+
+    /**
+     * Look up a property
+     *
+     * @param key Key of the property
+     * @param defaultValue Value to return if there is no such property
+     * @return The value, or defaultValue if there is no such property
+     */
+    public String getProperty(String key, String defaultValue) {
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    @Override
+    public String get(Object key) {
+        return key instanceof String ? getProperty((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && find((String) key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new Iterator<Map.Entry<String, String>>() {
+
+                    private int slot = advance(0);
+
+                    private int advance(int from) {
+                        while (from < keys.length && keys[from] == null) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < keys.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, String> next() {
+                        if (slot >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<String, String> entry = new SimpleImmutableEntry<String, String>(keys[slot], values[slot]);
+                        slot = advance(slot + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Get a read-only Properties view of this map. Lookups through the view take no locks; methods that would
+     * modify it throw UnsupportedOperationException.
+     *
+     * @return Properties holding the same entries
+     */
+    public Properties asProperties() {
+        Properties view = properties;
+        if (view == null) {
+            view = new FrozenProperties(this);
+            properties = view;
+        }
+        return view;
+    }
+
+    /**
+     * Find the slot of a key
+     *
+     * @param key Key to find
+     * @return Slot of the key, or -1 if it is not present
+     */
+    private int find(String key) {
+        int hash = hash(key);
+        int slot = hash & mask;
+        String candidate;
+        while ((candidate = keys[slot]) != null) {
+            if (hashes[slot] == hash && (candidate == key || candidate.equals(key))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int hash(String key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static String deduplicate(HashMap<String, String> canonical, String value) {
+        String existing = canonical.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * Read-only Properties whose lookups are answered by an ImmutablePropertyMap. The entries are also copied into
+     * the Properties itself, so that inherited methods such as store() and list() see them.
+     */
+    private static class FrozenProperties extends Properties {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ImmutablePropertyMap map;
+
+        FrozenProperties(ImmutablePropertyMap map) {
+            this.map = map;
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                super.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public String getProperty(String key) {
+            return map.getProperty(key);
+        }
+
+        @Override
+        public String getProperty(String key, String defaultValue) {
+            return map.getProperty(key, defaultValue);
+        }
+
+        @Override
+        public Object get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public Object getOrDefault(Object key, Object defaultValue) {
+            Object value = map.get(key);
+            return value == null ? defaultValue : value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public Set<Object> keySet() {
+            return Collections.unmodifiableSet(super.keySet());
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet() {
+            return Collections.unmodifiableSet(super.entrySet());
+        }
+
+        @Override
+        public Collection<Object> values() {
+            return Collections.unmodifiableCollection(super.values());
+        }
+
+        @Override
+        public Object setProperty(String key, String value) {
+            throw readOnly();
+        }
+
+        @Override
+        public Object put(Object key, Object value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void putAll(Map<?, ?> t) {
+            throw readOnly();
+        }
+
+        @Override
+        public Object putIfAbsent(Object key, Object value) {
+            throw readOnly();
+        }
+
+        @Override
+        public Object remove(Object key) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean replace(Object key, Object oldValue, Object newValue) {
+            throw readOnly();
+        }
+
+        @Override
+        public Object replace(Object key, Object value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void replaceAll(BiFunction<? super Object, ? super Object, ?> function) {
+            throw readOnly();
+        }
+
+        @Override
+        public Object computeIfAbsent(Object key, Function<? super Object, ?> mappingFunction) {
+            throw readOnly();
+        }
+
+        @Override
+        public Object computeIfPresent(Object key, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+            throw readOnly();
+        }
+
+        @Override
+        public Object compute(Object key, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+            throw readOnly();
+        }
+
+        @Override
+        public Object merge(Object key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+            throw readOnly();
+        }
+
+        @Override
+        public void clear() {
+            throw readOnly();
+        }
+
+        @Override
+        public void load(Reader reader) {
+            throw readOnly();
+        }
+
+        @Override
+        public void load(InputStream inStream) {
+            throw readOnly();
+        }
+
+        @Override
+        public void loadFromXML(InputStream in) {
+            throw readOnly();
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("These properties are read-only");
+        }
+    }
+}
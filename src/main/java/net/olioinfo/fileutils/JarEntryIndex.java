@@ -0,0 +1,475 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+
+/**
+ * <p>A persistent index of the entry names of Jar files, keyed by the absolute path of each Jar file and validated
+ * by its size and modification time.</p>
+ *
+ * <p>A Jar file whose size and modification time are unchanged since it was last indexed is answered from the index
+ * without being opened. Changed or unknown Jar files are read and their entries recorded. The index is kept in
+ * memory and written to its file by save().</p>
+ *
+ * <p>A single index shared by all traversers in the JVM is enabled by naming its file when the JVM is started:</p>
+ *
+ * <ul><li>-Dnet.olioinfo.fileutils.jarIndexFile=/path/to/index</li></ul>
+ *
+ * <p>The shared index is used by default by every AbstractFileAndJarTraverser, and therefore by
+ * MatchingFileAndJarTraverser and CombinedPropertyFileManager, and is saved when the JVM exits.</p>
+ *
+ * <p>An index can also be kept in memory only. getLookupIndex() returns such an index, lasting as long as the JVM,
+ * when the shared index is not enabled, so that looking up the entries of a package in a Jar file does not depend
+ * on the JVM option.</p>
+ *
+ * <p>Instances are safe for use by several threads.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public class JarEntryIndex {
+
+    /**
+     * System property naming the file of the shared index
+     */
+    public static final String INDEX_FILE_PROPERTY = "net.olioinfo.fileutils.jarIndexFile";
+
+    private static final int MAGIC = 0x4a454958;
+
+    private static final int VERSION = 1;
+
+    private static JarEntryIndex shared = null;
+
+    private static boolean sharedInitialized = false;
+
+    private static JarEntryIndex lookupIndex = null;
+
+    private final Path indexFile;
+
+    private final ConcurrentHashMap<String, Record> records = new ConcurrentHashMap<String, Record>();
+
+    private volatile boolean modified = false;
+
+    protected boolean consoleTracing = false;
+
+    /**
+     * Entry names of one Jar file together with the size and modification time they were read at
+     */
+    private static class Record {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final List<String> entryNames;
+
+        /**
+         * Positions of the entry names in name order, built on the first prefix lookup
+         */
+        private volatile int[] sortedPositions = null;
+
+        Record(long size, long lastModified, List<String> entryNames) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.entryNames = entryNames;
+        }
+
+        /**
+         * Get the entry names starting with a prefix, by a binary search over the names in name order
+         *
+         * @param prefix Prefix of the entry names
+         * @return Entry names starting with the prefix, in the order they appear in the Jar file
+         */
+        List<String> getEntryNamesWithPrefix(String prefix) {
+            int[] positions = sortedPositions;
+            if (positions == null) {
+                Integer[] boxedPositions = new Integer[entryNames.size()];
+                for (int i = 0; i < boxedPositions.length; i++) {
+                    boxedPositions[i] = i;
+                }
+                Arrays.sort(boxedPositions, (first, second) -> entryNames.get(first).compareTo(entryNames.get(second)));
+                positions = new int[boxedPositions.length];
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = boxedPositions[i];
+                }
+                sortedPositions = positions;
+            }
+
+            int low = 0;
+            int high = positions.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (entryNames.get(positions[middle]).compareTo(prefix) < 0) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            int end = low;
+            while (end < positions.length && entryNames.get(positions[end]).startsWith(prefix)) {
+                end++;
+            }
+
+            int[] matchingPositions = Arrays.copyOfRange(positions, low, end);
+            Arrays.sort(matchingPositions);
+            ArrayList<String> matchingNames = new ArrayList<String>(matchingPositions.length);
+            for (int position : matchingPositions) {
+                matchingNames.add(entryNames.get(position));
+            }
+            return matchingNames;
+        }
+    }
+
+    /**
+     * <p>Create an instance of JarEntryIndex, loading the index file if it exists.</p>
+     *
+     * <p>An index file that cannot be read, or was written by an incompatible version, is ignored and will be
+     * replaced by the next save().</p>
+     *
+     * @param indexFile File holding the index, or null to keep the index in memory only
+     */
+    public JarEntryIndex(Path indexFile) {
+        if (System.getProperty("net.olioinfo.fileutils.consoleTracing") != null) {
+            consoleTracing = System.getProperty("net.olioinfo.fileutils.consoleTracing").equalsIgnoreCase("true");
+        }
+        this.indexFile = indexFile;
+        try {
+            load();
+        }
+        catch (IOException ex) {
+            records.clear();
+            if (consoleTracing) {
+                System.out.format("JarEntryIndex: ignoring unreadable index file %s: %s\n", indexFile, ex.toString());
+            }
+        }
+    }
+
+    /**
+     * <p>Create an instance of JarEntryIndex kept in memory only. save() does nothing.</p>
+     *
+     * @since 0.7
+     */
+    public JarEntryIndex() {
+        this(null);
+    }
+
+    /**
+     * Get the index shared by the whole JVM
+     *
+     * @return The shared index, or null if net.olioinfo.fileutils.jarIndexFile is not set
+     */
+    public static synchronized JarEntryIndex getShared() {
+        if (!sharedInitialized) {
+            sharedInitialized = true;
+            String indexFileName = System.getProperty(INDEX_FILE_PROPERTY);
+            if (indexFileName != null && !indexFileName.isEmpty()) {
+                final JarEntryIndex index = new JarEntryIndex(Paths.get(indexFileName));
+                Runtime.getRuntime().addShutdownHook(new Thread(index::saveQuietly, "JarEntryIndex-save"));
+                shared = index;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * <p>Get the index used to look up the entries of Jar files by prefix, such as the entries of a package: the
+     * shared index if it is enabled, and otherwise an index kept in memory for the life of the JVM.</p>
+     *
+     * <p>The first lookup in a Jar file reads all its entry names. Later lookups in the Jar file, while its size and
+     * modification time are unchanged, are a binary search over the names in name order. The in-memory index holds
+     * the entry names of every Jar file looked up in.</p>
+     *
+     * @return The shared index, or the in-memory index if net.olioinfo.fileutils.jarIndexFile is not set
+     * @since 0.7
+     */
+    public static synchronized JarEntryIndex getLookupIndex() {
+        JarEntryIndex sharedIndex = getShared();
+        if (sharedIndex != null) {
+            return sharedIndex;
+        }
+        if (lookupIndex == null) {
+            lookupIndex = new JarEntryIndex();
+        }
+        return lookupIndex;
+    }
+
+    /**
+     * Get the file holding this index
+     *
+     * @return Index file, or null if the index is kept in memory only
+     */
+    public Path getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Get the entry names of a Jar file, from the index if the Jar file is unchanged
+     *
+     * @param jarFile Jar file
+     * @return Entry names in the order they appear in the Jar file
+     * @throws IOException if the Jar file cannot be read
+     */
+    public List<String> getEntryNames(Path jarFile) throws IOException {
+        return getEntryNames(jarFile, Files.readAttributes(jarFile, BasicFileAttributes.class));
+    }
+
+    /**
+     * Get the entry names of a Jar file whose attributes have already been read, from the index if the Jar file
+     * is unchanged
+     *
+     * @param jarFile Jar file
+     * @param attributes Attributes of the Jar file
+     * @return Entry names in the order they appear in the Jar file
+     * @throws IOException if the Jar file cannot be read
+     */
+    public List<String> getEntryNames(Path jarFile, BasicFileAttributes attributes) throws IOException {
+        return getRecord(jarFile, attributes).entryNames;
+    }
+
+    /**
+     * <p>Get the entry names of a Jar file that start with a prefix, such as the directory of a package, from the
+     * index if the Jar file is unchanged.</p>
+     *
+     * <p>The names are found by a binary search over the entry names in name order, so the cost depends on the
+     * number of matching names rather than on the size of the Jar file.</p>
+     *
+     * @param jarFile Jar file
+     * @param attributes Attributes of the Jar file
+     * @param prefix Prefix of the entry names, for example "net/olioinfo/fileutils/"
+     * @return Entry names starting with the prefix, in the order they appear in the Jar file
+     * @throws IOException if the Jar file cannot be read
+     * @since 0.7
+     */
+    public List<String> getEntryNamesWithPrefix(Path jarFile, BasicFileAttributes attributes, String prefix) throws IOException {
+        return getRecord(jarFile, attributes).getEntryNamesWithPrefix(prefix);
+    }
+
+    /**
+     * Get the record of a Jar file, reading the Jar file if it is unknown or has changed
+     *
+     * @param jarFile Jar file
+     * @param attributes Attributes of the Jar file
+     * @return The record
+     * @throws IOException if the Jar file cannot be read
+     */
+    private Record getRecord(Path jarFile, BasicFileAttributes attributes) throws IOException {
+        String key = jarFile.toAbsolutePath().toString();
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        Record record = records.get(key);
+        if (record != null && record.size == size && record.lastModified == lastModified) {
+            return record;
+        }
+
+        if (consoleTracing) System.out.format("JarEntryIndex: indexing %s\n", key);
+        List<String> entryNames = Collections.unmodifiableList(readEntryNames(key));
+        record = new Record(size, lastModified, entryNames);
+        records.put(key, record);
+        modified = true;
+        return record;
+    }
+
+    /**
+     * Forget a Jar file
+     *
+     * @param jarFile Jar file
+     */
+    public void remove(Path jarFile) {
+        if (records.remove(jarFile.toAbsolutePath().toString()) != null) {
+            modified = true;
+        }
+    }
+
+    /**
+     * Get the number of Jar files in the index
+     *
+     * @return Number of Jar files
+     */
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * Write the index to its file if it has changed since it was loaded or last saved. The file is replaced
+     * atomically, so a concurrent reader sees either the old or the new index.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (!modified || indexFile == null) {
+            return;
+        }
+        modified = false;
+        Path directory = indexFile.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporaryFile = Files.createTempFile(directory, indexFile.getFileName().toString(), ".tmp");
+        try {
+            OutputStream outputStream = Files.newOutputStream(temporaryFile);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                ArrayList<Map.Entry<String, Record>> snapshot = new ArrayList<Map.Entry<String, Record>>(records.entrySet());
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Record> entry : snapshot) {
+                    Record record = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(record.size);
+                    out.writeLong(record.lastModified);
+                    out.writeInt(record.entryNames.size());
+                    for (String entryName : record.entryNames) {
+                        out.writeUTF(entryName);
+                    }
+                }
+            }
+            finally {
+                out.close();
+            }
+            Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex) {
+            modified = true;
+            Files.deleteIfExists(temporaryFile);
+            throw ex;
+        }
+    }
+
+    /**
+     * Save the index, ignoring any error
+     */
+    private void saveQuietly() {
+        try {
+            save();
+        }
+        catch (IOException ex) {
+            if (consoleTracing) {
+                System.out.format("JarEntryIndex: unable to save index file %s: %s\n", indexFile, ex.toString());
+            }
+        }
+    }
+
+    /**
+     * Read the index file into memory
+     */
+    private void load() throws IOException {
+        if (indexFile == null) {
+            return;
+        }
+        InputStream inputStream;
+        try {
+            inputStream = Files.newInputStream(indexFile);
+        }
+        catch (NoSuchFileException ex) {
+            return;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a Jar entry index, or written by an incompatible version");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                String[] entryNames = new String[in.readInt()];
+                for (int j = 0; j < entryNames.length; j++) {
+                    entryNames[j] = in.readUTF();
+                }
+                records.put(key, new Record(size, lastModified, Collections.unmodifiableList(Arrays.asList(entryNames))));
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * <p>Read the entry names of a Jar file.</p>
+     *
+     * <p>The names are read from the memory-mapped central directory with ZipCentralDirectory. Archives that it
+     * cannot read are retried with java.util.jar.JarFile.</p>
+     *
+     * @param path Absolute path of the Jar file
+     * @return Entry names in the order they appear in the Jar file
+     * @throws IOException if the Jar file cannot be read
+     */
+    static List<String> readEntryNames(String path) throws IOException {
+        try {
+            ZipCentralDirectory centralDirectory = ZipCentralDirectory.open(Paths.get(path));
+            try {
+                return centralDirectory.getEntryNames();
+            }
+            finally {
+                centralDirectory.close();
+            }
+        }
+        catch (IOException ex) {
+            return readEntryNamesWithJarFile(path);
+        }
+    }
+
+    /**
+     * Read the entry names of a Jar file with java.util.jar.JarFile
+     *
+     * @param path Absolute path of the Jar file
+     * @return Entry names in the order they appear in the Jar file
+     * @throws IOException if the Jar file cannot be read
+     */
+    static List<String> readEntryNamesWithJarFile(String path) throws IOException {
+        ArrayList<String> entryNames = new ArrayList<String>();
+        JarFile jarFile = new JarFile(path);
+        ScanMetrics.getShared().jarOpened();
+        try {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                entryNames.add(entries.nextElement().getName());
+            }
+        }
+        finally {
+            jarFile.close();
+        }
+        return entryNames;
+    }
+
+}
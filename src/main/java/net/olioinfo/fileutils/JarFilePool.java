@@ -0,0 +1,348 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.jar.JarFile;
+
+
+/**
+ * <p>A bounded cache of open JarFile handles, so that a Jar file holding many matching entries is opened and its
+ * central directory parsed only once.</p>
+ *
+ * <p>Callers acquire a handle for a path, read from it and release it. Handles that are not in use stay open for
+ * reuse; when the number of open handles reaches the bound, the least recently used idle handle is closed. If every
+ * open handle is in use, acquire() waits until one is released. close() closes all handles and ends the life of the
+ * pool.</p>
+ *
+ * <pre>
+ * JarFilePool pool = new JarFilePool(16);
+ * try {
+ *     JarFile jarFile = pool.acquire(path);
+ *     try {
+ *         ...
+ *     }
+ *     finally {
+ *         pool.release(jarFile);
+ *     }
+ * }
+ * finally {
+ *     pool.close();
+ * }
+ * </pre>
+ *
+ * <p>Archives nested in Jar files, such as the libraries of a war, are kept as well, so that a nested archive
+ * holding several matching entries is located and inflated only once. As many nested archives as Jar files are
+ * kept, the least recently used being dropped first.</p>
+ *
+ * <p>Instances are safe for use by several threads. A thread should hold at most one handle at a time.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public class JarFilePool implements Closeable {
+
+    /**
+     * Default bound on the number of open Jar files
+     */
+    public static final int DEFAULT_MAX_OPEN = 16;
+
+    private final int maxOpen;
+
+    private final LinkedHashMap<String, Handle> handles = new LinkedHashMap<String, Handle>(16, 0.75f, true);
+
+    private final Map<JarFile, Handle> handlesByJarFile = new IdentityHashMap<JarFile, Handle>();
+
+    private final LinkedHashMap<String, ZipCentralDirectory> nestedArchives = new LinkedHashMap<String, ZipCentralDirectory>(16, 0.75f, true);
+
+    private boolean closed = false;
+
+    /**
+     * An open Jar file and the number of callers currently using it
+     */
+    private static class Handle {
+
+        private final JarFile jarFile;
+
+        private int users = 0;
+
+        Handle(JarFile jarFile) {
+            this.jarFile = jarFile;
+        }
+    }
+
+    /**
+     * <p>Create an instance of JarFilePool with the default bound.</p>
+     */
+    public JarFilePool() {
+        this(DEFAULT_MAX_OPEN);
+    }
+
+    /**
+     * <p>Create an instance of JarFilePool.</p>
+     *
+     * @param maxOpen Maximum number of Jar files open at the same time
+     */
+    public JarFilePool(int maxOpen) {
+        if (maxOpen < 1) {
+            throw new IllegalArgumentException("maxOpen must be at least 1");
+        }
+        this.maxOpen = maxOpen;
+    }
+
+    /**
+     * Get the maximum number of Jar files open at the same time
+     *
+     * @return Bound on open Jar files
+     */
+    public int getMaxOpen() {
+        return maxOpen;
+    }
+
+    /**
+     * Get a handle for a Jar file, opening it if it is not already open
+     *
+     * @param path Absolute path of the Jar file
+     * @return Open Jar file, to be handed back with release()
+     * @throws IOException if the Jar file cannot be opened, the pool is closed, or the thread is interrupted
+     *                     while waiting for a free handle
+     */
+    public JarFile acquire(String path) throws IOException {
+        ArrayList<JarFile> evicted = new ArrayList<JarFile>();
+        JarFile jarFile;
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new IOException("JarFilePool is closed");
+                }
+                if (handles.containsKey(path)) {
+                    Handle handle = handles.get(path);
+                    if (handle != null) {
+                        handle.users++;
+                        return handle.jarFile;
+                    }
+                    // Another thread is opening this Jar file; wait for it
+                }
+                else if (handles.size() < maxOpen || evictIdle(evicted)) {
+                    break;
+                }
+                try {
+                    wait();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a free Jar file handle");
+                }
+            }
+            // Reserve the slot before opening outside the lock
+            handles.put(path, null);
+        }
+        closeAll(evicted);
+
+        try {
+            jarFile = new JarFile(path);
+            ScanMetrics.getShared().jarOpened();
+        }
+        catch (IOException ex) {
+            synchronized (this) {
+                handles.remove(path);
+                notifyAll();
+            }
+            throw ex;
+        }
+
+        synchronized (this) {
+            Handle handle = new Handle(jarFile);
+            handle.users = 1;
+            handles.put(path, handle);
+            handlesByJarFile.put(jarFile, handle);
+            notifyAll();
+        }
+        return jarFile;
+    }
+
+    /**
+     * Hand back a Jar file obtained from acquire(). The Jar file stays open for reuse unless the pool has been
+     * closed.
+     *
+     * @param jarFile Jar file to release
+     */
+    public void release(JarFile jarFile) {
+        boolean closeNow = false;
+        synchronized (this) {
+            Handle handle = handlesByJarFile.get(jarFile);
+            if (handle == null) {
+                return;
+            }
+            handle.users--;
+            if (closed && handle.users == 0) {
+                handlesByJarFile.remove(jarFile);
+                closeNow = true;
+            }
+            notifyAll();
+        }
+        if (closeNow) {
+            closeQuietly(jarFile);
+        }
+    }
+
+    /**
+     * Get a reader for an archive nested in a Jar file, reading it from the Jar file if it is not already kept. The
+     * reader holds the nested archive in memory, or maps it from the Jar file, so it needs no release and stays
+     * readable after the pool is closed.
+     *
+     * @param path Absolute path of the outermost Jar file
+     * @param nestedArchivePath Entry names of the nested archives, outermost first, separated by "!/"
+     * @return Reader for the innermost archive
+     * @throws IOException if the nested archive cannot be read, the pool is closed, or the thread is interrupted
+     *                     while another thread reads the same archive
+     * @since 0.7
+     */
+    public ZipCentralDirectory getNestedArchive(String path, String nestedArchivePath) throws IOException {
+        String key = path + ZipCentralDirectory.NESTED_SEPARATOR + nestedArchivePath;
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new IOException("JarFilePool is closed");
+                }
+                if (!nestedArchives.containsKey(key)) {
+                    break;
+                }
+                ZipCentralDirectory nestedArchive = nestedArchives.get(key);
+                if (nestedArchive != null) {
+                    return nestedArchive;
+                }
+                // Another thread is reading this nested archive; wait for it
+                try {
+                    wait();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a nested archive");
+                }
+            }
+            evictNestedArchive();
+            // Reserve the key before reading outside the lock
+            nestedArchives.put(key, null);
+        }
+
+        ZipCentralDirectory nestedArchive = null;
+        try {
+            ZipCentralDirectory outerArchive = ZipCentralDirectory.open(Paths.get(path));
+            try {
+                nestedArchive = outerArchive.openNested(nestedArchivePath);
+            }
+            finally {
+                outerArchive.close();
+            }
+        }
+        finally {
+            synchronized (this) {
+                if (nestedArchive == null || closed) {
+                    nestedArchives.remove(key);
+                }
+                else {
+                    nestedArchives.put(key, nestedArchive);
+                }
+                notifyAll();
+            }
+        }
+        return nestedArchive;
+    }
+
+    /**
+     * Close every idle Jar file and mark the pool closed. Jar files still in use are closed when released.
+     */
+    @Override
+    public void close() {
+        ArrayList<JarFile> idle = new ArrayList<JarFile>();
+        synchronized (this) {
+            closed = true;
+            Iterator<Handle> iterator = handles.values().iterator();
+            while (iterator.hasNext()) {
+                Handle handle = iterator.next();
+                if (handle != null && handle.users == 0) {
+                    idle.add(handle.jarFile);
+                    handlesByJarFile.remove(handle.jarFile);
+                }
+                iterator.remove();
+            }
+            nestedArchives.clear();
+            notifyAll();
+        }
+        closeAll(idle);
+    }
+
+    /**
+     * Remove the least recently used idle handle
+     *
+     * @param evicted Receives the Jar file to close
+     * @return true if a handle was removed
+     */
+    private boolean evictIdle(ArrayList<JarFile> evicted) {
+        Iterator<Handle> iterator = handles.values().iterator();
+        while (iterator.hasNext()) {
+            Handle handle = iterator.next();
+            if (handle != null && handle.users == 0) {
+                iterator.remove();
+                handlesByJarFile.remove(handle.jarFile);
+                evicted.add(handle.jarFile);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drop the least recently used nested archive that has been read, if as many as the bound are kept
+     */
+    private void evictNestedArchive() {
+        if (nestedArchives.size() < maxOpen) {
+            return;
+        }
+        Iterator<ZipCentralDirectory> iterator = nestedArchives.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() != null) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    private static void closeAll(ArrayList<JarFile> jarFiles) {
+        for (JarFile jarFile : jarFiles) {
+            closeQuietly(jarFile);
+        }
+    }
+
+    private static void closeQuietly(JarFile jarFile) {
+        try {
+            jarFile.close();
+        }
+        catch (IOException ex) {
+            // Nothing useful can be done when a Jar file fails to close
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+
+/**
+ * <p>Flight recorder event for the scan of the entries of one Jar file by AbstractFileAndJarTraverser, nested
+ * archives included.</p>
+ *
+ * <p>Only scans lasting longer than the threshold, 5 ms unless the recording settings say otherwise, are recorded.
+ * While recording is off, a scan pays for little more than a check of shouldCommit().</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+@Name("net.olioinfo.fileutils.JarScan")
+@Label("Jar Scan")
+@Category({ "olioinfo", "File Utilities" })
+@Description("Scan of the entry names of a Jar file")
+@Threshold("5 ms")
+@StackTrace(false)
+final class JarScanEvent extends Event {
+
+    @Label("Path")
+    @Description("Path of the Jar file")
+    String path;
+
+    @Label("Entries")
+    @Description("Number of entry names scanned, not counting nested archives")
+    long entryCount;
+
+    @Label("Matching Entries")
+    @Description("Number of entries selected, nested archives included")
+    long matchingEntryCount;
+
+    @Label("Bytes")
+    @Description("Size of the Jar file")
+    @DataAmount
+    long bytes;
+
+}
@@ -0,0 +1,90 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.File;
+
+
+/**
+ * <p>Records which class declares the onFile(File) and onDirectory(File) hooks of a traverser class.</p>
+ *
+ * <p>The traversers of this package implement the Path hooks directly, so the File hooks are not called on the way.
+ * A subclass written against the File hooks still expects them to be called. Such a subclass is detected by
+ * comparing the class declaring each File hook with the traverser implementing the Path hooks. Each class is
+ * inspected once.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+final class LegacyFileHooks {
+
+    private static final ClassValue<LegacyFileHooks> hooks = new ClassValue<LegacyFileHooks>() {
+        @Override
+        protected LegacyFileHooks computeValue(Class<?> type) {
+            return new LegacyFileHooks(declaringClass(type, "onFile"), declaringClass(type, "onDirectory"));
+        }
+    };
+
+    private final Class<?> onFileDeclaringClass;
+
+    private final Class<?> onDirectoryDeclaringClass;
+
+    private LegacyFileHooks(Class<?> onFileDeclaringClass, Class<?> onDirectoryDeclaringClass) {
+        this.onFileDeclaringClass = onFileDeclaringClass;
+        this.onDirectoryDeclaringClass = onDirectoryDeclaringClass;
+    }
+
+    /**
+     * Get the File hooks of a traverser class
+     *
+     * @param type Runtime class of the traverser
+     * @return The classes declaring its File hooks
+     */
+    static LegacyFileHooks of(Class<?> type) {
+        return hooks.get(type);
+    }
+
+    /**
+     * Indicate whether onFile(File) is overridden below the traverser implementing the Path hooks
+     *
+     * @param implementation Class implementing onFile(Path, BasicFileAttributes) without calling onFile(File)
+     * @return true if the traversal must call onFile(File)
+     */
+    boolean overridesOnFile(Class<?> implementation) {
+        return onFileDeclaringClass != null && onFileDeclaringClass != implementation;
+    }
+
+    /**
+     * Indicate whether onDirectory(File) is overridden below the traverser implementing the Path hooks
+     *
+     * @param implementation Class implementing onDirectory(Path, BasicFileAttributes) without calling
+     *                       onDirectory(File)
+     * @return true if the traversal must call onDirectory(File)
+     */
+    boolean overridesOnDirectory(Class<?> implementation) {
+        return onDirectoryDeclaringClass != null && onDirectoryDeclaringClass != implementation;
+    }
+
+    private static Class<?> declaringClass(Class<?> type, String name) {
+        try {
+            return type.getMethod(name, File.class).getDeclaringClass();
+        }
+        catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>Applies an AbstractFileTraverser.LinkPolicy during a single walk of a directory tree.</p>
+ *
+ * <p>Entries are identified by their file key, the device and inode on Unix, so that the same directory or file
+ * reached through a symbolic link or a bind mount is recognized. The real path stands in for the key on file
+ * systems that do not provide one.</p>
+ *
+ * <p>The tracker also skips the paths at which the walk would reach another search path, see
+ * SearchPaths.getNestedRoots().</p>
+ *
+ * <p>When asked to, it counts the directories and files of the walk for its TraversalEvent.</p>
+ *
+ * <p>A tracker is created for each walk. It may be shared by the threads of a parallel walk.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+final class LinkTracker {
+
+    private final AbstractFileTraverser.LinkPolicy linkPolicy;
+
+    private final Set<Object> visitedKeys;
+
+    private final Set<Path> prunedPaths;
+
+    private final LongAdder directoryCount;
+
+    private final LongAdder fileCount;
+
+    private final LongAdder byteCount;
+
+    /**
+     * <p>Create an instance of LinkTracker.</p>
+     *
+     * @param linkPolicy How symbolic links are handled
+     * @param prunedPaths Paths of entries the walk skips
+     */
+    LinkTracker(AbstractFileTraverser.LinkPolicy linkPolicy, Set<Path> prunedPaths) {
+        this(linkPolicy, prunedPaths, false);
+    }
+
+    /**
+     * <p>Create an instance of LinkTracker.</p>
+     *
+     * @param linkPolicy How symbolic links are handled
+     * @param prunedPaths Paths of entries the walk skips
+     * @param counting true to count the directories and files of the walk
+     */
+    LinkTracker(AbstractFileTraverser.LinkPolicy linkPolicy, Set<Path> prunedPaths, boolean counting) {
+        this.linkPolicy = linkPolicy;
+        this.prunedPaths = prunedPaths;
+        this.visitedKeys = linkPolicy == AbstractFileTraverser.LinkPolicy.FOLLOW_ONCE ? ConcurrentHashMap.newKeySet() : null;
+        this.directoryCount = counting ? new LongAdder() : null;
+        this.fileCount = counting ? new LongAdder() : null;
+        this.byteCount = counting ? new LongAdder() : null;
+    }
+
+    /**
+     * Read the attributes of an entry found in a directory. The link itself is read first, so an entry that is not
+     * a symbolic link costs a single call to the file system.
+     *
+     * @param path Path of the entry
+     * @return Attributes of the entry, following a symbolic link, or null if the entry does not exist, is skipped,
+     * or is a link to a directory that is not followed
+     * @throws IOException if the attributes cannot be read
+     */
+    BasicFileAttributes readAttributes(Path path) throws IOException {
+        if (!prunedPaths.isEmpty() && prunedPaths.contains(path)) {
+            return null;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        }
+        catch (NoSuchFileException ex) {
+            return null;
+        }
+        if (!attributes.isSymbolicLink()) {
+            return attributes;
+        }
+        BasicFileAttributes target = AbstractFileTraverser.readAttributes(path);
+        if (target != null && target.isDirectory() && linkPolicy == AbstractFileTraverser.LinkPolicy.NO_FOLLOW) {
+            return null;
+        }
+        return target;
+    }
+
+    /**
+     * Decide whether a directory is entered, given the directories that lead to it
+     *
+     * @param directory Path of the directory
+     * @param attributes Attributes of the directory
+     * @param ancestors Directories entered on the way to this one, or null for the starting point
+     * @return The chain of directories including this one, or null if the directory was already visited in this
+     * walk or is one of its own ancestors
+     */
+    Ancestor enter(Path directory, BasicFileAttributes attributes, Ancestor ancestors) {
+        Object key = keyOf(directory, attributes);
+        if (visitedKeys != null) {
+            if (!visitedKeys.add(key)) {
+                return null;
+            }
+        }
+        else {
+            for (Ancestor ancestor = ancestors; ancestor != null; ancestor = ancestor.parent) {
+                if (ancestor.key.equals(key)) {
+                    return null;
+                }
+            }
+        }
+        return new Ancestor(key, ancestors);
+    }
+
+    /**
+     * Decide whether a file is visited. Under FOLLOW_ONCE a file tracked by the traverser is visited only the
+     * first time it is reached; every other file is always visited.
+     *
+     * @param traverser Traverser that decides which files are tracked
+     * @param file Path of the file
+     * @param attributes Attributes of the file
+     * @return true if the file is visited
+     */
+    boolean visitFile(AbstractFileTraverser traverser, Path file, BasicFileAttributes attributes) {
+        if (visitedKeys == null || !traverser.isVisitedOnce(file)) {
+            return true;
+        }
+        return visitedKeys.add(keyOf(file, attributes));
+    }
+
+    /**
+     * Count a directory listed by the walk, if counting
+     */
+    void countDirectory() {
+        if (directoryCount != null) {
+            directoryCount.increment();
+        }
+    }
+
+    /**
+     * Count a file handed to the traverser, if counting
+     *
+     * @param attributes Attributes of the file
+     */
+    void countFile(BasicFileAttributes attributes) {
+        if (fileCount != null) {
+            fileCount.increment();
+            byteCount.add(attributes.size());
+        }
+    }
+
+    /**
+     * Fill in the figures of the walk and commit the event, if it is to be recorded
+     *
+     * @param event Event begun at the start of the walk
+     * @param start Starting point of the walk
+     */
+    void commit(TraversalEvent event, Path start) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = start.toString();
+            if (fileCount != null) {
+                event.directoryCount = directoryCount.sum();
+                event.fileCount = fileCount.sum();
+                event.bytes = byteCount.sum();
+            }
+            event.commit();
+        }
+    }
+
+    private static Object keyOf(Path path, BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        if (key != null) {
+            return key;
+        }
+        try {
+            return path.toRealPath();
+        }
+        catch (IOException ex) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
+    /**
+     * A directory entered by the walk, linked to the directory it was reached from
+     */
+    static final class Ancestor {
+
+        private final Object key;
+
+        private final Ancestor parent;
+
+        Ancestor(Object key, Ancestor parent) {
+            this.key = key;
+            this.parent = parent;
+        }
+    }
+
+}
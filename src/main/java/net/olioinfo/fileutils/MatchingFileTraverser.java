@@ -15,9 +15,13 @@
 package net.olioinfo.fileutils;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -34,12 +38,21 @@ public class MatchingFileTraverser extends AbstractFileTraverser {
 
     private String matchingString = null;
 
+    private FileNameMatcher fileNameMatcher = null;
+
+    private final boolean legacyOnFile;
+
+    private final boolean legacyOnDirectory;
+
     /**
      * <p>Create an instance of MatchingFileTraverser.</p>
      *
      */
     public MatchingFileTraverser() {
         super();
+        LegacyFileHooks legacyFileHooks = LegacyFileHooks.of(getClass());
+        this.legacyOnFile = legacyFileHooks.overridesOnFile(MatchingFileTraverser.class);
+        this.legacyOnDirectory = legacyFileHooks.overridesOnDirectory(MatchingFileTraverser.class);
     }
 
     /**
@@ -68,6 +81,7 @@ public class MatchingFileTraverser extends AbstractFileTraverser {
 
     public void setMatchingString(String matchingString) {
         this.matchingString = matchingString;
+        this.fileNameMatcher = null;
 
     }
 
@@ -76,6 +90,20 @@ public class MatchingFileTraverser extends AbstractFileTraverser {
     }
 
     
+    /**
+     * Get the matcher for the matching string, compiling it on first use
+     *
+     * @return Compiled matcher
+     */
+    private FileNameMatcher getFileNameMatcher() {
+        FileNameMatcher matcher = this.fileNameMatcher;
+        if (matcher == null) {
+            matcher = FileNameMatcher.regex(this.matchingString);
+            this.fileNameMatcher = matcher;
+        }
+        return matcher;
+    }
+
     /**
      * Implementation of the AbstractFileTraverser.onFile method for Jar and regular files
      *
@@ -83,11 +111,36 @@ public class MatchingFileTraverser extends AbstractFileTraverser {
      *
      */
     public void onFile( final File f ) {
-        String fileName = f.getAbsolutePath();
-        Pattern matchingPattern = Pattern.compile(this.matchingString);
-        Matcher matcher = matchingPattern.matcher(fileName);
-        if (matcher.matches()) {
-            this.fileList.add(f.getAbsolutePath());
+        matchFile(f.getAbsolutePath());
+    }
+
+    /**
+     * Implementation of the AbstractFileTraverser.onFile method that uses the path supplied by the traversal directly.
+     * A subclass that overrides onFile(File) has it called instead.
+     *
+     * @param f Path representing the file to be processed
+     * @param attributes Attributes of the file
+     * @since 0.7
+     */
+    @Override
+    public void onFile( final Path f, final BasicFileAttributes attributes ) {
+        if (legacyOnFile) {
+            onFile(f.toFile());
+            return;
+        }
+        matchFile(f.toString());
+    }
+
+    /**
+     * Add the file to the list of matching files if its absolute path matches the matching string
+     *
+     * @param fileName Absolute path of the file
+     */
+    private void matchFile( final String fileName ) {
+        if (getFileNameMatcher().matches(fileName)) {
+            synchronized (this) {
+                this.fileList.add(fileName);
+            }
         }
 
     }
@@ -103,6 +156,44 @@ public class MatchingFileTraverser extends AbstractFileTraverser {
         //Do nothing
     }
 
+    /**
+     * Implementation of the AbstractFileTraverser.onDirectory method that uses the path supplied by the traversal.
+     * A subclass that overrides onDirectory(File) has it called instead.
+     *
+     * @param d Path representing the directory to be processed
+     * @param attributes Attributes of the directory
+     * @since 0.7
+     */
+    @Override
+    public void onDirectory( final Path d, final BasicFileAttributes attributes ) {
+        if (legacyOnDirectory) {
+            onDirectory(d.toFile());
+        }
+    }
+
+
+    /**
+     * <p>Lazily find the files in the tree rooted at the given path whose absolute path matches the matching
+     * string.</p>
+     *
+     * <p>Produces the same file names in the same order as traverse() followed by getFileList(), without collecting
+     * them in the file list. Short-circuiting operations such as findFirst() stop the walk, so the remaining
+     * directories are never listed. Close the stream when it is not consumed to the end.</p>
+     *
+     * @param root Starting point of the traversal
+     * @return Stream of fully-qualified matching file names
+     * @since 0.7
+     */
+    public Stream<String> stream(Path root) {
+        final FileNameMatcher matcher = getFileNameMatcher();
+        final FileTreeIterator files = new FileTreeIterator(root, this);
+        Spliterator<Path> spliterator = Spliterators.spliteratorUnknownSize(files, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false)
+                .map(Path::toString)
+                .filter(matcher::matches)
+                .onClose(files::close);
+    }
+
 
     /**
      * <p>Find all the files in the directory trees rooted in the given paths that are in a directory corresponding
@@ -130,14 +221,20 @@ public class MatchingFileTraverser extends AbstractFileTraverser {
         ArrayList<String> matchingPaths = new ArrayList<String>();
 
         String packageName = klass.getPackage().getName();
+        ArrayList<String> packagePaths = new ArrayList<String>();
         for (String currentPath : paths ) {
+            packagePaths.add(String.format("%s/%s",currentPath,convertPackageNameToDirectoriesSegment(packageName)));
+        }
+        SearchPaths searchPaths = new SearchPaths(packagePaths);
+        for (Path packagePath : searchPaths.getRoots() ) {
             String fullPathName = null;
             try {
-                fullPathName  = String.format("%s/%s",currentPath,convertPackageNameToDirectoriesSegment(packageName));
+                fullPathName  = packagePath.toString();
                 MatchingFileTraverser matchingFileTraverser = new MatchingFileTraverser();
                 matchingFileTraverser.setMatchingString(matchingFilename);
+                matchingFileTraverser.setPrunedPaths(searchPaths.getNestedRoots());
                 try {
-                    matchingFileTraverser.traverse(new File(fullPathName));
+                    matchingFileTraverser.traverse(packagePath);
                 }
                 catch (Exception ex) {
                     if (consoleTracing) {
@@ -0,0 +1,288 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * <p>Tests names against many FileNameMatcher patterns at once and reports which pattern matched.</p>
+ *
+ * <p>Literal patterns are looked up in a hash table, prefix patterns in a character trie walked forwards from the
+ * start of the name and suffix patterns in a trie walked backwards from its end, so each name is read once whatever
+ * the number of patterns. Regular expressions that have no fast path are joined into a single alternation where
+ * that cannot change their meaning, and are otherwise tested one by one.</p>
+ *
+ * <p>When several patterns match a name, the one that was supplied first wins. Instances are immutable and may be
+ * shared between threads.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public final class MultiPatternMatcher {
+
+    private final List<FileNameMatcher> matchers;
+
+    private final HashMap<String, Integer> literals = new HashMap<String, Integer>();
+
+    private final TrieNode prefixes = new TrieNode();
+
+    private final TrieNode suffixes = new TrieNode();
+
+    private final ArrayList<Integer> regexIndexes = new ArrayList<Integer>();
+
+    private Pattern combinedRegex = null;
+
+    private int[] combinedRegexGroups = null;
+
+    /**
+     * Node of a prefix or suffix trie. Terminal nodes record the patterns whose literal ends there.
+     */
+    private static class TrieNode {
+
+        private final HashMap<Character, TrieNode> children = new HashMap<Character, TrieNode>();
+
+        private final ArrayList<Integer> patternIndexes = new ArrayList<Integer>();
+
+        TrieNode child(char c) {
+            TrieNode child = children.get(c);
+            if (child == null) {
+                child = new TrieNode();
+                children.put(c, child);
+            }
+            return child;
+        }
+    }
+
+    /**
+     * <p>Create an instance of MultiPatternMatcher.</p>
+     *
+     * @param matchers Patterns to test, in order of precedence
+     */
+    public MultiPatternMatcher(List<FileNameMatcher> matchers) {
+        this.matchers = Collections.unmodifiableList(new ArrayList<FileNameMatcher>(matchers));
+        for (int index = 0; index < this.matchers.size(); index++) {
+            FileNameMatcher matcher = this.matchers.get(index);
+            String literal = matcher.getLiteral();
+            switch (matcher.getKind()) {
+                case LITERAL:
+                    if (!literals.containsKey(literal)) {
+                        literals.put(literal, index);
+                    }
+                    break;
+                case PREFIX:
+                    TrieNode prefixNode = prefixes;
+                    for (int i = 0; i < literal.length(); i++) {
+                        prefixNode = prefixNode.child(literal.charAt(i));
+                    }
+                    prefixNode.patternIndexes.add(index);
+                    break;
+                case SUFFIX:
+                    TrieNode suffixNode = suffixes;
+                    for (int i = literal.length() - 1; i >= 0; i--) {
+                        suffixNode = suffixNode.child(literal.charAt(i));
+                    }
+                    suffixNode.patternIndexes.add(index);
+                    break;
+                default:
+                    regexIndexes.add(index);
+            }
+        }
+        combineRegexes();
+    }
+
+    /**
+     * Create a matcher from regular expressions
+     *
+     * @param regexes Regular expressions, in order of precedence
+     * @return Matcher testing all the expressions
+     */
+    public static MultiPatternMatcher fromRegexes(List<String> regexes) {
+        ArrayList<FileNameMatcher> matchers = new ArrayList<FileNameMatcher>();
+        for (String regex : regexes) {
+            matchers.add(FileNameMatcher.regex(regex));
+        }
+        return new MultiPatternMatcher(matchers);
+    }
+
+    /**
+     * Create a matcher from globs
+     *
+     * @param globs Globs, in order of precedence
+     * @return Matcher testing all the globs
+     */
+    public static MultiPatternMatcher fromGlobs(List<String> globs) {
+        ArrayList<FileNameMatcher> matchers = new ArrayList<FileNameMatcher>();
+        for (String glob : globs) {
+            matchers.add(FileNameMatcher.glob(glob));
+        }
+        return new MultiPatternMatcher(matchers);
+    }
+
+    /**
+     * Get the patterns tested by this matcher
+     *
+     * @return Patterns in order of precedence
+     */
+    public List<FileNameMatcher> getMatchers() {
+        return matchers;
+    }
+
+    /**
+     * Test whether a name matches any of the patterns
+     *
+     * @param name Name to test
+     * @return true if at least one pattern matches
+     */
+    public boolean matches(String name) {
+        return match(name) >= 0;
+    }
+
+    /**
+     * Find the first pattern that matches a name
+     *
+     * @param name Name to test
+     * @return Index of the first matching pattern, or -1 if none matches
+     */
+    public int match(String name) {
+        if (matchers.size() == 1) {
+            return matchers.get(0).matches(name) ? 0 : -1;
+        }
+
+        int best = Integer.MAX_VALUE;
+
+        Integer literalIndex = literals.get(name);
+        if (literalIndex != null) {
+            best = literalIndex;
+        }
+
+        TrieNode node = prefixes;
+        for (int depth = 0; node != null; depth++) {
+            best = bestOf(node, name, depth, name.length(), best);
+            node = depth < name.length() ? node.children.get(name.charAt(depth)) : null;
+        }
+
+        node = suffixes;
+        for (int depth = 0; node != null; depth++) {
+            best = bestOf(node, name, 0, name.length() - depth, best);
+            node = depth < name.length() ? node.children.get(name.charAt(name.length() - 1 - depth)) : null;
+        }
+
+        if (!regexIndexes.isEmpty() && regexIndexes.get(0) < best) {
+            best = Math.min(best, matchRegexes(name, best));
+        }
+
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    /**
+     * Lowest pattern index recorded at a trie node whose wildcard region [from, to) of the name is acceptable
+     */
+    private int bestOf(TrieNode node, String name, int from, int to, int best) {
+        for (Integer index : node.patternIndexes) {
+            if (index >= best) {
+                break;
+            }
+            String excluded = matchers.get(index).getExcludedWildcardCharacters();
+            if (!FileNameMatcher.containsAny(name, from, to, excluded)) {
+                return index;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Lowest index of a regular expression matching the name, considering only indexes below best
+     */
+    private int matchRegexes(String name, int best) {
+        if (combinedRegex != null) {
+            Matcher matcher = combinedRegex.matcher(name);
+            if (!matcher.matches()) {
+                return Integer.MAX_VALUE;
+            }
+            for (int i = 0; i < combinedRegexGroups.length; i++) {
+                if (matcher.start(combinedRegexGroups[i]) >= 0) {
+                    return regexIndexes.get(i);
+                }
+            }
+            return Integer.MAX_VALUE;
+        }
+        for (Integer index : regexIndexes) {
+            if (index >= best) {
+                break;
+            }
+            if (matchers.get(index).matches(name)) {
+                return index;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Join the regular expressions into one alternation of capturing groups, provided none of them uses
+     * backreferences, named groups or inline flags whose meaning would change inside the alternation
+     */
+    private void combineRegexes() {
+        if (regexIndexes.size() < 2) {
+            return;
+        }
+        StringBuilder combined = new StringBuilder();
+        int[] groups = new int[regexIndexes.size()];
+        int nextGroup = 1;
+        for (int i = 0; i < regexIndexes.size(); i++) {
+            String regex = matchers.get(regexIndexes.get(i)).getPattern();
+            if (!isCombinable(regex)) {
+                return;
+            }
+            if (i > 0) {
+                combined.append('|');
+            }
+            combined.append('(').append(regex).append(')');
+            groups[i] = nextGroup;
+            nextGroup += 1 + Pattern.compile(regex).matcher("").groupCount();
+        }
+        combinedRegex = Pattern.compile(combined.toString());
+        combinedRegexGroups = groups;
+    }
+
+    private static boolean isCombinable(String regex) {
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length()) {
+                    char escaped = regex.charAt(i + 1);
+                    if (Character.isDigit(escaped) || escaped == 'k' || escaped == 'Q') {
+                        return false;
+                    }
+                }
+                i++;
+            }
+            else if (c == '(' && regex.startsWith("(?", i)) {
+                if (!(regex.startsWith("(?:", i) || regex.startsWith("(?=", i) || regex.startsWith("(?!", i)
+                        || regex.startsWith("(?<=", i) || regex.startsWith("(?<!", i))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,59 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+
+/**
+ * <p>Flight recorder event for the load of one property file by CombinedPropertyFileManager, from a regular file,
+ * a Jar entry or an entry of a nested archive.</p>
+ *
+ * <p>Only loads lasting longer than the threshold, 1 ms unless the recording settings say otherwise, are recorded.
+ * While recording is off, a load pays for little more than a check of shouldCommit().</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+@Name("net.olioinfo.fileutils.PropertyLoad")
+@Label("Property File Load")
+@Category({ "olioinfo", "File Utilities" })
+@Description("Read and parse of a property file")
+@Threshold("1 ms")
+@StackTrace(false)
+final class PropertyLoadEvent extends Event {
+
+    @Label("Path")
+    @Description("Virtual path of the property file")
+    String path;
+
+    @Label("Entries")
+    @Description("Number of properties held by the target after the load")
+    long entryCount;
+
+    @Label("Bytes")
+    @Description("Number of bytes parsed")
+    @DataAmount
+    long bytes;
+
+}
@@ -0,0 +1,464 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+
+/**
+ * <p>A compact binary image of a set of combined properties, together with the size and modification time of every
+ * file and directory they were loaded from.</p>
+ *
+ * <p>A snapshot is written once after a full load and memory-mapped on later starts. Lookups are answered directly
+ * from the mapped file by a binary search over the keys, which are stored sorted by their UTF-8 bytes, so nothing is
+ * parsed or copied up front. isCurrent() checks whether any recorded source has changed since the snapshot was
+ * written; because directories are recorded too, a property file added to a directory that was searched is detected
+ * as well.</p>
+ *
+ * <p>File layout, all integers big-endian:</p>
+ * <pre>
+ * int magic, int version
+ * int length, byte[length] descriptor (UTF-8)
+ * int sourceCount, then for each source: int length, byte[length] path (UTF-8), long size, long lastModified
+ * int entryCount, int[entryCount] offset of each entry, in key order
+ * for each entry: int length, byte[length] key (UTF-8), int length, byte[length] value (UTF-8)
+ * </pre>
+ *
+ * <p>Instances are immutable and safe for use by several threads.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public class PropertySnapshot {
+
+    private static final int MAGIC = 0x50534e50;
+
+    private static final int VERSION = 1;
+
+    private final ByteBuffer buffer;
+
+    private final String descriptor;
+
+    private final List<SourceStamp> sources;
+
+    private final int entryCount;
+
+    private final int entryTableOffset;
+
+    /**
+     * The size and modification time of a file or directory a snapshot was loaded from
+     */
+    public static class SourceStamp {
+
+        private final String path;
+
+        private final long size;
+
+        private final long lastModified;
+
+        /**
+         * Create a stamp from attributes that have already been read
+         *
+         * @param path Absolute path of the file or directory
+         * @param attributes Attributes of the file or directory, or null if it does not exist
+         */
+        public SourceStamp(String path, BasicFileAttributes attributes) {
+            this(path, attributes == null ? -1 : attributes.size(), attributes == null ? -1 : attributes.lastModifiedTime().toMillis());
+        }
+
+        SourceStamp(String path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Read the stamp of a file or directory
+         *
+         * @param path Path of the file or directory
+         * @return The stamp, recording that the path is missing if it does not exist
+         * @throws IOException if the attributes cannot be read
+         */
+        public static SourceStamp of(Path path) throws IOException {
+            Path absolutePath = path.toAbsolutePath();
+            return new SourceStamp(absolutePath.toString(), AbstractFileTraverser.readAttributes(absolutePath));
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Indicate whether the file or directory is unchanged since the stamp was taken
+         *
+         * @return true if it has the same size and modification time, or is still missing
+         */
+        public boolean isCurrent() {
+            try {
+                SourceStamp current = of(Paths.get(path));
+                return current.size == size && current.lastModified == lastModified;
+            }
+            catch (IOException ex) {
+                return false;
+            }
+        }
+    }
+
+    private PropertySnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        try {
+            ByteBuffer header = buffer.duplicate();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a property snapshot, or written by an incompatible version");
+            }
+            this.descriptor = readString(header);
+            int sourceCount = header.getInt();
+            ArrayList<SourceStamp> sourceList = new ArrayList<SourceStamp>(sourceCount);
+            for (int i = 0; i < sourceCount; i++) {
+                String path = readString(header);
+                sourceList.add(new SourceStamp(path, header.getLong(), header.getLong()));
+            }
+            this.sources = Collections.unmodifiableList(sourceList);
+            this.entryCount = header.getInt();
+            this.entryTableOffset = header.position();
+            if (entryCount < 0 || (long) entryTableOffset + 4L * entryCount > buffer.limit()) {
+                throw new IOException("Property snapshot is truncated");
+            }
+        }
+        catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException ex) {
+            throw new IOException("Property snapshot is truncated", ex);
+        }
+    }
+
+    /**
+     * Build a snapshot in memory
+     *
+     * @param descriptor Description of what was loaded, for example the search paths and file name pattern
+     * @param properties Combined properties
+     * @param sources Files and directories the properties were loaded from
+     * @return The snapshot
+     */
+    public static PropertySnapshot create(String descriptor, Properties properties, List<SourceStamp> sources) {
+
+        Set<String> keys = properties.stringPropertyNames();
+        byte[][][] encodedEntries = new byte[keys.size()][][];
+        int i = 0;
+        for (String key : keys) {
+            encodedEntries[i++] = new byte[][] { key.getBytes(StandardCharsets.UTF_8), properties.getProperty(key).getBytes(StandardCharsets.UTF_8) };
+        }
+        Arrays.sort(encodedEntries, (first, second) -> compareBytes(first[0], second[0]));
+        byte[][] keyBytes = new byte[encodedEntries.length][];
+        byte[][] valueBytes = new byte[encodedEntries.length][];
+        for (i = 0; i < encodedEntries.length; i++) {
+            keyBytes[i] = encodedEntries[i][0];
+            valueBytes[i] = encodedEntries[i][1];
+        }
+
+        byte[] descriptorBytes = descriptor.getBytes(StandardCharsets.UTF_8);
+        byte[][] pathBytes = new byte[sources.size()][];
+        long length = 4 + 4 + 4 + descriptorBytes.length + 4 + 4;
+        for (i = 0; i < pathBytes.length; i++) {
+            pathBytes[i] = sources.get(i).getPath().getBytes(StandardCharsets.UTF_8);
+            length += 4 + pathBytes[i].length + 8 + 8;
+        }
+        long entryTableOffset = length;
+        length += 4L * keyBytes.length;
+        for (i = 0; i < keyBytes.length; i++) {
+            length += 4 + keyBytes[i].length + 4 + valueBytes[i].length;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Properties are too large for a snapshot");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        putBytes(buffer, descriptorBytes);
+        buffer.putInt(pathBytes.length);
+        for (i = 0; i < pathBytes.length; i++) {
+            putBytes(buffer, pathBytes[i]);
+            buffer.putLong(sources.get(i).getSize());
+            buffer.putLong(sources.get(i).getLastModified());
+        }
+        buffer.putInt(keyBytes.length);
+        int entryOffset = (int) entryTableOffset + 4 * keyBytes.length;
+        for (i = 0; i < keyBytes.length; i++) {
+            buffer.putInt(entryOffset);
+            entryOffset += 4 + keyBytes[i].length + 4 + valueBytes[i].length;
+        }
+        for (i = 0; i < keyBytes.length; i++) {
+            putBytes(buffer, keyBytes[i]);
+            putBytes(buffer, valueBytes[i]);
+        }
+        buffer.flip();
+
+        try {
+            return new PropertySnapshot(buffer);
+        }
+        catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Map a snapshot file
+     *
+     * @param file Snapshot file
+     * @return The snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static PropertySnapshot open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Property snapshot is too large");
+            }
+            return new PropertySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write the snapshot to a file. The file is replaced atomically, so a concurrent reader sees either the old or
+     * the new snapshot.
+     *
+     * @param file Snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE);
+            try {
+                ByteBuffer content = buffer.duplicate();
+                content.clear();
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+            }
+            finally {
+                channel.close();
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex) {
+            Files.deleteIfExists(temporaryFile);
+            throw ex;
+        }
+    }
+
+    /**
+     * Get the description of what was loaded, as given when the snapshot was created
+     *
+     * @return The descriptor
+     */
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Get the files and directories the properties were loaded from
+     *
+     * @return The recorded sources
+     */
+    public List<SourceStamp> getSources() {
+        return sources;
+    }
+
+    /**
+     * Indicate whether every recorded source is unchanged since the snapshot was created
+     *
+     * @return true if the snapshot still reflects its sources
+     */
+    public boolean isCurrent() {
+        for (SourceStamp source : sources) {
+            if (!source.isCurrent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of properties
+     *
+     * @return Number of properties
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Look up a property
+     *
+     * @param key Key of the property
+     * @return The value, or null if there is no such property
+     */
+    public String getProperty(String key) {
+        int entryOffset = find(key.getBytes(StandardCharsets.UTF_8));
+        if (entryOffset < 0) {
+            return null;
+        }
+        int valueOffset = entryOffset + 4 + buffer.getInt(entryOffset);
+        return decode(valueOffset);
+    }
+
+    /**
+     * Look up a property
+     *
+     * @param key Key of the property
+     * @param defaultValue Value to return if there is no such property
+     * @return The value, or defaultValue if there is no such property
+     */
+    public String getProperty(String key, String defaultValue) {
+        String value = getProperty(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Indicate whether a property is present
+     *
+     * @param key Key of the property
+     * @return true if there is such a property
+     */
+    public boolean containsKey(String key) {
+        return find(key.getBytes(StandardCharsets.UTF_8)) >= 0;
+    }
+
+    /**
+     * Copy all the properties into a new Properties instance
+     *
+     * @return Properties instance holding every property of the snapshot
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        for (int i = 0; i < entryCount; i++) {
+            int entryOffset = buffer.getInt(entryTableOffset + 4 * i);
+            int valueOffset = entryOffset + 4 + buffer.getInt(entryOffset);
+            properties.setProperty(decode(entryOffset), decode(valueOffset));
+        }
+        return properties;
+    }
+
+    /**
+     * Binary search for a key
+     *
+     * @param key UTF-8 bytes of the key
+     * @return Offset of the entry, or -1 if the key is not present
+     */
+    private int find(byte[] key) {
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entryOffset = buffer.getInt(entryTableOffset + 4 * middle);
+            int comparison = compareKey(entryOffset, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            }
+            else if (comparison > 0) {
+                high = middle - 1;
+            }
+            else {
+                return entryOffset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compare the key of an entry with the given bytes, as unsigned bytes
+     */
+    private int compareKey(int entryOffset, byte[] key) {
+        int length = buffer.getInt(entryOffset);
+        int start = entryOffset + 4;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Decode the length-prefixed UTF-8 string at an offset
+     */
+    private String decode(int offset) {
+        int length = buffer.getInt(offset);
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset + 4);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare two byte arrays lexicographically as unsigned bytes
+     */
+    static int compareBytes(byte[] first, byte[] second) {
+        int common = Math.min(first.length, second.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (first[i] & 0xff) - (second[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return first.length - second.length;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,567 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * <p>Keep the combined properties of the property files found in a set of search paths up to date as the files
+ * change.</p>
+ *
+ * <p>The search paths are walked and loaded once when the manager is started. Every directory found is then watched
+ * with a WatchService. When a known property file or Jar file is modified, only that file is parsed again. When files
+ * or directories are created or deleted, the search paths are walked again, but only the property files and Jar files
+ * whose size or modification time has changed are parsed. The combined properties are then rebuilt from the cached
+ * per-file results, in discovery order, so they are the same as a full load by CombinedPropertyFileManager.</p>
+ *
+ * <pre>
+ * ReloadingPropertyFileManager manager = new ReloadingPropertyFileManager(paths, "app-.*\\.properties$");
+ * manager.start();
+ * ...
+ * String value = manager.getProperties().getProperty("some.key");
+ * ...
+ * manager.close();
+ * </pre>
+ *
+ * <p>Each rebuild publishes a new ImmutablePropertyMap atomically, so readers never wait for a reload and always see
+ * a complete view. Lookups on the published map, or on its read-only Properties view, take no locks.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public class ReloadingPropertyFileManager implements Closeable {
+
+    /**
+     * Time to wait for further changes after a change is seen, so that a burst of changes causes one reload
+     */
+    private static final long QUIET_PERIOD_MILLIS = 50;
+
+    private final ArrayList<String> searchPaths;
+
+    private final String propertyFileName;
+
+    private final MultiPatternMatcher fileNameMatcher;
+
+    private final AtomicReference<ImmutablePropertyMap> combinedProperties = new AtomicReference<ImmutablePropertyMap>(ImmutablePropertyMap.empty());
+
+    private JarEntryIndex jarEntryIndex = JarEntryIndex.getShared();
+
+    private WatchService watchService = null;
+
+    private Thread watchThread = null;
+
+    private final HashMap<WatchKey, Path> watchedDirectories = new HashMap<WatchKey, Path>();
+
+    private final HashSet<Path> watchedPaths = new HashSet<Path>();
+
+    private ArrayList<Source> sources = new ArrayList<Source>();
+
+    private HashMap<String, Source> sourcesByPath = new HashMap<String, Source>();
+
+    private long reloadCount = 0;
+
+    private volatile RuntimeException lastError = null;
+
+    protected boolean consoleTracing = false;
+
+    /**
+     * The parsed property files held by one regular file or Jar file
+     */
+    private static class Source {
+
+        final String path;
+
+        final long size;
+
+        final long lastModified;
+
+        final ArrayList<Properties> parsedFiles;
+
+        Source(String path, BasicFileAttributes attributes, ArrayList<Properties> parsedFiles) {
+            this.path = path;
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.parsedFiles = parsedFiles;
+        }
+
+        boolean isCurrent(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+    /**
+     * Traverser that reuses the cached results of unchanged files, parses changed ones, and watches every directory
+     */
+    private class LoadingTraverser extends MatchingFileAndJarTraverser.RegexFileAndJarTraverser {
+
+        private final ArrayList<Source> discoveredSources = new ArrayList<Source>();
+
+        private final IdentityHashMap<VirtualFileEntry, Properties> parsedJarEntries = new IdentityHashMap<VirtualFileEntry, Properties>();
+
+        private boolean reuseUnchanged = true;
+
+        LoadingTraverser() {
+            super(propertyFileName);
+            setJarEntryIndex(jarEntryIndex);
+        }
+
+        @Override
+        public void onDirectory(Path d, BasicFileAttributes attributes) {
+            watch(d);
+        }
+
+        @Override
+        public void onFile(Path f, BasicFileAttributes attributes) {
+            String path = f.toString();
+            Source cached = sourcesByPath.get(path);
+            if (reuseUnchanged && cached != null && cached.isCurrent(attributes)) {
+                discoveredSources.add(cached);
+                return;
+            }
+
+            int firstEntry = getFileList().size();
+            super.onFile(f, attributes);
+            List<VirtualFileEntry> matchingEntries = getFileList().subList(firstEntry, getFileList().size());
+
+            ArrayList<Properties> parsedFiles = new ArrayList<Properties>();
+            if (isArchiveFile(path)) {
+                for (VirtualFileEntry virtualFileEntry : matchingEntries) {
+                    Properties properties = parsedJarEntries.remove(virtualFileEntry);
+                    if (properties != null) {
+                        parsedFiles.add(properties);
+                    }
+                }
+            }
+            else if (!matchingEntries.isEmpty()) {
+                parsedFiles.add(parseFile(path));
+            }
+            else {
+                return;
+            }
+            discoveredSources.add(new Source(path, attributes, parsedFiles));
+        }
+
+        @Override
+        protected boolean isReadingJarEntries() {
+            return true;
+        }
+
+        @Override
+        protected void onJarEntry(VirtualFileEntry virtualFileEntry, InputStream inputStream) throws IOException {
+            if (consoleTracing) System.out.format("ReloadingPropertyFileManager:onJarEntry Parsing properties file from JAR %s:%s\n", virtualFileEntry.getAbsoluteFilePath(), virtualFileEntry.getRelativeFilePath());
+            Properties properties = new Properties();
+            parsedJarEntries.put(virtualFileEntry, properties);
+            CombinedPropertyFileManager.loadStream(inputStream, virtualFileEntry.getRelativeFilePath(), properties);
+        }
+
+        /**
+         * Parse a regular property file, keeping whatever was read before an error
+         */
+        private Properties parseFile(String path) {
+            if (consoleTracing) System.out.format("ReloadingPropertyFileManager:parseFile Parsing properties file %s\n", path);
+            Properties properties = new Properties();
+            try {
+                CombinedPropertyFileManager.loadStream(new FileInputStream(path), path, properties);
+            }
+            catch (Exception ex) {
+                if (consoleTracing) {
+                    System.out.format("ReloadingPropertyFileManager:parseFile. Error while loading properties file. Ignoring .. %s\n", ex.toString());
+                    ex.printStackTrace(System.out);
+                }
+            }
+            return properties;
+        }
+    }
+
+    /**
+     * <p>Create an instance of ReloadingPropertyFileManager. Nothing is loaded or watched until start() is called.</p>
+     *
+     * @param searchPaths List of paths to search
+     * @param propertyFileNameRegex Regex for Name of property file to load
+     */
+    public ReloadingPropertyFileManager(ArrayList<String> searchPaths, String propertyFileNameRegex) {
+        if (System.getProperty("net.olioinfo.fileutils.consoleTracing") != null) {
+            consoleTracing = true;
+        }
+        this.searchPaths = new ArrayList<String>(searchPaths);
+        this.propertyFileName = propertyFileNameRegex;
+        this.fileNameMatcher = MultiPatternMatcher.fromRegexes(Collections.singletonList(propertyFileNameRegex));
+    }
+
+    /**
+     * Load the property files and start watching the search paths for changes
+     *
+     * @throws IOException if the file system cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        final WatchService service = FileSystems.getDefault().newWatchService();
+        watchService = service;
+        rescan();
+
+        // Hand the service to the thread, as close() may clear the field before the thread first reads it
+        watchThread = new Thread(() -> watchForChanges(service), "ReloadingPropertyFileManager");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Get the current combined properties as read-only Properties. Never blocks. The instance returned is replaced,
+     * not modified, when the property files change.
+     *
+     * @return Properties instance with contents of all properties files combined
+     */
+    public Properties getProperties() {
+        return combinedProperties.get().asProperties();
+    }
+
+    /**
+     * Get the current combined properties. Never blocks. The map returned is replaced when the property files
+     * change.
+     *
+     * @return Immutable map with contents of all properties files combined
+     */
+    public ImmutablePropertyMap getPropertyMap() {
+        return combinedProperties.get();
+    }
+
+    /**
+     * Get the number of times the combined properties have been rebuilt since the manager was started
+     *
+     * @return Number of rebuilds, including the initial load
+     */
+    public synchronized long getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Indicate whether the search paths are being watched, that is the manager has been started, not closed, and its
+     * watch thread is running
+     *
+     * @return true if changes to the property files are being picked up
+     */
+    public synchronized boolean isWatching() {
+        return watchService != null && watchThread != null && watchThread.isAlive();
+    }
+
+    /**
+     * Get the error that stopped the last batch of changes from being applied. The watch thread keeps running after
+     * such an error, and walks the search paths again in full on the next change. The error is cleared once a
+     * later batch has been applied.
+     *
+     * @return The error, or null if the last batch of changes was applied
+     */
+    public RuntimeException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Walk the search paths again now, parsing only the files that have changed, and publish the result
+     *
+     * @return Properties instance with contents of all properties files combined
+     */
+    public synchronized Properties reload() {
+        rescan();
+        return combinedProperties.get().asProperties();
+    }
+
+    /**
+     * Get the index used to look up the entry names of Jar files while searching
+     *
+     * @return The Jar entry index, or null if every Jar file is opened
+     */
+    public JarEntryIndex getJarEntryIndex() {
+        return jarEntryIndex;
+    }
+
+    /**
+     * Set the index used to look up the entry names of Jar files while searching. Defaults to the shared index,
+     * see JarEntryIndex.getShared().
+     *
+     * @param jarEntryIndex The Jar entry index, or null to open every Jar file
+     */
+    public synchronized void setJarEntryIndex(JarEntryIndex jarEntryIndex) {
+        this.jarEntryIndex = jarEntryIndex;
+    }
+
+    /**
+     * Stop watching the search paths. The last combined properties remain available.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    public void close() throws IOException {
+        WatchService closing;
+        Thread stopping;
+        synchronized (this) {
+            closing = watchService;
+            stopping = watchThread;
+            watchService = null;
+            watchThread = null;
+        }
+        if (closing != null) {
+            closing.close();
+        }
+        if (stopping != null && stopping != Thread.currentThread()) {
+            try {
+                stopping.join();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Wait for changes and apply them until the watch service is closed
+     *
+     * @param watching Watch service created by start()
+     */
+    private void watchForChanges(WatchService watching) {
+        if (watching == null) {
+            return;
+        }
+        try {
+            while (true) {
+                ArrayList<WatchKey> keys = new ArrayList<WatchKey>();
+                keys.add(watching.take());
+                WatchKey key;
+                while ((key = watching.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    keys.add(key);
+                }
+                try {
+                    // After a failed batch the cached results may be incomplete, so walk everything again
+                    applyChanges(keys, lastError != null);
+                    lastError = null;
+                }
+                catch (ClosedWatchServiceException ex) {
+                    throw ex;
+                }
+                catch (RuntimeException ex) {
+                    lastError = ex;
+                    if (consoleTracing) {
+                        System.out.format("ReloadingPropertyFileManager:watchForChanges. Error while applying changes, rescanning on the next change %s\n", ex.toString());
+                        ex.printStackTrace(System.out);
+                    }
+                }
+            }
+        }
+        catch (ClosedWatchServiceException ex) {
+            // Closed by close()
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Apply the changes reported by a set of watch keys. Modified property files and Jar files are parsed again on
+     * their own; anything else that may change the set of files found leads to a rescan.
+     *
+     * @param keys Signalled watch keys
+     * @param rescanNeeded true to rescan whatever the changes
+     */
+    private synchronized void applyChanges(List<WatchKey> keys, boolean rescanNeeded) {
+        if (watchService == null) {
+            return;
+        }
+
+        LinkedHashSet<String> modifiedPaths = new LinkedHashSet<String>();
+        for (WatchKey key : keys) {
+            Path directory = watchedDirectories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                    rescanNeeded = true;
+                    continue;
+                }
+                Path changed = directory.resolve((Path) event.context());
+                if (consoleTracing) System.out.format("ReloadingPropertyFileManager:applyChanges %s %s\n", event.kind().name(), changed);
+                if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+                    if (sourcesByPath.containsKey(changed.toString())) {
+                        modifiedPaths.add(changed.toString());
+                    }
+                }
+                else if (isRelevant(changed)) {
+                    rescanNeeded = true;
+                }
+            }
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+                watchedPaths.remove(directory);
+            }
+        }
+
+        if (rescanNeeded) {
+            rescan();
+        }
+        else if (!modifiedPaths.isEmpty()) {
+            reparse(modifiedPaths);
+        }
+    }
+
+    /**
+     * Indicate whether a created or deleted path may change the set of property files found
+     *
+     * @param changed Created or deleted path
+     * @return true if the path is or was a known file, a directory, a Jar file or a matching property file
+     */
+    private boolean isRelevant(Path changed) {
+        String path = changed.toString();
+        return sourcesByPath.containsKey(path)
+            || watchedPaths.contains(changed)
+            || Files.isDirectory(changed, LinkOption.NOFOLLOW_LINKS)
+            || AbstractFileAndJarTraverser.isNestedArchiveName(path)
+            || fileNameMatcher.matches(changed.getFileName().toString());
+    }
+
+    /**
+     * Walk the search paths, parsing only the new and changed files, and publish the combined properties
+     */
+    private void rescan() {
+        LoadingTraverser loadingTraverser = new LoadingTraverser();
+        SearchPaths normalizedPaths = new SearchPaths(searchPaths);
+        loadingTraverser.setPrunedPaths(normalizedPaths.getNestedRoots());
+        for (Path searchPath : normalizedPaths.getRoots()) {
+            if (!Files.isDirectory(searchPath) && searchPath.getParent() != null) {
+                // A single file is watched through its directory
+                watch(searchPath.getParent());
+            }
+            try {
+                loadingTraverser.traverse(searchPath);
+            }
+            catch (Exception ex) {
+                if (consoleTracing) {
+                    System.out.format("ReloadingPropertyFileManager:rescan. Error while finding properties files in %s. Ignoring .. %s\n", searchPath, ex.toString());
+                    ex.printStackTrace(System.out);
+                }
+            }
+        }
+
+        HashMap<String, Source> discoveredByPath = new HashMap<String, Source>();
+        for (Source source : loadingTraverser.discoveredSources) {
+            discoveredByPath.put(source.path, source);
+        }
+        sources = loadingTraverser.discoveredSources;
+        sourcesByPath = discoveredByPath;
+        publish();
+    }
+
+    /**
+     * Parse the given known files again and publish the combined properties. The files keep their place in the
+     * discovery order.
+     *
+     * @param modifiedPaths Paths of modified property files and Jar files
+     */
+    private void reparse(Iterable<String> modifiedPaths) {
+        LoadingTraverser loadingTraverser = new LoadingTraverser();
+        loadingTraverser.reuseUnchanged = false;
+        for (String path : modifiedPaths) {
+            Path modified = Paths.get(path);
+            BasicFileAttributes attributes;
+            try {
+                attributes = AbstractFileTraverser.readAttributes(modified);
+            }
+            catch (IOException ex) {
+                attributes = null;
+            }
+            if (attributes == null) {
+                // Deleted since the event; the delete event leads to a rescan
+                continue;
+            }
+            loadingTraverser.discoveredSources.clear();
+            loadingTraverser.onFile(modified, attributes);
+            Source reparsed = loadingTraverser.discoveredSources.isEmpty() ? null : loadingTraverser.discoveredSources.get(0);
+
+            ArrayList<Source> updatedSources = new ArrayList<Source>(sources.size());
+            for (Source source : sources) {
+                if (!source.path.equals(path)) {
+                    updatedSources.add(source);
+                }
+                else if (reparsed != null) {
+                    updatedSources.add(reparsed);
+                }
+            }
+            sources = updatedSources;
+            if (reparsed == null) {
+                sourcesByPath.remove(path);
+            }
+            else {
+                sourcesByPath.put(path, reparsed);
+            }
+        }
+        publish();
+    }
+
+    /**
+     * Merge the cached results in discovery order into a new immutable map and publish it
+     */
+    private void publish() {
+        Properties properties = new Properties();
+        for (Source source : sources) {
+            for (Properties parsedFile : source.parsedFiles) {
+                CombinedPropertyFileManager.mergeProperties(properties, parsedFile);
+            }
+        }
+        combinedProperties.set(ImmutablePropertyMap.of(properties));
+        reloadCount++;
+    }
+
+    /**
+     * Watch a directory for changes, unless it is already watched
+     *
+     * @param directory Directory to watch
+     */
+    private void watch(Path directory) {
+        if (watchService == null || watchedPaths.contains(directory)) {
+            return;
+        }
+        try {
+            WatchKey key = directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirectories.put(key, directory);
+            watchedPaths.add(directory);
+        }
+        catch (Exception ex) {
+            if (consoleTracing) System.out.format("ReloadingPropertyFileManager:watch. Unable to watch directory %s. Ignoring .. %s\n", directory, ex.toString());
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * <p>Counts and times the work done by traversals and property loads across the package.</p>
+ *
+ * <p>AbstractFileTraverser, AbstractFileAndJarTraverser and CombinedPropertyFileManager record into the shared
+ * instance as they go. Counters are LongAdders and times are taken once per traversal, Jar file, regular file or
+ * property file, never per Jar entry, so recording is cheap enough to leave on in production.</p>
+ *
+ * <p>Read the figures with snapshot(), and compare two snapshots to measure a single operation:</p>
+ * <pre>
+ * ScanMetrics.Snapshot before = ScanMetrics.getShared().snapshot();
+ * Properties properties = manager.loadAllFromPaths();
+ * ScanMetrics.Snapshot loaded = ScanMetrics.getShared().snapshot().since(before);
+ * </pre>
+ *
+ * <p>Call registerMBean() to publish the figures over JMX as net.olioinfo.fileutils:type=ScanMetrics.</p>
+ *
+ * <p>Phases overlap: the walk time of a traversal includes the time spent matching names, and, in a single pass
+ * load, the time spent parsing Jar entries. Load times of a parallel load are summed over its threads.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public final class ScanMetrics implements ScanMetricsMBean {
+
+    /**
+     * Name under which registerMBean() publishes the shared instance
+     */
+    public static final String OBJECT_NAME = "net.olioinfo.fileutils:type=ScanMetrics";
+
+    /**
+     * The phases of a scan and load that are timed
+     */
+    public enum Phase {
+        /** Walking directory trees and scanning Jar files */
+        WALK,
+        /** Checking names against file name patterns */
+        MATCH,
+        /** Reading and parsing property files */
+        LOAD,
+        /**
+         * Merging separately parsed property files into combined properties. A serial load parses each file
+         * straight into the combined properties, so its merging counts as loading.
+         */
+        MERGE
+    }
+
+    private static final ScanMetrics SHARED = new ScanMetrics();
+
+    private final LongAdder directoriesListed = new LongAdder();
+
+    private final LongAdder filesExamined = new LongAdder();
+
+    private final LongAdder jarsOpened = new LongAdder();
+
+    private final LongAdder jarEntriesScanned = new LongAdder();
+
+    private final LongAdder patternEvaluations = new LongAdder();
+
+    private final LongAdder bytesParsed = new LongAdder();
+
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+    /**
+     * <p>Create an instance of ScanMetrics.</p>
+     */
+    ScanMetrics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Get the instance the package records into
+     *
+     * @return The shared instance
+     */
+    public static ScanMetrics getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Publish the shared instance to the platform MBean server as OBJECT_NAME. Does nothing if it is already
+     * published.
+     *
+     * @throws JMException if the MBean cannot be registered
+     */
+    public static synchronized void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            try {
+                server.registerMBean(SHARED, name);
+            }
+            catch (InstanceAlreadyExistsException ex) {
+                // Registered by another class loader in the meantime
+            }
+        }
+    }
+
+    /**
+     * Withdraw the shared instance from the platform MBean server. Does nothing if it is not published.
+     *
+     * @throws JMException if the MBean cannot be unregistered
+     */
+    public static synchronized void unregisterMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(new ObjectName(OBJECT_NAME));
+        }
+        catch (InstanceNotFoundException ex) {
+            // Not published
+        }
+    }
+
+    /**
+     * Take a copy of the current figures
+     *
+     * @return The figures at this moment
+     */
+    public Snapshot snapshot() {
+        long[] nanos = new long[phaseNanos.length];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = phaseNanos[i].sum();
+        }
+        return new Snapshot(directoriesListed.sum(), filesExamined.sum(), jarsOpened.sum(), jarEntriesScanned.sum(), patternEvaluations.sum(), bytesParsed.sum(), nanos);
+    }
+
+    @Override
+    public void reset() {
+        directoriesListed.reset();
+        filesExamined.reset();
+        jarsOpened.reset();
+        jarEntriesScanned.reset();
+        patternEvaluations.reset();
+        bytesParsed.reset();
+        for (LongAdder nanos : phaseNanos) {
+            nanos.reset();
+        }
+    }
+
+    @Override
+    public long getDirectoriesListed() {
+        return directoriesListed.sum();
+    }
+
+    @Override
+    public long getFilesExamined() {
+        return filesExamined.sum();
+    }
+
+    @Override
+    public long getJarsOpened() {
+        return jarsOpened.sum();
+    }
+
+    @Override
+    public long getJarEntriesScanned() {
+        return jarEntriesScanned.sum();
+    }
+
+    @Override
+    public long getPatternEvaluations() {
+        return patternEvaluations.sum();
+    }
+
+    @Override
+    public long getBytesParsed() {
+        return bytesParsed.sum();
+    }
+
+    @Override
+    public long getWalkMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos[Phase.WALK.ordinal()].sum());
+    }
+
+    @Override
+    public long getMatchMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos[Phase.MATCH.ordinal()].sum());
+    }
+
+    @Override
+    public long getLoadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos[Phase.LOAD.ordinal()].sum());
+    }
+
+    @Override
+    public long getMergeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos[Phase.MERGE.ordinal()].sum());
+    }
+
+    void directoryListed() {
+        directoriesListed.increment();
+    }
+
+    void fileExamined() {
+        filesExamined.increment();
+    }
+
+    void jarOpened() {
+        jarsOpened.increment();
+    }
+
+    void jarEntriesScanned(int count) {
+        jarEntriesScanned.add(count);
+    }
+
+    void patternEvaluations(int count) {
+        patternEvaluations.add(count);
+    }
+
+    void bytesParsed(long count) {
+        bytesParsed.add(count);
+    }
+
+    /**
+     * Add the time since a start time to a phase
+     *
+     * @param phase The phase
+     * @param startNanos Value of System.nanoTime() at the start
+     */
+    void addTime(Phase phase, long startNanos) {
+        phaseNanos[phase.ordinal()].add(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * The figures of a ScanMetrics at one moment
+     */
+    public static final class Snapshot {
+
+        private final long directoriesListed;
+
+        private final long filesExamined;
+
+        private final long jarsOpened;
+
+        private final long jarEntriesScanned;
+
+        private final long patternEvaluations;
+
+        private final long bytesParsed;
+
+        private final long[] phaseNanos;
+
+        Snapshot(long directoriesListed, long filesExamined, long jarsOpened, long jarEntriesScanned, long patternEvaluations, long bytesParsed, long[] phaseNanos) {
+            this.directoriesListed = directoriesListed;
+            this.filesExamined = filesExamined;
+            this.jarsOpened = jarsOpened;
+            this.jarEntriesScanned = jarEntriesScanned;
+            this.patternEvaluations = patternEvaluations;
+            this.bytesParsed = bytesParsed;
+            this.phaseNanos = phaseNanos;
+        }
+
+        /**
+         * Get the work done between an earlier snapshot and this one
+         *
+         * @param earlier Snapshot taken before this one
+         * @return The difference of the two snapshots
+         */
+        public Snapshot since(Snapshot earlier) {
+            long[] nanos = new long[phaseNanos.length];
+            for (int i = 0; i < nanos.length; i++) {
+                nanos[i] = phaseNanos[i] - earlier.phaseNanos[i];
+            }
+            return new Snapshot(directoriesListed - earlier.directoriesListed, filesExamined - earlier.filesExamined, jarsOpened - earlier.jarsOpened,
+                    jarEntriesScanned - earlier.jarEntriesScanned, patternEvaluations - earlier.patternEvaluations, bytesParsed - earlier.bytesParsed, nanos);
+        }
+
+        public long getDirectoriesListed() {
+            return directoriesListed;
+        }
+
+        public long getFilesExamined() {
+            return filesExamined;
+        }
+
+        public long getJarsOpened() {
+            return jarsOpened;
+        }
+
+        public long getJarEntriesScanned() {
+            return jarEntriesScanned;
+        }
+
+        public long getPatternEvaluations() {
+            return patternEvaluations;
+        }
+
+        public long getBytesParsed() {
+            return bytesParsed;
+        }
+
+        /**
+         * Get the time spent in a phase
+         *
+         * @param phase The phase
+         * @return Time in nanoseconds
+         */
+        public long getNanos(Phase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("directoriesListed=%d filesExamined=%d jarsOpened=%d jarEntriesScanned=%d patternEvaluations=%d bytesParsed=%d walk=%dms match=%dms load=%dms merge=%dms",
+                    directoriesListed, filesExamined, jarsOpened, jarEntriesScanned, patternEvaluations, bytesParsed,
+                    TimeUnit.NANOSECONDS.toMillis(getNanos(Phase.WALK)), TimeUnit.NANOSECONDS.toMillis(getNanos(Phase.MATCH)),
+                    TimeUnit.NANOSECONDS.toMillis(getNanos(Phase.LOAD)), TimeUnit.NANOSECONDS.toMillis(getNanos(Phase.MERGE)));
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+
+/**
+ * <p>Management interface of ScanMetrics, as seen in a JMX console under
+ * net.olioinfo.fileutils:type=ScanMetrics.</p>
+ *
+ * <p>Counts and times accumulate from the start of the JVM, or from the last call to reset().</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public interface ScanMetricsMBean {
+
+    /**
+     * @return Number of directories listed by traversals
+     */
+    long getDirectoriesListed();
+
+    /**
+     * @return Number of files handed to onFile by traversals, Jar files included
+     */
+    long getFilesExamined();
+
+    /**
+     * @return Number of Jar files opened, to scan their entries or to load property files from them
+     */
+    long getJarsOpened();
+
+    /**
+     * @return Number of entry names read from Jar files and nested archives, or from the Jar entry index
+     */
+    long getJarEntriesScanned();
+
+    /**
+     * @return Number of regular files and Jar entries checked against a file name pattern
+     */
+    long getPatternEvaluations();
+
+    /**
+     * @return Number of bytes of property files parsed
+     */
+    long getBytesParsed();
+
+    /**
+     * @return Time spent walking directory trees, matching included, in milliseconds
+     */
+    long getWalkMillis();
+
+    /**
+     * @return Time spent checking names against file name patterns, in milliseconds
+     */
+    long getMatchMillis();
+
+    /**
+     * @return Time spent reading and parsing property files, in milliseconds summed over threads
+     */
+    long getLoadMillis();
+
+    /**
+     * @return Time spent merging property files into combined properties, in milliseconds
+     */
+    long getMergeMillis();
+
+    /**
+     * Set every count and time back to zero
+     */
+    void reset();
+
+}
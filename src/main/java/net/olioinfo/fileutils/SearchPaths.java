@@ -0,0 +1,124 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * <p>A list of search paths normalized so that no file is reached from two of them.</p>
+ *
+ * <p>Each path is made absolute and normalized. Paths are compared by their real path, so a path reached through a
+ * symbolic link is recognized as the same as its target. When the results of the search paths are combined in
+ * order, the last occurrence of a file is the one that takes precedence, so overlaps are removed by keeping the
+ * last occurrence:</p>
+ *
+ * <ul>
+ *   <li>A search path equal to or inside a later search path is dropped, since the later path finds the same files
+ *   again.</li>
+ *   <li>A search path inside an earlier search path is kept, and the walk of the earlier path skips it, see
+ *   getNestedRoots().</li>
+ * </ul>
+ *
+ * <p>Combining the results of the normalized paths in order therefore gives the same outcome as combining the
+ * results of the original paths, without walking any tree twice or producing duplicate entries.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+final class SearchPaths {
+
+    private final List<Path> roots;
+
+    private final Set<Path> nestedRoots;
+
+    /**
+     * <p>Create an instance of SearchPaths.</p>
+     *
+     * @param paths Search paths, in precedence order
+     */
+    SearchPaths(List<String> paths) {
+        int count = paths.size();
+        Path[] normalized = new Path[count];
+        Path[] canonical = new Path[count];
+        for (int i = 0; i < count; i++) {
+            normalized[i] = Paths.get(paths.get(i)).toAbsolutePath().normalize();
+            canonical[i] = realPath(normalized[i]);
+        }
+
+        boolean[] kept = new boolean[count];
+        ArrayList<Path> keptRoots = new ArrayList<Path>();
+        for (int i = 0; i < count; i++) {
+            kept[i] = true;
+            for (int j = i + 1; j < count && kept[i]; j++) {
+                if (canonical[i].startsWith(canonical[j])) {
+                    kept[i] = false;
+                }
+            }
+            if (kept[i]) {
+                keptRoots.add(normalized[i]);
+            }
+        }
+
+        HashSet<Path> nested = new HashSet<Path>();
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (kept[i] && kept[j] && canonical[j].startsWith(canonical[i])) {
+                    nested.add(normalized[i].resolve(canonical[i].relativize(canonical[j])));
+                }
+            }
+        }
+
+        this.roots = Collections.unmodifiableList(keptRoots);
+        this.nestedRoots = Collections.unmodifiableSet(nested);
+    }
+
+    /**
+     * Get the search paths left once overlaps are removed
+     *
+     * @return Absolute, normalized search paths, in precedence order
+     */
+    List<Path> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Get the paths at which a walk of one of the roots reaches a later root. The walk must skip them, since the
+     * later root is walked on its own.
+     *
+     * @return Paths to skip, as reached by walking the roots
+     */
+    Set<Path> getNestedRoots() {
+        return nestedRoots;
+    }
+
+    private static Path realPath(Path path) {
+        try {
+            return path.toRealPath();
+        }
+        catch (IOException ex) {
+            return path;
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+
+/**
+ * <p>Flight recorder event for a traversal of a directory tree by AbstractFileTraverser.traverse(),
+ * traverseParallel() or traverseConcurrently().</p>
+ *
+ * <p>Only traversals lasting longer than the threshold, 20 ms unless the recording settings say otherwise, are
+ * recorded. While recording is off, a traversal pays for little more than a check of isEnabled().</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+@Name("net.olioinfo.fileutils.Traversal")
+@Label("Directory Traversal")
+@Category({ "olioinfo", "File Utilities" })
+@Description("Walk of a directory tree looking for files")
+@Threshold("20 ms")
+@StackTrace(false)
+final class TraversalEvent extends Event {
+
+    @Label("Path")
+    @Description("Starting point of the traversal")
+    String path;
+
+    @Label("Directories")
+    @Description("Number of directories listed")
+    long directoryCount;
+
+    @Label("Files")
+    @Description("Number of files examined")
+    long fileCount;
+
+    @Label("Bytes")
+    @Description("Total size of the files examined")
+    @DataAmount
+    long bytes;
+
+}
@@ -0,0 +1,148 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+
+/**
+ * <p>Tests the UTF-8 encoded names of the central directory of a zip file against LITERAL, PREFIX and SUFFIX
+ * patterns without decoding them.</p>
+ *
+ * <p>The literal of each pattern and the characters its wildcard part may not match are encoded once. A name then
+ * matches when its bytes start or end with the encoded literal and the rest of its bytes hold none of the encoded
+ * excluded characters. UTF-8 is self-synchronizing, so comparing bytes gives the same answer as comparing
+ * characters. Names are only decoded by the caller once they have matched.</p>
+ *
+ * <p>Patterns of kind REGEX have no byte form; of() returns null for a set of patterns holding one. Instances are
+ * immutable and may be shared between threads.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+final class Utf8NameMatcher {
+
+    private final FileNameMatcher.Kind[] kinds;
+
+    private final byte[][] literals;
+
+    private final byte[][][] excludedSequences;
+
+    private Utf8NameMatcher(List<FileNameMatcher> matchers) {
+        int count = matchers.size();
+        this.kinds = new FileNameMatcher.Kind[count];
+        this.literals = new byte[count][];
+        this.excludedSequences = new byte[count][][];
+        for (int i = 0; i < count; i++) {
+            FileNameMatcher matcher = matchers.get(i);
+            kinds[i] = matcher.getKind();
+            literals[i] = matcher.getLiteral().getBytes(StandardCharsets.UTF_8);
+            String excluded = matcher.getExcludedWildcardCharacters();
+            excludedSequences[i] = new byte[excluded.length()][];
+            for (int j = 0; j < excluded.length(); j++) {
+                excludedSequences[i][j] = String.valueOf(excluded.charAt(j)).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Build the byte form of a set of patterns
+     *
+     * @param matcher Patterns to test
+     * @return Matcher accepting the same names as the patterns, or null if one of them is a regular expression
+     */
+    static Utf8NameMatcher of(MultiPatternMatcher matcher) {
+        for (FileNameMatcher fileNameMatcher : matcher.getMatchers()) {
+            if (fileNameMatcher.getKind() == FileNameMatcher.Kind.REGEX) {
+                return null;
+            }
+        }
+        return new Utf8NameMatcher(matcher.getMatchers());
+    }
+
+    /**
+     * Test the name of the current entry of a central directory cursor
+     *
+     * @param cursor Cursor positioned on an entry
+     * @return true if the name matches at least one of the patterns
+     */
+    boolean matches(ZipCentralDirectory.Cursor cursor) {
+        return matches(cursor.getBuffer(), cursor.getNameOffset(), cursor.getNameLength());
+    }
+
+    /**
+     * Test an encoded name
+     *
+     * @param buffer Buffer holding the name
+     * @param offset Position of the first byte of the name
+     * @param length Length of the name in bytes
+     * @return true if the name matches at least one of the patterns
+     */
+    boolean matches(ByteBuffer buffer, int offset, int length) {
+        for (int i = 0; i < kinds.length; i++) {
+            byte[] literal = literals[i];
+            switch (kinds[i]) {
+                case LITERAL:
+                    if (length == literal.length && regionEquals(buffer, offset, literal)) {
+                        return true;
+                    }
+                    break;
+                case PREFIX:
+                    if (length >= literal.length && regionEquals(buffer, offset, literal)
+                            && !containsAny(buffer, offset + literal.length, offset + length, excludedSequences[i])) {
+                        return true;
+                    }
+                    break;
+                default:
+                    if (length >= literal.length && regionEquals(buffer, offset + length - literal.length, literal)
+                            && !containsAny(buffer, offset, offset + length - literal.length, excludedSequences[i])) {
+                        return true;
+                    }
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(ByteBuffer buffer, int offset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicate whether the bytes in [from, to) hold any of the sequences
+     */
+    private static boolean containsAny(ByteBuffer buffer, int from, int to, byte[][] sequences) {
+        if (sequences.length == 0) {
+            return false;
+        }
+        for (int position = from; position < to; position++) {
+            byte b = buffer.get(position);
+            for (byte[] sequence : sequences) {
+                if (sequence[0] == b && position + sequence.length <= to && regionEquals(buffer, position, sequence)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -40,6 +40,13 @@ public class VirtualFileEntry {
      */
     public static final Integer TYPE_FILE = 3;
 
+    /**
+     * Entry represents an entry of an archive nested inside a JAR file
+     *
+     * @since 0.7
+     */
+    public static final Integer TYPE_NESTED_JAR = 4;
+
     public Integer getFileType() {
         return fileType;
     }
@@ -64,6 +71,38 @@ public class VirtualFileEntry {
         this.relativeFilePath = relativeFilePath;
     }
 
+    /**
+     * @since 0.7
+     */
+    public String getNestedArchivePath() {
+        return nestedArchivePath;
+    }
+
+    /**
+     * @since 0.7
+     */
+    public void setNestedArchivePath(String nestedArchivePath) {
+        this.nestedArchivePath = nestedArchivePath;
+    }
+
+    /**
+     * Get the full path of this entry, with the names of any archives it is in separated by "!/", for example
+     * /apps/shop.war!/WEB-INF/lib/config.jar!/config.properties
+     *
+     * @return Full path of the entry
+     * @since 0.7
+     */
+    public String getVirtualPath() {
+        StringBuilder virtualPath = new StringBuilder(absoluteFilePath);
+        if (nestedArchivePath != null) {
+            virtualPath.append(ZipCentralDirectory.NESTED_SEPARATOR).append(nestedArchivePath);
+        }
+        if (relativeFilePath != null && !TYPE_FILE.equals(fileType) && !TYPE_DIR.equals(fileType)) {
+            virtualPath.append(ZipCentralDirectory.NESTED_SEPARATOR).append(relativeFilePath);
+        }
+        return virtualPath.toString();
+    }
+
     /**
      * Type of this virtual file entry
      *
@@ -81,6 +120,11 @@ public class VirtualFileEntry {
      */
     private String relativeFilePath;
 
+    /**
+     * Entry names of the archives holding this entry inside the Jar file, outermost first, separated by "!/"
+     */
+    private String nestedArchivePath;
+
 
     
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+/**
+ * <p>A lazy iterator over the matching file entries in one or more directory trees.</p>
+ *
+ * <p>Uses the includeFile selection criteria of an AbstractFileAndJarTraverser and produces entries in the same order
+ * as traverse() would add them to its file list. Directories are only listed, and Jar files only opened, when the
+ * caller asks for more entries, so a caller that stops early never touches the rest of the trees. Each Jar file is
+ * scanned as a whole and closed before its matching entries are returned.</p>
+ *
+ * <p>Instances are obtained from AbstractFileAndJarTraverser.iterator().</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public class VirtualFileEntryIterator implements Iterator<VirtualFileEntry>, Closeable {
+
+    private final AbstractFileAndJarTraverser traverser;
+
+    private final Iterator<Path> roots;
+
+    private FileTreeIterator files = null;
+
+    private Iterator<VirtualFileEntry> pendingEntries = null;
+
+    private VirtualFileEntry nextEntry = null;
+
+    private boolean closed = false;
+
+    /**
+     * <p>Create an instance of VirtualFileEntryIterator.</p>
+     *
+     * @param traverser Traverser supplying the selection criteria
+     * @param roots Starting points of the traversal
+     */
+    VirtualFileEntryIterator(AbstractFileAndJarTraverser traverser, List<Path> roots) {
+        this.traverser = traverser;
+        this.roots = new ArrayList<Path>(roots).iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextEntry == null && !closed) {
+            advance();
+        }
+        return nextEntry != null;
+    }
+
+    @Override
+    public VirtualFileEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        VirtualFileEntry virtualFileEntry = nextEntry;
+        nextEntry = null;
+        return virtualFileEntry;
+    }
+
+    /**
+     * Release any directory streams still held open. The iterator produces no further entries.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pendingEntries = null;
+        if (files != null) {
+            files.close();
+            files = null;
+        }
+    }
+
+    /**
+     * Move forward to the next matching entry, walking further into the trees only as far as needed
+     */
+    private void advance() {
+        while (true) {
+            if (pendingEntries != null) {
+                if (pendingEntries.hasNext()) {
+                    nextEntry = pendingEntries.next();
+                    return;
+                }
+                pendingEntries = null;
+            }
+            if (files != null && files.hasNext()) {
+                Path file = files.next();
+                String path = file.toString();
+                if (traverser.isArchiveFile(path)) {
+                    pendingEntries = traverser.scanJar(path, files.getAttributes()).iterator();
+                }
+                else {
+                    VirtualFileEntry virtualFileEntry = traverser.matchFile(path, file.getFileName().toString());
+                    if (virtualFileEntry != null) {
+                        nextEntry = virtualFileEntry;
+                        return;
+                    }
+                }
+                continue;
+            }
+            if (files != null) {
+                files.close();
+                files = null;
+            }
+            if (!roots.hasNext()) {
+                close();
+                return;
+            }
+            files = new FileTreeIterator(roots.next(), traverser);
+        }
+    }
+
+}
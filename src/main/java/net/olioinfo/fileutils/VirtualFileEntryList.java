@@ -0,0 +1,275 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.RandomAccess;
+
+
+/**
+ * <p>A compact, append-only list of virtual file entries, for scans that find a great many of them.</p>
+ *
+ * <p>The entries are held in columns rather than as VirtualFileEntry objects. The type of each entry is a byte.
+ * Absolute paths and nested archive paths are stored once in a table of paths and referred to by index, so the
+ * entries of a Jar file share its path, and regular files share the path of their directory. Entry and file names
+ * are packed one after another into a single character array. A list of a million Jar entries therefore costs a
+ * few objects and about 13 bytes an entry plus its name, instead of a VirtualFileEntry, an entry name and a copy of
+ * the Jar file path for each.</p>
+ *
+ * <p>get() builds a new VirtualFileEntry each time it is called, so entries read back are equal but not identical
+ * to the ones added, and changing them does not change the list. The accessors taking an index read a single field
+ * without building the entry.</p>
+ *
+ * <p>Entries can only be appended. The list is not thread-safe; the traversers collecting into it lock the list
+ * while appending, so code sharing it with a running traversal must lock it too.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public class VirtualFileEntryList extends AbstractList<VirtualFileEntry> implements RandomAccess {
+
+    private static final int TYPE_MASK = 0x0f;
+
+    /** The absolute path is the stored path followed by the name */
+    private static final int PATH_ENDS_WITH_NAME = 0x10;
+
+    /** The entry has no name */
+    private static final int NO_NAME = 0x20;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size = 0;
+
+    private byte[] types = new byte[INITIAL_CAPACITY];
+
+    private int[] pathIndexes = new int[INITIAL_CAPACITY];
+
+    private int[] nestedArchivePathIndexes = new int[INITIAL_CAPACITY];
+
+    private int[] nameEnds = new int[INITIAL_CAPACITY];
+
+    private char[] names = new char[INITIAL_CAPACITY * 32];
+
+    private int namesLength = 0;
+
+    private final ArrayList<String> paths = new ArrayList<String>();
+
+    private final HashMap<String, Integer> pathIndex = new HashMap<String, Integer>();
+
+    /**
+     * <p>Create an empty instance of VirtualFileEntryList.</p>
+     */
+    public VirtualFileEntryList() {
+    }
+
+    /**
+     * Append an entry. The list keeps the values of the entry, not the entry itself.
+     *
+     * @param virtualFileEntry Entry to append
+     * @return true
+     * @throws IllegalArgumentException if the file type of the entry is not one of the VirtualFileEntry types
+     */
+    @Override
+    public boolean add(VirtualFileEntry virtualFileEntry) {
+        add(virtualFileEntry.getFileType(), virtualFileEntry.getAbsoluteFilePath(), virtualFileEntry.getRelativeFilePath(), virtualFileEntry.getNestedArchivePath());
+        return true;
+    }
+
+    /**
+     * Append an entry given its values, without building a VirtualFileEntry
+     *
+     * @param fileType Type of the entry, one of the VirtualFileEntry types, or null
+     * @param absoluteFilePath Absolute path of the file or Jar file
+     * @param relativeFilePath Name of the file, or of the entry in the Jar file
+     * @param nestedArchivePath Nested archive path, or null if the entry is not in a nested archive
+     * @throws IllegalArgumentException if fileType is not one of the VirtualFileEntry types
+     */
+    public void add(Integer fileType, String absoluteFilePath, String relativeFilePath, String nestedArchivePath) {
+        int typeCode = fileType == null ? 0 : fileType;
+        if (typeCode < 0 || typeCode > TYPE_MASK) {
+            throw new IllegalArgumentException("Unknown file type " + fileType);
+        }
+        int flags = typeCode;
+        String path = absoluteFilePath;
+        if (relativeFilePath == null) {
+            flags |= NO_NAME;
+        }
+        else if (absoluteFilePath != null && absoluteFilePath.length() > relativeFilePath.length() && absoluteFilePath.endsWith(relativeFilePath)
+                && (VirtualFileEntry.TYPE_FILE.equals(fileType) || VirtualFileEntry.TYPE_DIR.equals(fileType))) {
+            path = absoluteFilePath.substring(0, absoluteFilePath.length() - relativeFilePath.length());
+            flags |= PATH_ENDS_WITH_NAME;
+        }
+
+        if (size == types.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+            types = Arrays.copyOf(types, capacity);
+            pathIndexes = Arrays.copyOf(pathIndexes, capacity);
+            nestedArchivePathIndexes = Arrays.copyOf(nestedArchivePathIndexes, capacity);
+            nameEnds = Arrays.copyOf(nameEnds, capacity);
+        }
+        if (relativeFilePath != null) {
+            int length = relativeFilePath.length();
+            if (namesLength + length > names.length) {
+                names = Arrays.copyOf(names, Math.max(namesLength + length, names.length + (names.length >> 1)));
+            }
+            relativeFilePath.getChars(0, length, names, namesLength);
+            namesLength += length;
+        }
+
+        types[size] = (byte) flags;
+        pathIndexes[size] = indexOf(path);
+        nestedArchivePathIndexes[size] = indexOf(nestedArchivePath);
+        nameEnds[size] = namesLength;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Build the entry at a position
+     *
+     * @param index Position of the entry
+     * @return A new VirtualFileEntry holding the values of the entry
+     */
+    @Override
+    public VirtualFileEntry get(int index) {
+        VirtualFileEntry virtualFileEntry = new VirtualFileEntry();
+        virtualFileEntry.setFileType(getFileType(index));
+        virtualFileEntry.setAbsoluteFilePath(getAbsoluteFilePath(index));
+        virtualFileEntry.setRelativeFilePath(getRelativeFilePath(index));
+        virtualFileEntry.setNestedArchivePath(getNestedArchivePath(index));
+        return virtualFileEntry;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the type of the entry at a position
+     *
+     * @param index Position of the entry
+     * @return One of the VirtualFileEntry types, or null if the entry has no type
+     */
+    public Integer getFileType(int index) {
+        checkIndex(index);
+        int typeCode = types[index] & TYPE_MASK;
+        return typeCode == 0 ? null : Integer.valueOf(typeCode);
+    }
+
+    /**
+     * Get the absolute path of the entry at a position
+     *
+     * @param index Position of the entry
+     * @return Absolute path of the file or Jar file
+     */
+    public String getAbsoluteFilePath(int index) {
+        checkIndex(index);
+        String path = pathAt(pathIndexes[index]);
+        if ((types[index] & PATH_ENDS_WITH_NAME) != 0) {
+            int nameStart = nameStart(index);
+            return new StringBuilder(path.length() + nameEnds[index] - nameStart).append(path).append(names, nameStart, nameEnds[index] - nameStart).toString();
+        }
+        return path;
+    }
+
+    /**
+     * Get the name of the entry at a position
+     *
+     * @param index Position of the entry
+     * @return Name of the file, or of the entry in the Jar file
+     */
+    public String getRelativeFilePath(int index) {
+        checkIndex(index);
+        if ((types[index] & NO_NAME) != 0) {
+            return null;
+        }
+        int nameStart = nameStart(index);
+        return new String(names, nameStart, nameEnds[index] - nameStart);
+    }
+
+    /**
+     * Get the nested archive path of the entry at a position
+     *
+     * @param index Position of the entry
+     * @return Nested archive path, or null if the entry is not in a nested archive
+     */
+    public String getNestedArchivePath(int index) {
+        checkIndex(index);
+        return pathAt(nestedArchivePathIndexes[index]);
+    }
+
+    /**
+     * Get the full path of the entry at a position, see VirtualFileEntry.getVirtualPath()
+     *
+     * @param index Position of the entry
+     * @return Full path of the entry
+     */
+    public String getVirtualPath(int index) {
+        return get(index).getVirtualPath();
+    }
+
+    /**
+     * Get the number of different paths stored for the entries, absolute paths and nested archive paths together
+     *
+     * @return Number of paths stored
+     */
+    public int getPathCount() {
+        return paths.size();
+    }
+
+    /**
+     * Release the spare capacity of the columns
+     */
+    public void trimToSize() {
+        types = Arrays.copyOf(types, size);
+        pathIndexes = Arrays.copyOf(pathIndexes, size);
+        nestedArchivePathIndexes = Arrays.copyOf(nestedArchivePathIndexes, size);
+        nameEnds = Arrays.copyOf(nameEnds, size);
+        names = Arrays.copyOf(names, namesLength);
+    }
+
+    private int nameStart(int index) {
+        return index == 0 ? 0 : nameEnds[index - 1];
+    }
+
+    private int indexOf(String path) {
+        if (path == null) {
+            return -1;
+        }
+        Integer index = pathIndex.get(path);
+        if (index == null) {
+            index = paths.size();
+            paths.add(path);
+            pathIndex.put(path, index);
+        }
+        return index;
+    }
+
+    private String pathAt(int index) {
+        return index < 0 ? null : paths.get(index);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * <p>Creates the threads of a concurrent traversal, which spend most of their time blocked on the file system.</p>
+ *
+ * <p>On Java 21 and later each task runs on its own virtual thread, so a thread blocked listing a directory on a
+ * network file system does not hold a carrier thread. The library is compiled for Java 11, so the virtual thread
+ * executor is looked up by reflection. On earlier Java versions the tasks run on a fixed pool of daemon platform
+ * threads instead.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    private VirtualThreads() {
+    }
+
+    private static Method findVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }
+        catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Indicate whether this Java runtime provides virtual threads
+     *
+     * @return true if newExecutor() runs tasks on virtual threads
+     */
+    static boolean isAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor for a fixed number of long-running tasks
+     *
+     * @param threadCount Number of tasks that will be submitted
+     * @param name Prefix of the names of the platform threads, when virtual threads are not available
+     * @return An executor running each task on a virtual thread, or on a pool of threadCount daemon threads
+     */
+    static ExecutorService newExecutor(final int threadCount, final String name) {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            }
+            catch (ReflectiveOperationException ex) {
+                // Fall back to platform threads, for example when virtual threads are a disabled preview feature
+            }
+        }
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, name + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,798 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.fileutils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+
+/**
+ * <p>A lightweight reader for the central directory of a zip or Jar file.</p>
+ *
+ * <p>Only the end-of-central-directory record and the central directory itself are memory-mapped. Entries are read
+ * straight from the mapped buffer through a Cursor, without creating a JarEntry, reading the manifest or checking
+ * signatures. Zip64 archives and archives with data prepended to them are supported. Entry names are decoded as
+ * UTF-8, as java.util.jar.JarFile does.</p>
+ *
+ * <p>The content of an entry can be read with getInputStream(), which maps just the region of that entry.</p>
+ *
+ * <p>A ZipCentralDirectory may be read by several threads, provided each uses its own Cursor. Close it to release
+ * the underlying file.</p>
+ *
+ * @author Tracy Flynn
+ * @version 0.7
+ * @since 0.7
+ */
+public class ZipCentralDirectory implements Closeable {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    private static final int END_SIZE = 22;
+
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+
+    private static final int ZIP64_END_SIZE = 56;
+
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+
+    /**
+     * Separator between the names of nested archives in a path such as "WEB-INF/lib/a.jar!/b.jar"
+     */
+    public static final String NESTED_SEPARATOR = "!/";
+
+    private static final Pattern NESTED_SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(NESTED_SEPARATOR));
+
+    /**
+     * Entry is stored without compression
+     */
+    public static final int METHOD_STORED = 0;
+
+    /**
+     * Entry is compressed with deflate
+     */
+    public static final int METHOD_DEFLATED = 8;
+
+    private final Source source;
+
+    private final ByteBuffer centralDirectory;
+
+    private final long entryCount;
+
+    private final long baseOffset;
+
+    /**
+     * Where the bytes of the archive come from: a file channel, or a buffer already in memory
+     */
+    private interface Source extends Closeable {
+
+        long size() throws IOException;
+
+        ByteBuffer map(long offset, long length) throws IOException;
+    }
+
+    private static class FileSource implements Source {
+
+        private final FileChannel channel;
+
+        FileSource(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        public ByteBuffer map(long offset, long length) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static class BufferSource implements Source {
+
+        private final ByteBuffer buffer;
+
+        BufferSource(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public long size() {
+            return buffer.remaining();
+        }
+
+        public ByteBuffer map(long offset, long length) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(buffer.position() + (int) offset);
+            slice.limit(buffer.position() + (int) (offset + length));
+            return slice.slice();
+        }
+
+        public void close() {
+            // Nothing to release
+        }
+    }
+
+    private ZipCentralDirectory(Source source) throws IOException {
+        this.source = source;
+
+        long archiveSize = source.size();
+        long tailSize = Math.min(archiveSize, END_SIZE + MAX_COMMENT_SIZE + ZIP64_LOCATOR_SIZE);
+        ByteBuffer tail = littleEndian(source.map(archiveSize - tailSize, tailSize));
+
+        int endPosition = findEnd(tail);
+        if (endPosition < 0) {
+            throw new ZipException("End of central directory record not found");
+        }
+
+        long count = tail.getShort(endPosition + 10) & 0xffff;
+        long directorySize = tail.getInt(endPosition + 12) & 0xffffffffL;
+        long directoryOffset = tail.getInt(endPosition + 16) & 0xffffffffL;
+        long directoryEnd = archiveSize - tailSize + endPosition;
+
+        int locatorPosition = endPosition - ZIP64_LOCATOR_SIZE;
+        if (locatorPosition >= 0 && tail.getInt(locatorPosition) == ZIP64_LOCATOR_SIGNATURE) {
+            long zip64EndOffset = tail.getLong(locatorPosition + 8);
+            long zip64EndPosition = directoryEnd - ZIP64_LOCATOR_SIZE - ZIP64_END_SIZE;
+            if (zip64EndPosition < 0) {
+                throw new ZipException("Truncated zip64 end of central directory record");
+            }
+            ByteBuffer zip64End = littleEndian(source.map(zip64EndPosition, ZIP64_END_SIZE));
+            if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                // The record may follow a larger extensible data sector; trust the locator in that case
+                zip64EndPosition = zip64EndOffset;
+                zip64End = littleEndian(source.map(zip64EndPosition, ZIP64_END_SIZE));
+                if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                    throw new ZipException("Invalid zip64 end of central directory record");
+                }
+            }
+            count = zip64End.getLong(32);
+            directorySize = zip64End.getLong(40);
+            directoryOffset = zip64End.getLong(48);
+            directoryEnd = zip64EndPosition;
+        }
+
+        long directoryPosition = directoryEnd - directorySize;
+        if (directoryPosition < 0 || directorySize > Integer.MAX_VALUE) {
+            throw new ZipException("Invalid central directory size");
+        }
+        this.baseOffset = directoryPosition - directoryOffset;
+        this.entryCount = count;
+        this.centralDirectory = littleEndian(source.map(directoryPosition, directorySize));
+    }
+
+    /**
+     * Open a zip or Jar file and map its central directory
+     *
+     * @param path Path of the archive
+     * @return Reader for the archive
+     * @throws IOException if the file cannot be read or is not a zip archive
+     */
+    public static ZipCentralDirectory open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ZipCentralDirectory centralDirectory = new ZipCentralDirectory(new FileSource(channel));
+            ScanMetrics.getShared().jarOpened();
+            return centralDirectory;
+        }
+        catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        catch (RuntimeException ex) {
+            channel.close();
+            throw new ZipException(String.format("Invalid zip archive %s: %s", path, ex));
+        }
+    }
+
+    /**
+     * Read the central directory of an archive held in a buffer, for example a stored archive inside another one.
+     * The remaining bytes of the buffer must be exactly the archive.
+     *
+     * @param archive Buffer holding the archive
+     * @return Reader for the archive
+     * @throws IOException if the buffer does not hold a zip archive
+     */
+    public static ZipCentralDirectory read(ByteBuffer archive) throws IOException {
+        try {
+            return new ZipCentralDirectory(new BufferSource(archive));
+        }
+        catch (RuntimeException ex) {
+            throw new ZipException(String.format("Invalid zip archive: %s", ex));
+        }
+    }
+
+    /**
+     * Get the number of entries recorded in the end-of-central-directory record
+     *
+     * @return Number of entries
+     */
+    public long size() {
+        return entryCount;
+    }
+
+    /**
+     * Start iterating over the entries in central directory order
+     *
+     * @return A cursor positioned before the first entry
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Read the names of all entries
+     *
+     * @return Entry names in central directory order
+     * @throws ZipException if the central directory is malformed
+     */
+    public List<String> getEntryNames() throws ZipException {
+        ArrayList<String> entryNames = new ArrayList<String>((int) Math.min(entryCount, 1 << 20));
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            entryNames.add(cursor.getName());
+        }
+        return entryNames;
+    }
+
+    /**
+     * Read all entries
+     *
+     * @return Entries in central directory order
+     * @throws ZipException if the central directory is malformed
+     */
+    public List<Entry> getEntries() throws ZipException {
+        ArrayList<Entry> entries = new ArrayList<Entry>((int) Math.min(entryCount, 1 << 20));
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            entries.add(cursor.getEntry());
+        }
+        return entries;
+    }
+
+    /**
+     * Find an entry by name
+     *
+     * @param name Entry name
+     * @return The entry, or null if there is no entry of that name
+     * @throws ZipException if the central directory is malformed
+     */
+    public Entry getEntry(String name) throws ZipException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            if (cursor.nameEquals(nameBytes)) {
+                return cursor.getEntry();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the raw, possibly compressed, bytes of an entry
+     *
+     * @param entry Entry to read
+     * @return Buffer holding exactly the compressed data of the entry
+     * @throws IOException if the local header of the entry is invalid
+     */
+    public ByteBuffer getRawData(Entry entry) throws IOException {
+        long headerOffset = baseOffset + entry.getLocalHeaderOffset();
+        ByteBuffer header = littleEndian(source.map(headerOffset, LOCAL_HEADER_SIZE));
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException(String.format("Invalid local header for entry %s", entry.getName()));
+        }
+        long dataOffset = headerOffset + LOCAL_HEADER_SIZE + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+        if (entry.getCompressedSize() > Integer.MAX_VALUE) {
+            throw new ZipException(String.format("Entry %s is too large to map", entry.getName()));
+        }
+        return source.map(dataOffset, entry.getCompressedSize());
+    }
+
+    /**
+     * Open the content of an entry
+     *
+     * @param entry Entry to read
+     * @return Stream over the uncompressed content of the entry
+     * @throws IOException if the entry cannot be read or uses an unsupported compression method
+     */
+    public InputStream getInputStream(Entry entry) throws IOException {
+        InputStream raw = new ByteBufferInputStream(getRawData(entry));
+        switch (entry.getMethod()) {
+            case METHOD_STORED:
+                return raw;
+            case METHOD_DEFLATED:
+                final Inflater inflater = new Inflater(true);
+                return new InflaterInputStream(raw, inflater, 8192) {
+                    private boolean closed = false;
+
+                    @Override
+                    public void close() throws IOException {
+                        if (!closed) {
+                            closed = true;
+                            inflater.end();
+                            super.close();
+                        }
+                    }
+
+                    @Override
+                    protected void fill() throws IOException {
+                        int length = in.read(buf, 0, buf.length);
+                        if (length == -1) {
+                            // Raw deflate data may need one extra byte to signal its end
+                            buf[0] = 0;
+                            length = 1;
+                        }
+                        inf.setInput(buf, 0, length);
+                    }
+                };
+            default:
+                throw new ZipException(String.format("Unsupported compression method %d for entry %s", entry.getMethod(), entry.getName()));
+        }
+    }
+
+    /**
+     * Read the whole uncompressed content of an entry into a buffer. Stored entries are returned as a view of
+     * the archive without copying.
+     *
+     * @param entry Entry to read
+     * @return Buffer holding the uncompressed content
+     * @throws IOException if the entry cannot be read
+     */
+    public ByteBuffer getContent(Entry entry) throws IOException {
+        if (entry.getMethod() == METHOD_STORED) {
+            return getRawData(entry);
+        }
+        if (entry.getSize() > Integer.MAX_VALUE) {
+            throw new ZipException(String.format("Entry %s is too large to read into memory", entry.getName()));
+        }
+        byte[] content = new byte[(int) entry.getSize()];
+        InputStream in = getInputStream(entry);
+        try {
+            int offset = 0;
+            while (offset < content.length) {
+                int length = in.read(content, offset, content.length - offset);
+                if (length < 0) {
+                    throw new ZipException(String.format("Entry %s is shorter than recorded", entry.getName()));
+                }
+                offset += length;
+            }
+        }
+        finally {
+            in.close();
+        }
+        return ByteBuffer.wrap(content);
+    }
+
+    /**
+     * Read an archive held in an entry of this archive, such as a library Jar inside a war. A stored archive is read
+     * in place from this one without copying; a compressed one is inflated into memory.
+     *
+     * @param entry Entry holding the nested archive
+     * @return Reader for the nested archive
+     * @throws IOException if the entry cannot be read or does not hold a zip archive
+     */
+    public ZipCentralDirectory openNested(Entry entry) throws IOException {
+        return read(getContent(entry));
+    }
+
+    /**
+     * Read an archive nested one or more levels deep in this archive
+     *
+     * @param nestedArchivePath Entry names of the nested archives, outermost first, separated by "!/"
+     * @return Reader for the innermost archive
+     * @throws IOException if a nested archive cannot be found or read
+     */
+    public ZipCentralDirectory openNested(String nestedArchivePath) throws IOException {
+        ZipCentralDirectory archive = this;
+        for (String entryName : NESTED_SEPARATOR_PATTERN.split(nestedArchivePath)) {
+            Entry entry = archive.getEntry(entryName);
+            if (entry == null) {
+                throw new ZipException(String.format("Nested archive %s not found", entryName));
+            }
+            archive = archive.openNested(entry);
+        }
+        return archive;
+    }
+
+    /**
+     * Release the underlying file. Buffers already handed out remain readable.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    /**
+     * Locate the end-of-central-directory record, searching backwards over any archive comment
+     */
+    private static int findEnd(ByteBuffer tail) {
+        for (int position = tail.limit() - END_SIZE; position >= 0; position--) {
+            if (tail.getInt(position) == END_SIGNATURE) {
+                int commentLength = tail.getShort(position + 20) & 0xffff;
+                if (position + END_SIZE + commentLength <= tail.limit()) {
+                    return position;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer littleEndian(ByteBuffer buffer) {
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * <p>A position in the central directory. Field accessors read the current entry straight from the mapped
+     * buffer; nothing is allocated until getName() or getEntry() is called.</p>
+     */
+    public class Cursor {
+
+        private int position = -1;
+
+        private int nextPosition = 0;
+
+        private long size;
+
+        private long compressedSize;
+
+        private long localHeaderOffset;
+
+        /**
+         * Move to the next entry
+         *
+         * @return true if there is an entry, false at the end of the central directory
+         * @throws ZipException if the central directory is malformed
+         */
+        public boolean next() throws ZipException {
+            if (nextPosition + CENTRAL_HEADER_SIZE > centralDirectory.limit()) {
+                position = centralDirectory.limit();
+                return false;
+            }
+            if (centralDirectory.getInt(nextPosition) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException(String.format("Invalid central directory header at offset %d", nextPosition));
+            }
+            position = nextPosition;
+            nextPosition = position + CENTRAL_HEADER_SIZE + getNameLength() + extraLength() + (centralDirectory.getShort(position + 32) & 0xffff);
+            if (nextPosition > centralDirectory.limit()) {
+                throw new ZipException(String.format("Truncated central directory header at offset %d", position));
+            }
+            readSizes();
+            return true;
+        }
+
+        /**
+         * Get the length in bytes of the UTF-8 encoded name of the current entry
+         *
+         * @return Name length
+         */
+        public int getNameLength() {
+            return centralDirectory.getShort(position + 28) & 0xffff;
+        }
+
+        /**
+         * Get the position of the first byte of the name of the current entry in getBuffer()
+         *
+         * @return Offset of the name
+         */
+        public int getNameOffset() {
+            return position + CENTRAL_HEADER_SIZE;
+        }
+
+        /**
+         * Get the mapped central directory that getNameOffset() refers to. The buffer must not be modified.
+         *
+         * @return Central directory buffer
+         */
+        public ByteBuffer getBuffer() {
+            return centralDirectory;
+        }
+
+        /**
+         * Decode the name of the current entry
+         *
+         * @return Entry name
+         */
+        public String getName() {
+            int length = getNameLength();
+            byte[] name = new byte[length];
+            ByteBuffer buffer = centralDirectory.duplicate();
+            buffer.position(getNameOffset());
+            buffer.get(name, 0, length);
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Compare the name of the current entry with UTF-8 encoded bytes, without decoding it
+         *
+         * @param name Encoded name
+         * @return true if the names are equal
+         */
+        public boolean nameEquals(byte[] name) {
+            if (name.length != getNameLength()) {
+                return false;
+            }
+            int offset = getNameOffset();
+            for (int i = 0; i < name.length; i++) {
+                if (centralDirectory.get(offset + i) != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Test whether the name of the current entry starts with UTF-8 encoded bytes, without decoding it
+         *
+         * @param prefix Encoded prefix
+         * @return true if the name starts with the prefix
+         */
+        public boolean nameStartsWith(byte[] prefix) {
+            return prefix.length <= getNameLength() && regionEquals(getNameOffset(), prefix);
+        }
+
+        /**
+         * Test whether the name of the current entry ends with UTF-8 encoded bytes, without decoding it
+         *
+         * @param suffix Encoded suffix
+         * @return true if the name ends with the suffix
+         */
+        public boolean nameEndsWith(byte[] suffix) {
+            int length = getNameLength();
+            return suffix.length <= length && regionEquals(getNameOffset() + length - suffix.length, suffix);
+        }
+
+        private boolean regionEquals(int offset, byte[] bytes) {
+            for (int i = 0; i < bytes.length; i++) {
+                if (centralDirectory.get(offset + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Indicate whether the current entry is a directory, that is whether its name ends with '/'
+         *
+         * @return true for a directory entry
+         */
+        public boolean isDirectory() {
+            int length = getNameLength();
+            return length > 0 && centralDirectory.get(getNameOffset() + length - 1) == '/';
+        }
+
+        /**
+         * Get the uncompressed size of the current entry
+         *
+         * @return Size in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Get the compressed size of the current entry
+         *
+         * @return Size in bytes
+         */
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        /**
+         * Get the CRC-32 of the uncompressed content of the current entry
+         *
+         * @return CRC-32 value
+         */
+        public long getCrc() {
+            return centralDirectory.getInt(position + 16) & 0xffffffffL;
+        }
+
+        /**
+         * Get the compression method of the current entry
+         *
+         * @return METHOD_STORED, METHOD_DEFLATED or another method code
+         */
+        public int getMethod() {
+            return centralDirectory.getShort(position + 10) & 0xffff;
+        }
+
+        /**
+         * Get the offset of the local header of the current entry, as recorded in the archive
+         *
+         * @return Local header offset
+         */
+        public long getLocalHeaderOffset() {
+            return localHeaderOffset;
+        }
+
+        /**
+         * Copy the current entry into a value object
+         *
+         * @return Entry
+         */
+        public Entry getEntry() {
+            return new Entry(getName(), getSize(), getCompressedSize(), getCrc(), getMethod(), getLocalHeaderOffset());
+        }
+
+        private int extraLength() {
+            return centralDirectory.getShort(position + 30) & 0xffff;
+        }
+
+        /**
+         * Read the sizes and local header offset, taking them from the zip64 extra field where the header holds
+         * the 0xffffffff marker
+         */
+        private void readSizes() throws ZipException {
+            compressedSize = centralDirectory.getInt(position + 20) & 0xffffffffL;
+            size = centralDirectory.getInt(position + 24) & 0xffffffffL;
+            localHeaderOffset = centralDirectory.getInt(position + 42) & 0xffffffffL;
+            if (size != 0xffffffffL && compressedSize != 0xffffffffL && localHeaderOffset != 0xffffffffL) {
+                return;
+            }
+            int extra = getNameOffset() + getNameLength();
+            int extraEnd = extra + extraLength();
+            while (extra + 4 <= extraEnd) {
+                int id = centralDirectory.getShort(extra) & 0xffff;
+                int length = centralDirectory.getShort(extra + 2) & 0xffff;
+                if (id == ZIP64_EXTRA_ID) {
+                    int field = extra + 4;
+                    int fieldEnd = Math.min(field + length, extraEnd);
+                    if (size == 0xffffffffL && field + 8 <= fieldEnd) {
+                        size = centralDirectory.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == 0xffffffffL && field + 8 <= fieldEnd) {
+                        compressedSize = centralDirectory.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == 0xffffffffL && field + 8 <= fieldEnd) {
+                        localHeaderOffset = centralDirectory.getLong(field);
+                    }
+                    return;
+                }
+                extra += 4 + length;
+            }
+        }
+    }
+
+    /**
+     * The central directory record of one entry
+     */
+    public static class Entry {
+
+        private final String name;
+
+        private final long size;
+
+        private final long compressedSize;
+
+        private final long crc;
+
+        private final int method;
+
+        private final long localHeaderOffset;
+
+        Entry(String name, long size, long compressedSize, long crc, int method, long localHeaderOffset) {
+            this.name = name;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.crc = crc;
+            this.method = method;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public long getLocalHeaderOffset() {
+            return localHeaderOffset;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+
+    /**
+     * An InputStream reading the remaining bytes of a buffer
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+    }
+
+}
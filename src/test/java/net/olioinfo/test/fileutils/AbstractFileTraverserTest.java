@@ -17,10 +17,27 @@ package net.olioinfo.test.fileutils;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import net.olioinfo.fileutils.AbstractFileAndJarTraverser;
 import net.olioinfo.fileutils.AbstractFileTraverser;
+import net.olioinfo.fileutils.MatchingFileTraverser;
+import net.olioinfo.fileutils.VirtualFileEntry;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 
 
@@ -88,8 +105,494 @@ public class AbstractFileTraverserTest  extends TestCase {
 
     }
 
+    /**
+     * Traversal using the Path hooks should see the same files with their attributes
+     */
+    public void testAbstractFileTraverserPathHooks()
+    {
+        final ArrayList<String> fileList = new ArrayList<String>();
 
-}
 
+        class PathTraverser extends AbstractFileTraverser {
+
+            @Override
+            public void onDirectory(Path d, BasicFileAttributes attributes) {
+                assertTrue("Directory hook should only see directories", attributes.isDirectory());
+            }
+
+            @Override
+            public void onFile(Path f, BasicFileAttributes attributes) {
+                assertFalse("File hook should not see directories", attributes.isDirectory());
+                if (f.toString().endsWith("properties")) {
+                    if (f.getFileName().toString().startsWith("fileutils")) {
+                        fileList.add(f.toString());
+                    }
+                }
+            }
+
+            @Override
+            public void onDirectory(File d) {
+                fail("File hooks should not be called when the Path hooks are overridden");
+            }
+
+            @Override
+            public void onFile(File f) {
+                fail("File hooks should not be called when the Path hooks are overridden");
+            }
+        }
+
+        try {
+            PathTraverser pathTraverser = new PathTraverser();
+            pathTraverser.traverse(Paths.get(System.getProperty("user.dir"), "src"));
+        }
+        catch (Exception ex) {
+            System.out.format("testAbstractFileTraverserPathHooks exception %s\n",ex.toString());
+            ex.printStackTrace(System.out);
+        }
+        assertTrue("There should be four matching files", fileList.size() == 4);
+
+    }
+
+    /**
+     * Parallel traversal should find the same files as the serial traversal
+     */
+    public void testAbstractFileTraverserParallel()
+    {
+        final List<String> fileList = Collections.synchronizedList(new ArrayList<String>());
+
+
+        class FileTraverser extends AbstractFileTraverser {
+
+
+            @Override
+            public void onDirectory(File d) {
+            }
+
+            @Override
+            public void onFile(File f) {
+                if (f.getAbsolutePath().endsWith("properties")) {
+                    if (f.getName().startsWith("fileutils")) {
+                        fileList.add(f.getAbsolutePath());
+                    }
+                }
+            }
+        }
+
+        try {
+            FileTraverser fileTraverser = new FileTraverser();
+            fileTraverser.traverseParallel(new File(String.format("%s/src",System.getProperty("user.dir"))), 4);
+        }
+        catch (Exception ex) {
+            System.out.format("testAbstractFileTraverserParallel exception %s\n",ex.toString());
+            ex.printStackTrace(System.out);
+        }
+        assertTrue("There should be four matching files", fileList.size() == 4);
+
+    }
+
+    /**
+     * Subclasses overriding only the File hooks should still have them called by the walk
+     */
+    public void testLegacyFileHooksAreCalled() throws IOException
+    {
+        final Path root = Files.createTempDirectory("legacy-hooks");
+        try {
+            Files.createDirectories(root.resolve("conf"));
+            Files.write(root.resolve("conf/legacy.properties"), new byte[0]);
+            ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(root.resolve("conf/legacy.jar")));
+            try {
+                out.putNextEntry(new ZipEntry("legacy-entry.properties"));
+                out.closeEntry();
+            }
+            finally {
+                out.close();
+            }
+
+            final Set<String> files = Collections.synchronizedSet(new HashSet<String>());
+            final Set<String> directories = Collections.synchronizedSet(new HashSet<String>());
+
+            class LegacyFileAndJarTraverser extends AbstractFileAndJarTraverser {
+
+                @Override
+                public void onFile(File f) {
+                    files.add(f.getName());
+                    super.onFile(f);
+                }
+
+                @Override
+                public void onDirectory(File d) {
+                    directories.add(d.getName());
+                    super.onDirectory(d);
+                }
+
+                @Override
+                public boolean includeFile(VirtualFileEntry virtualFileEntry) {
+                    return virtualFileEntry.getRelativeFilePath().endsWith(".properties");
+                }
+
+                @Override
+                public boolean includeDirectory(VirtualFileEntry virtualFileEntry) {
+                    return true;
+                }
+            }
+
+            LegacyFileAndJarTraverser fileAndJarTraverser = new LegacyFileAndJarTraverser();
+            fileAndJarTraverser.setJarEntryIndex(null);
+            fileAndJarTraverser.traverse(root);
+            assertEquals(new HashSet<String>(Arrays.asList("legacy.properties", "legacy.jar")), files);
+            assertEquals(new HashSet<String>(Arrays.asList(root.getFileName().toString(), "conf")), directories);
+            assertEquals(2, fileAndJarTraverser.getFileList().size());
+            assertEquals(2, fileAndJarTraverser.getDirectoryList().size());
+
+            files.clear();
+            directories.clear();
+            new LegacyFileAndJarTraverser().traverseParallel(root.toFile(), 2);
+            assertEquals(2, files.size());
+            assertEquals(2, directories.size());
+
+            class LegacyMatchingTraverser extends MatchingFileTraverser {
+
+                @Override
+                public void onFile(File f) {
+                    files.add(f.getName());
+                    super.onFile(f);
+                }
+
+                @Override
+                public void onDirectory(File d) {
+                    directories.add(d.getName());
+                }
+            }
+
+            files.clear();
+            directories.clear();
+            LegacyMatchingTraverser matchingTraverser = new LegacyMatchingTraverser();
+            matchingTraverser.setMatchingString(".*\\.properties$");
+            matchingTraverser.traverse(root);
+            assertEquals(new HashSet<String>(Arrays.asList("legacy.properties", "legacy.jar")), files);
+            assertEquals(new HashSet<String>(Arrays.asList(root.getFileName().toString(), "conf")), directories);
+            assertEquals(1, matchingTraverser.getFileList().size());
+        }
+        finally {
+            TemporaryFiles.deleteTree(root);
+        }
+    }
+
+    /**
+     * Excluded directories and directories beyond the maximum depth should never be listed
+     */
+    public void testPrunedDirectoriesAreNotListed() throws IOException
+    {
+        final Path root = Files.createTempDirectory("pruned-traversal");
+        try {
+            for (String file : new String[] { "top.txt", ".git/objects/ab/object.txt", "node_modules/left-pad/index.txt",
+                                              "src/main/source.txt", "src/node_modules/nested.txt", "build/tmp/temporary.txt",
+                                              "src/build/tmp/kept.txt", "src/main/deep/deeper/deepest.txt" }) {
+                Path path = root.resolve(file);
+                Files.createDirectories(path.getParent());
+                Files.write(path, new byte[0]);
+            }
+
+            final Set<String> directories = Collections.synchronizedSet(new HashSet<String>());
+            final Set<String> files = Collections.synchronizedSet(new HashSet<String>());
+
+            class PruningTraverser extends AbstractFileTraverser {
+
+                @Override
+                public void onDirectory(Path d, BasicFileAttributes attributes) {
+                    directories.add(relative(root, d));
+                }
+
+                @Override
+                public void onFile(Path f, BasicFileAttributes attributes) {
+                    files.add(relative(root, f));
+                }
+
+                @Override
+                public void onDirectory(File d) {
+                }
+
+                @Override
+                public void onFile(File f) {
+                }
+            }
+
+            PruningTraverser traverser = new PruningTraverser();
+            traverser.setExcludedDirectories(Arrays.asList(".git", "node_modules", "build/tmp"));
+            traverser.setMaxDepth(3);
+
+            Set<String> expectedFiles = new HashSet<String>(Arrays.asList("top.txt", "src/main/source.txt", "src/build/tmp/kept.txt"));
+            Set<String> expectedDirectories = new HashSet<String>(Arrays.asList("", "src", "src/main", "src/main/deep", "build", "src/build", "src/build/tmp"));
 
+            traverser.traverse(root);
+            assertEquals(expectedFiles, files);
+            assertEquals(expectedDirectories, directories);
+
+            files.clear();
+            directories.clear();
+            traverser.traverseParallel(root.toFile(), 4);
+            assertEquals(expectedFiles, files);
+            assertEquals(expectedDirectories, directories);
+
+            files.clear();
+            directories.clear();
+            traverser.traverseConcurrently(root, 4);
+            assertEquals(expectedFiles, files);
+            assertEquals(expectedDirectories, directories);
+
+            AbstractFileAndJarTraverser fileAndJarTraverser = new AbstractFileAndJarTraverser() {
+
+                @Override
+                public boolean includeFile(VirtualFileEntry virtualFileEntry) {
+                    return true;
+                }
+
+                @Override
+                public boolean includeDirectory(VirtualFileEntry virtualFileEntry) {
+                    return virtualFileEntry.getRelativeFilePath().equals("tmp");
+                }
+            };
+            fileAndJarTraverser.setExcludedDirectories(Arrays.asList(".git", "node_modules", "build/tmp"));
+            fileAndJarTraverser.setMaxDepth(3);
 
+            Set<String> iterated = new HashSet<String>();
+            Iterator<VirtualFileEntry> entries = fileAndJarTraverser.iterator(Collections.singletonList(root));
+            while (entries.hasNext()) {
+                iterated.add(relative(root, Paths.get(entries.next().getAbsoluteFilePath())));
+            }
+            assertEquals(expectedFiles, iterated);
+
+            fileAndJarTraverser.traverse(root);
+            assertEquals(3, fileAndJarTraverser.getFileList().size());
+            assertEquals(1, fileAndJarTraverser.getDirectoryList().size());
+            assertEquals(root.resolve("src/build/tmp").toString(), fileAndJarTraverser.getDirectoryList().get(0).getAbsoluteFilePath());
+        }
+        finally {
+            TemporaryFiles.deleteTree(root);
+        }
+    }
+
+    /**
+     * Each link policy should terminate on a link loop, and follow-once should scan a linked Jar file only once
+     */
+    public void testLinkPolicies() throws IOException
+    {
+        final Path root = Files.createTempDirectory("linked-traversal");
+        try {
+            Path real = Files.createDirectories(root.resolve("real"));
+            Files.write(real.resolve("conf.txt"), new byte[0]);
+            ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(real.resolve("lib.jar")));
+            try {
+                out.putNextEntry(new ZipEntry("linked.properties"));
+                out.closeEntry();
+            }
+            finally {
+                out.close();
+            }
+            try {
+                Files.createSymbolicLink(root.resolve("current"), real);
+                Files.createSymbolicLink(real.resolve("loop"), root);
+                Files.createSymbolicLink(root.resolve("linked.jar"), real.resolve("lib.jar"));
+            }
+            catch (UnsupportedOperationException ex) {
+                // Symbolic links are not available on this file system
+                return;
+            }
+
+            // Matches for conf.txt and for the Jar entry under each policy
+            assertLinkPolicy(root, AbstractFileTraverser.LinkPolicy.FOLLOW_ONCE, 1, 1);
+            assertLinkPolicy(root, AbstractFileTraverser.LinkPolicy.NO_FOLLOW, 1, 2);
+            assertLinkPolicy(root, AbstractFileTraverser.LinkPolicy.FOLLOW, 2, 3);
+        }
+        finally {
+            TemporaryFiles.deleteTree(root);
+        }
+    }
+
+    private static void assertLinkPolicy(Path root, AbstractFileTraverser.LinkPolicy linkPolicy, int files, int jarEntries) throws IOException {
+        FileAndJarTraverser traverser = new FileAndJarTraverser();
+        traverser.setJarEntryIndex(null);
+        traverser.setLinkPolicy(linkPolicy);
+
+        traverser.traverse(root);
+        assertLinkPolicyMatches(linkPolicy, traverser.getFileList(), files, jarEntries);
+
+        ArrayList<VirtualFileEntry> iterated = new ArrayList<VirtualFileEntry>();
+        Iterator<VirtualFileEntry> entries = traverser.iterator(Collections.singletonList(root));
+        while (entries.hasNext()) {
+            iterated.add(entries.next());
+        }
+        assertLinkPolicyMatches(linkPolicy, iterated, files, jarEntries);
+
+        FileAndJarTraverser parallelTraverser = new FileAndJarTraverser();
+        parallelTraverser.setJarEntryIndex(null);
+        parallelTraverser.setLinkPolicy(linkPolicy);
+        parallelTraverser.traverseParallel(root.toFile(), 4);
+        assertLinkPolicyMatches(linkPolicy, parallelTraverser.getFileList(), files, jarEntries);
+
+        FileAndJarTraverser concurrentTraverser = new FileAndJarTraverser();
+        concurrentTraverser.setJarEntryIndex(null);
+        concurrentTraverser.setLinkPolicy(linkPolicy);
+        concurrentTraverser.traverseConcurrently(root, 4);
+        assertLinkPolicyMatches(linkPolicy, concurrentTraverser.getFileList(), files, jarEntries);
+    }
+
+    /**
+     * Concurrent traversal should find the same files and Jar entries as the serial traversal
+     */
+    public void testConcurrentTraversalFindsSameEntries() throws IOException
+    {
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setSeed(24L);
+        generator.setTreeSize(2000, 6);
+        generator.setJarCount(8);
+        generator.setEntriesPerJar(100);
+        CorpusGenerator.Corpus corpus = generator.generate();
+        try {
+            FileAndJarTraverser serialTraverser = new FileAndJarTraverser();
+            serialTraverser.setJarEntryIndex(null);
+            serialTraverser.traverse(corpus.getRoot());
+            Set<String> expected = virtualPaths(serialTraverser.getFileList());
+            assertTrue("The Jar entries should be found as well as the files", expected.size() > corpus.getFileCount());
+
+            for (int maxConcurrency : new int[] { 1, 3, 64 }) {
+                FileAndJarTraverser concurrentTraverser = new FileAndJarTraverser();
+                concurrentTraverser.setJarEntryIndex(null);
+                concurrentTraverser.traverseConcurrently(corpus.getRoot(), maxConcurrency);
+                assertEquals("maxConcurrency " + maxConcurrency, expected, virtualPaths(concurrentTraverser.getFileList()));
+                assertEquals("maxConcurrency " + maxConcurrency, serialTraverser.getFileList().size(), concurrentTraverser.getFileList().size());
+            }
+        }
+        finally {
+            corpus.delete();
+        }
+    }
+
+    /**
+     * Concurrent traversal should keep several visits in flight, but never more than the cap
+     */
+    public void testConcurrentTraversalRespectsCap() throws IOException
+    {
+        final Path root = Files.createTempDirectory("concurrent-traversal");
+        try {
+            for (int i = 0; i < 40; i++) {
+                Path directory = Files.createDirectories(root.resolve("d" + (i % 5)));
+                Files.write(directory.resolve("file-" + i + ".txt"), new byte[0]);
+            }
+            final AtomicInteger inFlight = new AtomicInteger();
+            final AtomicInteger maxInFlight = new AtomicInteger();
+            final AtomicInteger visited = new AtomicInteger();
+
+            class SlowTraverser extends AbstractFileTraverser {
+
+                @Override
+                public void onFile(Path f, BasicFileAttributes attributes) {
+                    int current = inFlight.incrementAndGet();
+                    maxInFlight.accumulateAndGet(current, Math::max);
+                    try {
+                        Thread.sleep(10);
+                    }
+                    catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inFlight.decrementAndGet();
+                    visited.incrementAndGet();
+                }
+
+                @Override
+                public void onDirectory(File d) {
+                }
+
+                @Override
+                public void onFile(File f) {
+                }
+            }
+
+            new SlowTraverser().traverseConcurrently(root, 4);
+            assertEquals(40, visited.get());
+            assertTrue("Several files should be visited at once, at most " + maxInFlight.get(), maxInFlight.get() > 1);
+            assertTrue("No more than four files should be visited at once, up to " + maxInFlight.get(), maxInFlight.get() <= 4);
+
+            try {
+                new SlowTraverser().traverseConcurrently(root, 0);
+                fail("A cap below one should be rejected");
+            }
+            catch (IllegalArgumentException ex) {
+                // Expected
+            }
+        }
+        finally {
+            TemporaryFiles.deleteTree(root);
+        }
+    }
+
+    /**
+     * A failure in a hook should end a concurrent traversal and be thrown to the caller
+     */
+    public void testConcurrentTraversalFailure() throws IOException
+    {
+        final Path root = Files.createTempDirectory("failed-traversal");
+        try {
+            for (int i = 0; i < 20; i++) {
+                Files.write(root.resolve("file-" + i + ".txt"), new byte[0]);
+            }
+
+            class FailingTraverser extends AbstractFileTraverser {
+
+                @Override
+                public void onFile(Path f, BasicFileAttributes attributes) {
+                    if (f.getFileName().toString().equals("file-7.txt")) {
+                        throw new IllegalStateException("Cannot visit " + f.getFileName());
+                    }
+                }
+
+                @Override
+                public void onDirectory(File d) {
+                }
+
+                @Override
+                public void onFile(File f) {
+                }
+            }
+
+            try {
+                new FailingTraverser().traverseConcurrently(root, 4);
+                fail("The failure of onFile should be thrown");
+            }
+            catch (IllegalStateException ex) {
+                assertEquals("Cannot visit file-7.txt", ex.getMessage());
+            }
+        }
+        finally {
+            TemporaryFiles.deleteTree(root);
+        }
+    }
+
+    private static Set<String> virtualPaths(List<VirtualFileEntry> entries) {
+        Set<String> paths = new HashSet<String>();
+        for (VirtualFileEntry entry : entries) {
+            paths.add(entry.getVirtualPath());
+        }
+        return paths;
+    }
+
+    private static void assertLinkPolicyMatches(AbstractFileTraverser.LinkPolicy linkPolicy, List<VirtualFileEntry> entries, int files, int jarEntries) {
+        int foundFiles = 0;
+        int foundJarEntries = 0;
+        for (VirtualFileEntry entry : entries) {
+            if (entry.getFileType().equals(VirtualFileEntry.TYPE_FILE) && entry.getAbsoluteFilePath().endsWith("conf.txt")) {
+                foundFiles++;
+            }
+            if (entry.getFileType().equals(VirtualFileEntry.TYPE_JAR) && entry.getRelativeFilePath().equals("linked.properties")) {
+                foundJarEntries++;
+            }
+        }
+        assertEquals(linkPolicy + " files", files, foundFiles);
+        assertEquals(linkPolicy + " Jar entries", jarEntries, foundJarEntries);
+    }
+
+    private static String relative(Path root, Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+}
@@ -118,6 +118,35 @@ public class AbstractFleAndJarTraverserTest  extends TestCase {
 
     }
 
+    /**
+     * Parallel traversal should collect the same entries as the serial traversal
+     */
+    public void testAbstractFileAndJarTraverserParallel()
+    {
+        ArrayList<VirtualFileEntry> fileList = null;
+
+        try {
+            FileAndJarTraverser fileAndJarTraverser = new FileAndJarTraverser();
+            fileAndJarTraverser.traverseParallel(new File(String.format("%s/src/test/java",System.getProperty("user.dir"))), 4);
+            fileList = fileAndJarTraverser.getFileList();
+        }
+        catch (Exception ex) {
+            System.out.format("testAbstractFileAndJarTraverserParallel exception %s\n",ex.toString());
+            ex.printStackTrace(System.out);
+        }
+
+        FileAndJarTraverser serialTraverser = new FileAndJarTraverser();
+        try {
+            serialTraverser.traverse(new File(String.format("%s/src/test/java",System.getProperty("user.dir"))));
+        }
+        catch (Exception ex) {
+            System.out.format("testAbstractFileAndJarTraverserParallel exception %s\n",ex.toString());
+            ex.printStackTrace(System.out);
+        }
+        assertEquals("Parallel and serial traversal should find the same number of entries", serialTraverser.getFileList().size(), fileList.size());
+
+    }
+
 
 }
 
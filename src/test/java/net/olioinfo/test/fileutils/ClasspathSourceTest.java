@@ -0,0 +1,181 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.ClasspathSource;
+import net.olioinfo.fileutils.MatchingFileAndJarTraverser;
+import net.olioinfo.fileutils.VirtualFileEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class ClasspathSourceTest extends TestCase {
+
+    private static final String PACKAGE_PATH = "net/olioinfo/test/fileutils/";
+
+    private Path workDirectory;
+
+    private Path classes;
+
+    private Path application;
+
+    private Path library;
+
+    private Path plugin;
+
+    private URLClassLoader classLoader;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ClasspathSourceTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ClasspathSourceTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        workDirectory = Files.createTempDirectory("classpath-source").toRealPath();
+        classes = Files.createDirectories(workDirectory.resolve("classes"));
+        Files.createDirectories(classes.resolve(PACKAGE_PATH));
+        Files.write(classes.resolve(PACKAGE_PATH + "classpath-classes.properties"), new byte[0]);
+
+        Path lib = Files.createDirectories(workDirectory.resolve("lib"));
+        application = workDirectory.resolve("application.jar");
+        library = lib.resolve("library.jar");
+        plugin = lib.resolve("plugins dir").resolve("plugin.jar");
+        Files.createDirectories(plugin.getParent());
+
+        // application.jar -> library.jar -> plugin.jar -> library.jar, with a missing entry and a repeat on the way
+        writeJar(application, "lib/library.jar missing.jar lib/library.jar", PACKAGE_PATH + "classpath-application.properties");
+        writeJar(library, "plugins%20dir/plugin.jar", PACKAGE_PATH + "classpath-library.properties");
+        writeJar(plugin, "../library.jar ../../application.jar", PACKAGE_PATH + "classpath-plugin.properties");
+
+        classLoader = new URLClassLoader(new URL[] { classes.toUri().toURL(), application.toUri().toURL() }, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        classLoader.close();
+        ClasspathSource.invalidate(classLoader);
+        TemporaryFiles.deleteTree(workDirectory);
+    }
+
+    /**
+     * Test that the Class-Path chains of the manifests are followed, each root listed once in class loading order
+     */
+    public void testFollowsManifestClassPath() {
+        List<String> paths = ClasspathSource.getPaths(classLoader);
+        assertEquals(Arrays.asList(classes.toString(), application.toString(), library.toString(), plugin.toString()), paths);
+    }
+
+    /**
+     * Test that the roots of a class loader are found once and then answered from the cache
+     */
+    public void testCachedPerClassLoader() throws IOException {
+        List<String> paths = ClasspathSource.getPaths(classLoader);
+        assertSame(paths, ClasspathSource.getPaths(classLoader));
+
+        // A change to the files is only seen once the cached roots are invalidated
+        writeJar(plugin, null, PACKAGE_PATH + "classpath-plugin.properties");
+        writeJar(library, null, PACKAGE_PATH + "classpath-library.properties");
+        assertSame(paths, ClasspathSource.getPaths(classLoader));
+        ClasspathSource.invalidate(classLoader);
+        assertEquals(Arrays.asList(classes.toString(), application.toString(), library.toString()), ClasspathSource.getPaths(classLoader));
+    }
+
+    /**
+     * Test that the system class loader lists the directory this test class was loaded from
+     */
+    public void testSystemClassLoader() throws Exception {
+        URL location = ClasspathSourceTest.class.getProtectionDomain().getCodeSource().getLocation();
+        String testClasses = Paths.get(location.toURI()).toString();
+        assertTrue("The test classes should be on the class path", ClasspathSource.getPaths(ClasspathSourceTest.class.getClassLoader()).contains(testClasses));
+        assertEquals(ClasspathSource.getPaths(ClassLoader.getSystemClassLoader()), ClasspathSource.getPaths(null));
+    }
+
+    /**
+     * Test that the files of a package are found in the Jar files reached through manifests
+     */
+    public void testFindFilesInPackage() {
+        List<String> found = new ArrayList<String>();
+        for (VirtualFileEntry virtualFileEntry : MatchingFileAndJarTraverser.findFilesInPackageFromClasspath(ClasspathSourceTest.class, classLoader, "classpath-.*\\.properties", null)) {
+            found.add(virtualFileEntry.getFileType() == VirtualFileEntry.TYPE_FILE ? new File(virtualFileEntry.getAbsoluteFilePath()).getName() : virtualFileEntry.getRelativeFilePath());
+        }
+        assertEquals(Arrays.asList("classpath-classes.properties",
+                                   PACKAGE_PATH + "classpath-application.properties",
+                                   PACKAGE_PATH + "classpath-library.properties",
+                                   PACKAGE_PATH + "classpath-plugin.properties"), found);
+
+        found.clear();
+        for (VirtualFileEntry virtualFileEntry : MatchingFileAndJarTraverser.findFilesFromPackageAndClasspath(ClasspathSourceTest.class, classLoader, "classpath-.*\\.properties", null, 0)) {
+            found.add(virtualFileEntry.getRelativeFilePath());
+        }
+        Collections.sort(found);
+        assertEquals(Arrays.asList(PACKAGE_PATH + "classpath-application.properties",
+                                   PACKAGE_PATH + "classpath-library.properties",
+                                   PACKAGE_PATH + "classpath-plugin.properties"), found);
+    }
+
+    private static void writeJar(Path jar, String classPath, String entryName) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (classPath != null) {
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+        }
+        JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest);
+        try {
+            out.putNextEntry(new ZipEntry(entryName));
+            out.closeEntry();
+        }
+        finally {
+            out.close();
+        }
+    }
+
+}
@@ -20,8 +20,20 @@ import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
 import net.olioinfo.fileutils.CombinedPropertyFileManager;
+import net.olioinfo.fileutils.MatchingFileAndJarTraverser;
+import net.olioinfo.fileutils.VirtualFileEntry;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 
 /**
@@ -64,6 +76,215 @@ public class CombinedPropertyFileLoaderTest extends TestCase {
 
      }
 
+    /**
+     * Loading with a pool of open Jar files should give the same result as opening each Jar file per entry
+     */
+    public void testPooledLoadMatchesSingleLoads()
+    {
+        String testDirectory = System.getProperty("user.dir") + "/src/test/java";
+        Properties combinedProps = CombinedPropertyFileManager.loadAndCombineProperties(testDirectory,".*properties$");
+
+        CombinedPropertyFileManager propertyFileManager = new CombinedPropertyFileManager();
+        ArrayList<String> paths = new ArrayList<String>();
+        paths.add(testDirectory);
+        propertyFileManager.setSearchPaths(paths);
+        propertyFileManager.setPropertyFileName(".*properties$");
+        Properties expectedProps = new Properties();
+        for (VirtualFileEntry virtualFileEntry : propertyFileManager.findAllFromPaths()) {
+            propertyFileManager.loadSingle(virtualFileEntry, expectedProps);
+        }
+
+        assertFalse(combinedProps.isEmpty());
+        assertEquals(expectedProps, combinedProps);
+    }
+
+    /**
+     * Test that a bound on open Jar files below 1 is rejected when it is set, and the previous bound kept
+     */
+    public void testMaxOpenJarFilesMustBePositive()
+    {
+        CombinedPropertyFileManager propertyFileManager = new CombinedPropertyFileManager();
+        propertyFileManager.setMaxOpenJarFiles(1);
+        try {
+            propertyFileManager.setMaxOpenJarFiles(0);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // Expected
+        }
+        assertEquals(1, propertyFileManager.getMaxOpenJarFiles());
+    }
+
+    /**
+     * Test that finding and loading in a single pass gives the same result as finding first and loading afterwards
+     */
+    public void testSinglePassLoadMatchesTwoPhaseLoad()
+    {
+        String testDirectory = System.getProperty("user.dir") + "/src/test/java";
+        ArrayList<String> paths = new ArrayList<String>();
+        paths.add(testDirectory);
+
+        CombinedPropertyFileManager twoPhaseManager = new CombinedPropertyFileManager();
+        twoPhaseManager.setSearchPaths(paths);
+        twoPhaseManager.setPropertyFileName(".*properties$");
+        Properties expectedProps = twoPhaseManager.loadAllFromPaths();
+
+        CombinedPropertyFileManager singlePassManager = new CombinedPropertyFileManager();
+        singlePassManager.setSearchPaths(paths);
+        singlePassManager.setPropertyFileName(".*properties$");
+        singlePassManager.setSinglePass(true);
+        assertEquals(expectedProps, singlePassManager.loadAllFromPaths());
+
+        CombinedPropertyFileManager unindexedManager = new CombinedPropertyFileManager();
+        unindexedManager.setSearchPaths(paths);
+        unindexedManager.setPropertyFileName(".*properties$");
+        unindexedManager.setJarEntryIndex(null);
+        unindexedManager.setSinglePass(true);
+        assertEquals(expectedProps, unindexedManager.loadAllFromPaths());
+
+        assertFalse(expectedProps.isEmpty());
+    }
+
+    /**
+     * Test that parsing in parallel gives the same result as a serial load, with later files overriding earlier ones
+     */
+    public void testParallelLoadMatchesSerialLoad() throws IOException
+    {
+        Path root = Files.createTempDirectory("combined-parallel");
+        try {
+            for (int i = 0; i < 120; i++) {
+                Path directory = Files.createDirectories(root.resolve("d" + (i % 7)).resolve("e" + (i % 5)));
+                String content = String.format("overlay.common=%d\noverlay.unique.%d=%d\noverlay.group.%d=%d\n", i, i, i, i % 10, i);
+                Files.write(directory.resolve("overlay-" + i + ".properties"), content.getBytes(StandardCharsets.ISO_8859_1));
+            }
+            ArrayList<String> paths = new ArrayList<String>();
+            paths.add(root.toString());
+            paths.add(System.getProperty("user.dir") + "/src/test/java");
+
+            CombinedPropertyFileManager serialManager = new CombinedPropertyFileManager();
+            serialManager.setSearchPaths(paths);
+            serialManager.setPropertyFileName(".*properties$");
+            Properties expectedProps = serialManager.loadAllFromPaths();
+
+            CombinedPropertyFileManager parallelManager = new CombinedPropertyFileManager();
+            parallelManager.setSearchPaths(paths);
+            parallelManager.setPropertyFileName(".*properties$");
+            parallelManager.setParallelism(8);
+            assertEquals(expectedProps, parallelManager.loadAllFromPaths());
+
+            CombinedPropertyFileManager singlePassManager = new CombinedPropertyFileManager();
+            singlePassManager.setSearchPaths(paths);
+            singlePassManager.setPropertyFileName(".*properties$");
+            singlePassManager.setParallelism(4);
+            singlePassManager.setSinglePass(true);
+            assertEquals(expectedProps, singlePassManager.loadAllFromPaths());
+
+            assertEquals(131, expectedProps.stringPropertyNames().stream().filter(name -> name.startsWith("overlay.")).count());
+        }
+        finally {
+            TemporaryFiles.deleteTree(root);
+        }
+    }
+
+    /**
+     * Searching package roots only should find the Jar entries at the package directory from the root of a Jar file,
+     * and not those deeper in it, such as those of an executable Jar file under BOOT-INF/classes/
+     */
+    public void testPackageRootsOnly() throws IOException
+    {
+        Path root = Files.createTempDirectory("combined-package");
+        try {
+            String packagePath = "net/olioinfo/test/fileutils/";
+            ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(root.resolve("package.jar")));
+            try {
+                out.putNextEntry(new ZipEntry(packagePath + "package-root.properties"));
+                out.write("package.shared=root\npackage.root=1\n".getBytes(StandardCharsets.ISO_8859_1));
+                out.closeEntry();
+                out.putNextEntry(new ZipEntry("BOOT-INF/classes/" + packagePath + "package-boot.properties"));
+                out.write("package.shared=boot\npackage.boot=2\n".getBytes(StandardCharsets.ISO_8859_1));
+                out.closeEntry();
+            }
+            finally {
+                out.close();
+            }
+            ArrayList<String> paths = new ArrayList<String>(Collections.singletonList(root.toString()));
+
+            Properties packageProps = CombinedPropertyFileManager.loadAndCombinePackageProperties(CombinedPropertyFileLoaderTest.class, paths, "package-.*\\.properties");
+            assertEquals("boot", packageProps.getProperty("package.shared"));
+            assertEquals("1", packageProps.getProperty("package.root"));
+
+            for (boolean singlePass : new boolean[] { false, true }) {
+                CombinedPropertyFileManager propertyFileManager = new CombinedPropertyFileManager();
+                propertyFileManager.setSearchPaths(paths);
+                propertyFileManager.setPropertyFileName("package-.*\\.properties");
+                propertyFileManager.setPackageClass(CombinedPropertyFileLoaderTest.class);
+                propertyFileManager.setJarEntryIndex(null);
+                propertyFileManager.setSinglePass(singlePass);
+                propertyFileManager.setPackageRootsOnly(true);
+                Properties rootProps = propertyFileManager.loadAllFromPackageAndPaths();
+                assertEquals("root", rootProps.getProperty("package.shared"));
+                assertNull(rootProps.getProperty("package.boot"));
+                assertEquals(2, rootProps.size());
+            }
+        }
+        finally {
+            TemporaryFiles.deleteTree(root);
+        }
+    }
+
+    /**
+     * Overlapping search paths should be walked once each, with the same precedence as walking them separately
+     */
+    public void testOverlappingSearchPathsKeepPrecedence() throws IOException
+    {
+        Path root = Files.createTempDirectory("combined-overlap");
+        try {
+            Path app = root.resolve("app");
+            Path conf = Files.createDirectories(app.resolve("conf"));
+            Path other = Files.createDirectories(app.resolve("other"));
+            Files.write(app.resolve("overlap-app.properties"), "overlap.shared=app\noverlap.app=1\n".getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(conf.resolve("overlap-conf.properties"), "overlap.shared=conf\noverlap.conf=2\n".getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(other.resolve("overlap-other.properties"), "overlap.shared=other\noverlap.other=3\n".getBytes(StandardCharsets.ISO_8859_1));
+
+            String[][] orders = {
+                { app.toString(), conf.toString() },
+                { conf.toString(), app.toString() },
+                { app.toString(), conf.toString(), app.toString() + "/" },
+                { conf.toString() + "/../conf", app.toString(), other.toString(), root.resolve("missing").toString() },
+            };
+            for (String[] order : orders) {
+                ArrayList<String> paths = new ArrayList<String>(Arrays.asList(order));
+
+                // What loading each path separately and combining in order gives
+                Properties expectedProps = new Properties();
+                for (String path : paths) {
+                    expectedProps.putAll(CombinedPropertyFileManager.loadAndCombineProperties(new ArrayList<String>(Collections.singletonList(path)), ".*properties$"));
+                }
+
+                ArrayList<VirtualFileEntry> entries = MatchingFileAndJarTraverser.findFilesFromPaths(paths, ".*properties$");
+                HashSet<String> distinctPaths = new HashSet<String>();
+                for (VirtualFileEntry entry : entries) {
+                    assertTrue("Duplicate entry " + entry.getVirtualPath(), distinctPaths.add(entry.getVirtualPath()));
+                }
+                assertEquals(3, entries.size());
+
+                CombinedPropertyFileManager propertyFileManager = new CombinedPropertyFileManager();
+                propertyFileManager.setSearchPaths(paths);
+                propertyFileManager.setPropertyFileName(".*properties$");
+                assertEquals(Arrays.toString(order), expectedProps, propertyFileManager.loadAllFromPaths());
+
+                CombinedPropertyFileManager singlePassManager = new CombinedPropertyFileManager();
+                singlePassManager.setSearchPaths(paths);
+                singlePassManager.setPropertyFileName(".*properties$");
+                singlePassManager.setSinglePass(true);
+                assertEquals(Arrays.toString(order), expectedProps, singlePassManager.loadAllFromPaths());
+            }
+        }
+        finally {
+            TemporaryFiles.deleteTree(root);
+        }
+    }
+
 //    /**
 //     * Test load with file name as regex
 //     */
@@ -0,0 +1,555 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+/**
+ * <p>Builds a synthetic corpus of directories, files and Jar files to scan, for stress tests and benchmarks.</p>
+ *
+ * <p>The same settings and seed always produce the same corpus, byte for byte. The corpus has two parts below the
+ * root: a tree directory, depth levels deep and width directories wide, and a lib directory of Jar files. Jar
+ * files may hold nested Jar files, stored or compressed, down to a given nesting depth.</p>
+ *
+ * <p>A share of the files, and of the Jar entries, are property files: some in the .properties format, the rest
+ * in the XML format of Properties.storeToXML. Property files are named after a small vocabulary, such as
+ * application.properties, application-dev.properties or logging.xml, so patterns can select some of them. Each
+ * property file defines propertiesPerFile keys of its own, "corpus.N.key.M", and the key "corpus.shared".</p>
+ *
+ * <p>generate() returns a Corpus describing what was written, including the virtual path of every property file,
+ * so a test can work out what a scan should find.</p>
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class CorpusGenerator {
+
+    private static final String[] PROPERTY_FILE_NAMES = { "application", "application-dev", "application-prod", "module", "logging", "messages", "database" };
+
+    private static final String[] DIRECTORY_NAMES = { "com", "org", "config", "conf", "resources", "module", "service", "util" };
+
+    private static final String[] OTHER_FILE_EXTENSIONS = { ".class", ".java", ".txt", ".html", ".png" };
+
+    private long seed = 1L;
+
+    private int depth = 3;
+
+    private int width = 4;
+
+    private int filesPerDirectory = 10;
+
+    private int maxFiles = Integer.MAX_VALUE;
+
+    private double propertyFileRatio = 0.2;
+
+    private double xmlRatio = 0.25;
+
+    private int propertiesPerFile = 5;
+
+    private int jarCount = 0;
+
+    private int entriesPerJar = 1000;
+
+    private int nestedJarsPerJar = 0;
+
+    private int nestedJarEntries = 100;
+
+    private int nestingDepth = 1;
+
+    /**
+     * A corpus written by generate()
+     */
+    public static class Corpus {
+
+        private final Path root;
+
+        private int directoryCount = 0;
+
+        private int fileCount = 0;
+
+        private final ArrayList<Path> jars = new ArrayList<Path>();
+
+        private int jarEntryCount = 0;
+
+        private int nestedJarCount = 0;
+
+        private final ArrayList<String> propertyFiles = new ArrayList<String>();
+
+        private int propertyFileIds = 0;
+
+        Corpus(Path root) {
+            this.root = root;
+        }
+
+        /**
+         * @return Root directory of the corpus
+         */
+        public Path getRoot() {
+            return root;
+        }
+
+        /**
+         * @return Directory holding the tree of regular files
+         */
+        public Path getTree() {
+            return root.resolve("tree");
+        }
+
+        /**
+         * @return Directory holding the Jar files
+         */
+        public Path getLib() {
+            return root.resolve("lib");
+        }
+
+        /**
+         * @return Number of directories in the tree, including the tree directory itself
+         */
+        public int getDirectoryCount() {
+            return directoryCount;
+        }
+
+        /**
+         * @return Number of regular files in the tree, property files included
+         */
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        /**
+         * @return The Jar files in the lib directory
+         */
+        public List<Path> getJars() {
+            return Collections.unmodifiableList(jars);
+        }
+
+        /**
+         * @return Number of entries in the Jar files, not counting the entries of nested Jar files
+         */
+        public int getJarEntryCount() {
+            return jarEntryCount;
+        }
+
+        /**
+         * @return Number of nested Jar files, at every nesting depth
+         */
+        public int getNestedJarCount() {
+            return nestedJarCount;
+        }
+
+        /**
+         * Get the virtual path of every property file, in the tree, in the Jar files and in nested Jar files. Regular
+         * files are given by absolute path; entries as in VirtualFileEntry.getVirtualPath(), for example
+         * "/corpus/lib/library-0.jar!/lib/nested-1.jar!/config/module-3.properties".
+         *
+         * @return Virtual paths of the property files, in the order they were written
+         */
+        public List<String> getPropertyFiles() {
+            return Collections.unmodifiableList(propertyFiles);
+        }
+
+        /**
+         * Select the property files whose name, the last part of their virtual path, matches a regular expression
+         *
+         * @param nameRegex Regular expression for the name
+         * @return Virtual paths of the matching property files
+         */
+        public List<String> getPropertyFiles(String nameRegex) {
+            ArrayList<String> matching = new ArrayList<String>();
+            for (String propertyFile : propertyFiles) {
+                String name = propertyFile.substring(Math.max(propertyFile.lastIndexOf('/'), propertyFile.lastIndexOf(java.io.File.separatorChar)) + 1);
+                if (name.matches(nameRegex)) {
+                    matching.add(propertyFile);
+                }
+            }
+            return matching;
+        }
+
+        /**
+         * Delete the corpus
+         *
+         * @throws IOException if an entry cannot be deleted
+         */
+        public void delete() throws IOException {
+            TemporaryFiles.deleteTree(root);
+        }
+    }
+
+    /**
+     * Write a corpus into a new temporary directory
+     *
+     * @return Description of the corpus
+     * @throws IOException if the corpus cannot be written
+     */
+    public Corpus generate() throws IOException {
+        return generate(Files.createTempDirectory("corpus"));
+    }
+
+    /**
+     * Write a corpus into a directory
+     *
+     * @param root Directory to write the corpus into. It is created if needed and should be empty.
+     * @return Description of the corpus
+     * @throws IOException if the corpus cannot be written
+     */
+    public Corpus generate(Path root) throws IOException {
+        Random random = new Random(seed);
+        Corpus corpus = new Corpus(root.toAbsolutePath());
+        writeTree(corpus, random);
+        Path lib = Files.createDirectories(corpus.getLib());
+        for (int i = 0; i < jarCount; i++) {
+            Path jar = lib.resolve("library-" + i + ".jar");
+            String virtualPath = jar.toString() + "!/";
+            byte[] content = buildJar(corpus, random, virtualPath, entriesPerJar, 0, true);
+            Files.write(jar, content);
+            corpus.jars.add(jar);
+        }
+        return corpus;
+    }
+
+    /**
+     * Write the tree breadth first, so that a limit on the number of files cuts off the deepest level
+     */
+    private void writeTree(Corpus corpus, Random random) throws IOException {
+        ArrayDeque<Path> directories = new ArrayDeque<Path>();
+        ArrayDeque<Integer> levels = new ArrayDeque<Integer>();
+        directories.add(Files.createDirectories(corpus.getTree()));
+        levels.add(0);
+        corpus.directoryCount++;
+        while (!directories.isEmpty() && corpus.fileCount < maxFiles) {
+            Path directory = directories.poll();
+            int level = levels.poll();
+            HashMap<String, Integer> namesUsed = new HashMap<String, Integer>();
+            for (int i = 0; i < filesPerDirectory && corpus.fileCount < maxFiles; i++) {
+                if (random.nextDouble() < propertyFileRatio) {
+                    String name = propertyFileName(random, namesUsed);
+                    Path file = directory.resolve(name);
+                    Files.write(file, propertyFileContent(corpus, random, name));
+                    corpus.propertyFiles.add(file.toString());
+                }
+                else {
+                    String extension = OTHER_FILE_EXTENSIONS[random.nextInt(OTHER_FILE_EXTENSIONS.length)];
+                    Files.write(directory.resolve("File" + corpus.fileCount + extension), otherFileContent(random));
+                }
+                corpus.fileCount++;
+            }
+            if (level < depth) {
+                for (int i = 0; i < width; i++) {
+                    String name = DIRECTORY_NAMES[random.nextInt(DIRECTORY_NAMES.length)] + "-" + i;
+                    directories.add(Files.createDirectory(directory.resolve(name)));
+                    levels.add(level + 1);
+                    corpus.directoryCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the content of a Jar file
+     *
+     * @param corpus Corpus to record the property files and counts in
+     * @param random Source of the choices
+     * @param virtualPrefix Virtual path of the Jar file followed by "!/"
+     * @param entryCount Number of entries, nested Jar files included
+     * @param nesting Nesting depth of this Jar file, 0 for a Jar file in the lib directory
+     * @param outermost true for a Jar file in the lib directory
+     * @return Content of the Jar file
+     */
+    private byte[] buildJar(Corpus corpus, Random random, String virtualPrefix, int entryCount, int nesting, boolean outermost) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        try {
+            int nestedJars = nesting < nestingDepth ? Math.min(nestedJarsPerJar, entryCount) : 0;
+            HashMap<String, Integer> namesUsed = new HashMap<String, Integer>();
+            for (int i = 0; i < entryCount - nestedJars; i++) {
+                if (random.nextDouble() < propertyFileRatio) {
+                    String name = "config/" + propertyFileName(random, namesUsed);
+                    writeEntry(out, name, propertyFileContent(corpus, random, name), false);
+                    corpus.propertyFiles.add(virtualPrefix + name);
+                }
+                else {
+                    String name = DIRECTORY_NAMES[random.nextInt(DIRECTORY_NAMES.length)] + "/p" + random.nextInt(100) + "/Class" + i + ".class";
+                    writeEntry(out, name, otherFileContent(random), false);
+                }
+            }
+            for (int i = 0; i < nestedJars; i++) {
+                String name = "lib/nested-" + i + ".jar";
+                byte[] nested = buildJar(corpus, random, virtualPrefix + name + "!/", nestedJarEntries, nesting + 1, false);
+                writeEntry(out, name, nested, random.nextBoolean());
+                corpus.nestedJarCount++;
+            }
+            if (outermost) {
+                corpus.jarEntryCount += entryCount;
+            }
+        }
+        finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    private String propertyFileName(Random random, HashMap<String, Integer> namesUsed) {
+        String baseName = PROPERTY_FILE_NAMES[random.nextInt(PROPERTY_FILE_NAMES.length)];
+        String extension = random.nextDouble() < xmlRatio ? ".xml" : ".properties";
+        Integer used = namesUsed.get(baseName + extension);
+        namesUsed.put(baseName + extension, used == null ? 1 : used + 1);
+        return used == null ? baseName + extension : baseName + "-" + used + extension;
+    }
+
+    private byte[] propertyFileContent(Corpus corpus, Random random, String name) throws IOException {
+        int id = corpus.propertyFileIds++;
+        if (name.endsWith(".xml")) {
+            Properties properties = new Properties();
+            properties.setProperty("corpus.shared", String.valueOf(id));
+            for (int i = 0; i < propertiesPerFile; i++) {
+                properties.setProperty("corpus." + id + ".key." + i, Long.toHexString(random.nextLong()));
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            properties.storeToXML(bytes, null);
+            return bytes.toByteArray();
+        }
+        StringBuilder content = new StringBuilder();
+        content.append("corpus.shared=").append(id).append('\n');
+        for (int i = 0; i < propertiesPerFile; i++) {
+            content.append("corpus.").append(id).append(".key.").append(i).append('=').append(Long.toHexString(random.nextLong())).append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] otherFileContent(Random random) {
+        byte[] content = new byte[16 + random.nextInt(48)];
+        random.nextBytes(content);
+        return content;
+    }
+
+    private static void writeEntry(ZipOutputStream out, String name, byte[] content, boolean stored) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        // A fixed time keeps the bytes of the Jar file the same from run to run
+        entry.setTime(0L);
+        if (stored) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(content);
+        out.closeEntry();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @param seed Seed of the choices made while generating. Defaults to 1
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @param depth Number of directory levels below the tree directory. Defaults to 3
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @param width Number of subdirectories of each directory above the last level. Defaults to 4
+     */
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getFilesPerDirectory() {
+        return filesPerDirectory;
+    }
+
+    /**
+     * @param filesPerDirectory Number of files in each directory. Defaults to 10
+     */
+    public void setFilesPerDirectory(int filesPerDirectory) {
+        this.filesPerDirectory = filesPerDirectory;
+    }
+
+    public int getMaxFiles() {
+        return maxFiles;
+    }
+
+    /**
+     * @param maxFiles Limit on the number of files in the tree. Defaults to no limit
+     */
+    public void setMaxFiles(int maxFiles) {
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Set the shape of the tree so that it holds a given number of files: ten files a directory and the given
+     * width, with as many levels as needed
+     *
+     * @param treeSize Number of files in the tree
+     * @param width Number of subdirectories of each directory, at least 2
+     */
+    public void setTreeSize(int treeSize, int width) {
+        int levels = 0;
+        long directories = 1;
+        long levelDirectories = 1;
+        while (directories * filesPerDirectory < treeSize) {
+            levelDirectories *= width;
+            directories += levelDirectories;
+            levels++;
+        }
+        this.width = width;
+        this.depth = levels;
+        this.maxFiles = treeSize;
+    }
+
+    public double getPropertyFileRatio() {
+        return propertyFileRatio;
+    }
+
+    /**
+     * @param propertyFileRatio Share of the files and Jar entries that are property files. Defaults to 0.2
+     */
+    public void setPropertyFileRatio(double propertyFileRatio) {
+        this.propertyFileRatio = propertyFileRatio;
+    }
+
+    public double getXmlRatio() {
+        return xmlRatio;
+    }
+
+    /**
+     * @param xmlRatio Share of the property files written in the XML format. Defaults to 0.25
+     */
+    public void setXmlRatio(double xmlRatio) {
+        this.xmlRatio = xmlRatio;
+    }
+
+    public int getPropertiesPerFile() {
+        return propertiesPerFile;
+    }
+
+    /**
+     * @param propertiesPerFile Number of keys of its own in each property file. Defaults to 5
+     */
+    public void setPropertiesPerFile(int propertiesPerFile) {
+        this.propertiesPerFile = propertiesPerFile;
+    }
+
+    public int getJarCount() {
+        return jarCount;
+    }
+
+    /**
+     * @param jarCount Number of Jar files in the lib directory. Defaults to 0
+     */
+    public void setJarCount(int jarCount) {
+        this.jarCount = jarCount;
+    }
+
+    public int getEntriesPerJar() {
+        return entriesPerJar;
+    }
+
+    /**
+     * @param entriesPerJar Number of entries of each Jar file in the lib directory, nested Jar files included.
+     * Defaults to 1000
+     */
+    public void setEntriesPerJar(int entriesPerJar) {
+        this.entriesPerJar = entriesPerJar;
+    }
+
+    public int getNestedJarsPerJar() {
+        return nestedJarsPerJar;
+    }
+
+    /**
+     * @param nestedJarsPerJar Number of Jar files nested in each Jar file above the nesting depth, as
+     * lib/nested-N.jar. About half are stored and half compressed. Defaults to 0
+     */
+    public void setNestedJarsPerJar(int nestedJarsPerJar) {
+        this.nestedJarsPerJar = nestedJarsPerJar;
+    }
+
+    public int getNestedJarEntries() {
+        return nestedJarEntries;
+    }
+
+    /**
+     * @param nestedJarEntries Number of entries of each nested Jar file. Defaults to 100
+     */
+    public void setNestedJarEntries(int nestedJarEntries) {
+        this.nestedJarEntries = nestedJarEntries;
+    }
+
+    public int getNestingDepth() {
+        return nestingDepth;
+    }
+
+    /**
+     * @param nestingDepth Number of levels of nested Jar files. Defaults to 1
+     */
+    public void setNestingDepth(int nestingDepth) {
+        this.nestingDepth = nestingDepth;
+    }
+
+    /**
+     * Write a small corpus to a directory from the command line, for example to inspect it
+     *
+     * @param args Target directory, optionally followed by a seed
+     * @throws IOException if the corpus cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        CorpusGenerator generator = new CorpusGenerator();
+        if (args.length > 1) {
+            generator.setSeed(Long.parseLong(args[1]));
+        }
+        generator.setJarCount(2);
+        generator.setNestedJarsPerJar(2);
+        Corpus corpus = generator.generate(Files.createDirectories(java.nio.file.Paths.get(args[0])));
+        OutputStream out = System.out;
+        out.write(String.format("%d directories, %d files, %d Jar files, %d property files%n", corpus.getDirectoryCount(), corpus.getFileCount(), corpus.getJars().size(), corpus.getPropertyFiles().size()).getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+}
@@ -0,0 +1,203 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.CombinedPropertyFileManager;
+import net.olioinfo.fileutils.MatchingFileAndJarTraverser;
+import net.olioinfo.fileutils.VirtualFileEntry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class CorpusGeneratorTest extends TestCase {
+
+    private static final String PROPERTY_FILES = ".*\\.(properties|xml)$";
+
+    private static final String PROFILE_FILES = ".*application-(dev|prod)\\.properties$";
+
+    private final ArrayList<CorpusGenerator.Corpus> corpora = new ArrayList<CorpusGenerator.Corpus>();
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public CorpusGeneratorTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( CorpusGeneratorTest.class );
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (CorpusGenerator.Corpus corpus : corpora) {
+            corpus.delete();
+        }
+    }
+
+    public void testSameSeedGivesSameCorpus() throws IOException {
+        CorpusGenerator.Corpus first = generate(smallGenerator(7L));
+        CorpusGenerator.Corpus second = generate(smallGenerator(7L));
+        CorpusGenerator.Corpus other = generate(smallGenerator(8L));
+
+        assertEquals(contents(first.getRoot()), contents(second.getRoot()));
+        assertFalse(contents(first.getRoot()).equals(contents(other.getRoot())));
+    }
+
+    public void testCountsDescribeTheCorpus() throws IOException {
+        CorpusGenerator generator = smallGenerator(3L);
+        CorpusGenerator.Corpus corpus = generate(generator);
+
+        int directories = 0;
+        int files = 0;
+        try (Stream<Path> tree = Files.walk(corpus.getTree())) {
+            for (Path path : (Iterable<Path>) tree::iterator) {
+                if (Files.isDirectory(path)) {
+                    directories++;
+                }
+                else {
+                    files++;
+                }
+            }
+        }
+        // 1 + 3 + 9 directories, 4 files in each
+        assertEquals(13, directories);
+        assertEquals(directories, corpus.getDirectoryCount());
+        assertEquals(52, files);
+        assertEquals(files, corpus.getFileCount());
+
+        assertEquals(2, corpus.getJars().size());
+        int entries = 0;
+        for (Path jar : corpus.getJars()) {
+            try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+                entries += zipFile.size();
+            }
+        }
+        assertEquals(2 * generator.getEntriesPerJar(), entries);
+        assertEquals(entries, corpus.getJarEntryCount());
+        // 2 nested in each Jar file, 2 more in each of those
+        assertEquals(12, corpus.getNestedJarCount());
+        assertFalse(corpus.getPropertyFiles(".*\\.xml$").isEmpty());
+        assertFalse(corpus.getPropertyFiles(".*\\.properties$").isEmpty());
+    }
+
+    public void testMaxFilesLimitsTheTree() throws IOException {
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setTreeSize(250, 10);
+        CorpusGenerator.Corpus corpus = generate(generator);
+
+        assertEquals(250, corpus.getFileCount());
+        assertEquals(2, generator.getDepth());
+    }
+
+    public void testTraverserFindsEveryPropertyFile() throws IOException {
+        CorpusGenerator generator = smallGenerator(11L);
+        CorpusGenerator.Corpus corpus = generate(generator);
+        ArrayList<String> paths = new ArrayList<String>(Arrays.asList(corpus.getTree().toString(), corpus.getLib().toString()));
+
+        for (String regex : Arrays.asList(PROPERTY_FILES, PROFILE_FILES)) {
+            ArrayList<VirtualFileEntry> found = MatchingFileAndJarTraverser.findFilesFromPaths(paths, Arrays.asList(regex), null, generator.getNestingDepth());
+            HashSet<String> foundPaths = new HashSet<String>();
+            for (VirtualFileEntry entry : found) {
+                foundPaths.add(entry.getVirtualPath());
+            }
+            List<String> expected = corpus.getPropertyFiles(regex);
+            assertEquals(expected.size(), found.size());
+            assertEquals(new HashSet<String>(expected), foundPaths);
+        }
+    }
+
+    public void testManagerLoadsEveryPropertyFile() throws IOException {
+        CorpusGenerator generator = smallGenerator(13L);
+        CorpusGenerator.Corpus corpus = generate(generator);
+
+        for (boolean singlePass : new boolean[] { false, true }) {
+            CombinedPropertyFileManager manager = new CombinedPropertyFileManager();
+            manager.setSearchPaths(new ArrayList<String>(Arrays.asList(corpus.getTree().toString(), corpus.getLib().toString())));
+            manager.setPropertyFileName(PROPERTY_FILES);
+            manager.setJarEntryIndex(null);
+            manager.setNestedArchiveDepth(generator.getNestingDepth());
+            manager.setSinglePass(singlePass);
+            Properties properties = manager.loadAllFromPaths();
+
+            int propertyFiles = corpus.getPropertyFiles(PROPERTY_FILES).size();
+            assertEquals(propertyFiles * generator.getPropertiesPerFile() + 1, properties.size());
+            assertNotNull(properties.getProperty("corpus.shared"));
+        }
+    }
+
+    private CorpusGenerator smallGenerator(long seed) {
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setSeed(seed);
+        generator.setDepth(2);
+        generator.setWidth(3);
+        generator.setFilesPerDirectory(4);
+        generator.setPropertyFileRatio(0.5);
+        generator.setXmlRatio(0.3);
+        generator.setJarCount(2);
+        generator.setEntriesPerJar(40);
+        generator.setNestedJarsPerJar(2);
+        generator.setNestedJarEntries(10);
+        generator.setNestingDepth(2);
+        return generator;
+    }
+
+    private CorpusGenerator.Corpus generate(CorpusGenerator generator) throws IOException {
+        CorpusGenerator.Corpus corpus = generator.generate();
+        corpora.add(corpus);
+        return corpus;
+    }
+
+    /**
+     * Map the relative path of each file below a root to its content
+     */
+    private static TreeMap<String, String> contents(Path root) throws IOException {
+        TreeMap<String, String> contents = new TreeMap<String, String>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String content = Files.isDirectory(path) ? "" : Arrays.toString(Files.readAllBytes(path));
+                contents.put(root.relativize(path).toString(), content);
+            }
+        }
+        return contents;
+    }
+
+}
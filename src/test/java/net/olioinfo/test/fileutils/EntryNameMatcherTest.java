@@ -0,0 +1,213 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.AbstractFileAndJarTraverser;
+import net.olioinfo.fileutils.JarEntryIndex;
+import net.olioinfo.fileutils.MatchingFileAndJarTraverser;
+import net.olioinfo.fileutils.MultiPatternMatcher;
+import net.olioinfo.fileutils.VirtualFileEntry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class EntryNameMatcherTest extends TestCase {
+
+    private static final String[] ENTRY_NAMES = {
+        "application.properties",
+        "config/application.properties",
+        "caf\u00e9.properties",
+        "\u00e9t\u00e9/caf\u00e9.properties",
+        "caf\u00e9.properties.bak",
+        "line\nbreak.properties",
+        "line\u2028separator.properties",
+        "config/\u00e9t\u00e9.xml",
+        "config/sub/deep.xml",
+        "\u65e5\u672c.properties",
+        "Main.class"
+    };
+
+    private Path workDirectory;
+
+    private Path jar;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public EntryNameMatcherTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( EntryNameMatcherTest.class );
+    }
+
+    /**
+     * Traverser accepting the Jar entries matched by a set of patterns, and counting the entries it is shown
+     */
+    static class CountingTraverser extends AbstractFileAndJarTraverser {
+
+        private final MultiPatternMatcher matcher;
+
+        private final boolean prefiltered;
+
+        private int examined = 0;
+
+        CountingTraverser(MultiPatternMatcher matcher, boolean prefiltered) {
+            this.matcher = matcher;
+            this.prefiltered = prefiltered;
+        }
+
+        @Override
+        public boolean includeFile(VirtualFileEntry virtualFileEntry) {
+            examined++;
+            return matcher.matches(virtualFileEntry.getRelativeFilePath());
+        }
+
+        @Override
+        public boolean includeDirectory(VirtualFileEntry virtualFileEntry) {
+            return false;
+        }
+
+        @Override
+        protected MultiPatternMatcher getEntryNameMatcher() {
+            return prefiltered ? matcher : null;
+        }
+
+        List<String> getEntryNames() {
+            ArrayList<String> entryNames = new ArrayList<String>();
+            for (VirtualFileEntry virtualFileEntry : getFileList()) {
+                entryNames.add(virtualFileEntry.getRelativeFilePath());
+            }
+            return entryNames;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        workDirectory = Files.createTempDirectory("entry-name-matcher");
+        jar = workDirectory.resolve("names.jar");
+        ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar));
+        try {
+            for (String entryName : ENTRY_NAMES) {
+                out.putNextEntry(new ZipEntry(entryName));
+                out.closeEntry();
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TemporaryFiles.deleteTree(workDirectory);
+    }
+
+    /**
+     * Test that matching the encoded names selects the same entries as matching the decoded names, and that only
+     * the selected entries reach includeFile
+     */
+    public void testSameEntriesAsDecodedNames() throws IOException {
+        List<MultiPatternMatcher> matchers = Arrays.asList(
+            MultiPatternMatcher.fromRegexes(Collections.singletonList("caf\u00e9\\.properties")),
+            MultiPatternMatcher.fromRegexes(Collections.singletonList(".*\\.properties$")),
+            MultiPatternMatcher.fromRegexes(Collections.singletonList("config/.*")),
+            MultiPatternMatcher.fromRegexes(Arrays.asList(".*\\.xml", "\u00e9t\u00e9/.*")),
+            MultiPatternMatcher.fromGlobs(Collections.singletonList("*.properties")),
+            MultiPatternMatcher.fromGlobs(Collections.singletonList("config/*")),
+            MultiPatternMatcher.fromGlobs(Collections.singletonList("**.xml")));
+        for (MultiPatternMatcher matcher : matchers) {
+            CountingTraverser decoding = new CountingTraverser(matcher, false);
+            decoding.traverse(jar);
+            CountingTraverser prefiltering = new CountingTraverser(matcher, true);
+            prefiltering.traverse(jar);
+
+            assertEquals("The same entries should be selected for " + matcher.getMatchers().get(0).getPattern(), decoding.getEntryNames(), prefiltering.getEntryNames());
+            assertEquals("Every entry should be decoded without a prefilter", ENTRY_NAMES.length, decoding.examined);
+            assertEquals("Only the selected entries should be decoded with a prefilter", prefiltering.getEntryNames().size(), prefiltering.examined);
+        }
+    }
+
+    /**
+     * Test that a regular expression, which has no byte form, falls back to decoding every name
+     */
+    public void testRegexFallsBackToDecoding() throws IOException {
+        MultiPatternMatcher matcher = MultiPatternMatcher.fromRegexes(Collections.singletonList(".*application-(dev|prod)\\.properties$"));
+        CountingTraverser traverser = new CountingTraverser(matcher, true);
+        traverser.traverse(jar);
+        assertEquals(ENTRY_NAMES.length, traverser.examined);
+        assertTrue(traverser.getEntryNames().isEmpty());
+    }
+
+    /**
+     * Test that nested Jar files found by scanning the central directory are matched like those read from a warm
+     * index
+     */
+    public void testNestedArchivesMatchIndexedScan() throws IOException {
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setSeed(17L);
+        generator.setTreeSize(0, 1);
+        generator.setJarCount(3);
+        generator.setEntriesPerJar(200);
+        generator.setNestedJarsPerJar(2);
+        generator.setNestedJarEntries(40);
+        generator.setNestingDepth(2);
+        CorpusGenerator.Corpus corpus = generator.generate(workDirectory.resolve("corpus"));
+
+        ArrayList<String> paths = new ArrayList<String>();
+        paths.add(corpus.getLib().toString());
+        List<String> regexes = Arrays.asList(".*\\.properties$", ".*\\.xml$");
+        JarEntryIndex index = new JarEntryIndex(workDirectory.resolve("jar-entries"));
+        List<String> expected = new ArrayList<String>();
+        for (String propertyFile : corpus.getPropertyFiles()) {
+            expected.add(propertyFile);
+        }
+        Collections.sort(expected);
+        for (JarEntryIndex jarEntryIndex : new JarEntryIndex[] { null, index, index }) {
+            List<String> found = new ArrayList<String>();
+            for (VirtualFileEntry virtualFileEntry : MatchingFileAndJarTraverser.findFilesFromPaths(paths, regexes, jarEntryIndex, 2)) {
+                found.add(virtualFileEntry.getVirtualPath());
+            }
+            Collections.sort(found);
+            assertEquals(expected, found);
+        }
+    }
+
+}
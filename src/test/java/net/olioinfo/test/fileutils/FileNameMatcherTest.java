@@ -0,0 +1,106 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.FileNameMatcher;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class FileNameMatcherTest extends TestCase {
+
+    private static final String[] NAMES = {
+            "fileutils-test-defaults.properties",
+            "test1/fileutils-test-defaults.properties",
+            "META-INF/MANIFEST.MF",
+            "properties",
+            "test-props.properties",
+            "test-props.properties.bak",
+            "line\nbreak.properties",
+            "",
+            "x.xml"
+    };
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public FileNameMatcherTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( FileNameMatcherTest.class );
+    }
+
+    public void testRegexFastPaths() {
+        assertEquals(FileNameMatcher.Kind.SUFFIX, FileNameMatcher.regex(".*properties$").getKind());
+        assertEquals(FileNameMatcher.Kind.SUFFIX, FileNameMatcher.regex(".*\\.properties").getKind());
+        assertEquals(FileNameMatcher.Kind.PREFIX, FileNameMatcher.regex("^META-INF/.*").getKind());
+        assertEquals(FileNameMatcher.Kind.LITERAL, FileNameMatcher.regex("test-props\\.properties").getKind());
+        assertEquals(FileNameMatcher.Kind.LITERAL, FileNameMatcher.regex("\\Qtest-props.properties\\E").getKind());
+        assertEquals(FileNameMatcher.Kind.REGEX, FileNameMatcher.regex(".*fileutils-test-.*\\.properties$").getKind());
+        assertEquals(FileNameMatcher.Kind.REGEX, FileNameMatcher.regex(".*\\d\\.properties").getKind());
+    }
+
+    public void testRegexSameAsPattern() {
+        String[] regexes = {
+                ".*properties$", ".*\\.properties", "^META-INF/.*", "test-props\\.properties", ".*",
+                ".*fileutils-test-.*\\.properties$", "\\Qtest-props.properties\\E", "properties", "test.*\\.bak"
+        };
+        for (String regex : regexes) {
+            FileNameMatcher matcher = FileNameMatcher.regex(regex);
+            Pattern pattern = Pattern.compile(regex);
+            for (String name : NAMES) {
+                assertEquals(String.format("%s against '%s'", regex, name), pattern.matcher(name).matches(), matcher.matches(name));
+            }
+        }
+    }
+
+    public void testGlobSameAsPathMatcher() {
+        String[] globs = { "*.properties", "**.properties", "META-INF/*", "properties", "*", "test?props.{properties,xml}", "[tx]*" };
+        for (String glob : globs) {
+            FileNameMatcher matcher = FileNameMatcher.glob(glob);
+            PathMatcher pathMatcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+            for (String name : NAMES) {
+                if (name.isEmpty() || name.contains("\n")) {
+                    continue;
+                }
+                assertEquals(String.format("%s against '%s'", glob, name), pathMatcher.matches(Paths.get(name)), matcher.matches(name));
+            }
+        }
+        assertEquals(FileNameMatcher.Kind.SUFFIX, FileNameMatcher.glob("*.properties").getKind());
+        assertEquals(FileNameMatcher.Kind.PREFIX, FileNameMatcher.glob("META-INF/**").getKind());
+    }
+
+}
@@ -0,0 +1,154 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.CombinedPropertyFileManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class FlightRecorderEventsTest extends TestCase {
+
+    private static final String PROPERTY_FILES = ".*\\.(properties|xml)$";
+
+    private CorpusGenerator.Corpus corpus;
+
+    private Path recordingFile;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public FlightRecorderEventsTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( FlightRecorderEventsTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setSeed(17L);
+        generator.setDepth(2);
+        generator.setWidth(3);
+        generator.setFilesPerDirectory(5);
+        generator.setJarCount(2);
+        generator.setEntriesPerJar(30);
+        corpus = generator.generate();
+        recordingFile = Files.createTempFile("fileutils", ".jfr");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        corpus.delete();
+        Files.deleteIfExists(recordingFile);
+    }
+
+    public void testEventsCarryPathsAndCounts() throws Exception {
+        CombinedPropertyFileManager manager = new CombinedPropertyFileManager();
+        manager.setSearchPaths(new ArrayList<String>(Arrays.asList(corpus.getTree().toString(), corpus.getLib().toString())));
+        manager.setPropertyFileName(PROPERTY_FILES);
+        manager.setJarEntryIndex(null);
+
+        List<RecordedEvent> events = record(manager, Duration.ZERO);
+
+        RecordedEvent treeTraversal = null;
+        HashSet<String> scannedJars = new HashSet<String>();
+        HashSet<String> loadedFiles = new HashSet<String>();
+        long bytesLoaded = 0;
+        for (RecordedEvent event : events) {
+            String type = event.getEventType().getName();
+            if (type.equals("net.olioinfo.fileutils.Traversal") && event.getString("path").equals(corpus.getTree().toString())) {
+                treeTraversal = event;
+            }
+            else if (type.equals("net.olioinfo.fileutils.JarScan")) {
+                scannedJars.add(event.getString("path"));
+                assertEquals(30L, event.getLong("entryCount"));
+                assertEquals(Files.size(Paths.get(event.getString("path"))), event.getLong("bytes"));
+            }
+            else if (type.equals("net.olioinfo.fileutils.PropertyLoad")) {
+                loadedFiles.add(event.getString("path"));
+                assertTrue(event.getLong("bytes") > 0);
+                bytesLoaded += event.getLong("bytes");
+            }
+        }
+
+        assertNotNull(treeTraversal);
+        assertEquals((long) corpus.getDirectoryCount(), treeTraversal.getLong("directoryCount"));
+        assertEquals((long) corpus.getFileCount(), treeTraversal.getLong("fileCount"));
+        assertTrue(treeTraversal.getLong("bytes") > 0);
+        assertEquals(2, scannedJars.size());
+        assertEquals(new HashSet<String>(corpus.getPropertyFiles(PROPERTY_FILES)), loadedFiles);
+        assertTrue(bytesLoaded > 0);
+    }
+
+    public void testThresholdsKeepShortOperationsOut() throws Exception {
+        CombinedPropertyFileManager manager = new CombinedPropertyFileManager();
+        manager.setSearchPaths(new ArrayList<String>(Arrays.asList(corpus.getLib().toString())));
+        manager.setPropertyFileName(PROPERTY_FILES);
+        manager.setJarEntryIndex(null);
+
+        List<RecordedEvent> events = record(manager, Duration.ofHours(1));
+
+        for (RecordedEvent event : events) {
+            assertFalse(event.getEventType().getName().startsWith("net.olioinfo.fileutils."));
+        }
+    }
+
+    private List<RecordedEvent> record(CombinedPropertyFileManager manager, Duration threshold) throws Exception {
+        Recording recording = new Recording();
+        try {
+            recording.enable("net.olioinfo.fileutils.Traversal").withThreshold(threshold);
+            recording.enable("net.olioinfo.fileutils.JarScan").withThreshold(threshold);
+            recording.enable("net.olioinfo.fileutils.PropertyLoad").withThreshold(threshold);
+            recording.start();
+            manager.loadAllFromPaths();
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+        finally {
+            recording.close();
+        }
+        return RecordingFile.readAllEvents(recordingFile);
+    }
+
+}
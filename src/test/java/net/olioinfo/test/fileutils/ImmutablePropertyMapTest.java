@@ -0,0 +1,133 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.CombinedPropertyFileManager;
+import net.olioinfo.fileutils.ImmutablePropertyMap;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class ImmutablePropertyMapTest extends TestCase {
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ImmutablePropertyMapTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ImmutablePropertyMapTest.class );
+    }
+
+    public void testLookupsMatchProperties() {
+        Properties properties = new Properties();
+        for (int i = 0; i < 1000; i++) {
+            properties.setProperty("key." + i, "value " + (i % 10));
+        }
+        properties.setProperty("", "empty key");
+
+        ImmutablePropertyMap map = ImmutablePropertyMap.of(properties);
+        assertEquals(properties.size(), map.size());
+        for (String key : properties.stringPropertyNames()) {
+            assertEquals(properties.getProperty(key), map.getProperty(key));
+            assertTrue(map.containsKey(key));
+        }
+        assertNull(map.getProperty("key.1000"));
+        assertNull(map.get(Integer.valueOf(1)));
+        assertEquals("default", map.getProperty("missing", "default"));
+        assertEquals(properties, map.asProperties());
+        assertEquals(map, new HashMap<String, String>(map));
+    }
+
+    public void testEqualValuesAreShared() {
+        Properties properties = new Properties();
+        properties.setProperty("first", new String("true"));
+        properties.setProperty("second", new String("true"));
+
+        ImmutablePropertyMap map = ImmutablePropertyMap.of(properties);
+        assertSame(map.getProperty("first"), map.getProperty("second"));
+    }
+
+    public void testEmptyMap() {
+        ImmutablePropertyMap map = ImmutablePropertyMap.copyOf(new HashMap<String, String>());
+        assertTrue(map.isEmpty());
+        assertNull(map.getProperty("anything"));
+        assertTrue(ImmutablePropertyMap.empty().asProperties().isEmpty());
+    }
+
+    public void testPropertiesViewIsReadOnly() {
+        Map<String, String> source = new HashMap<String, String>();
+        source.put("view.key", "view value");
+        Properties view = ImmutablePropertyMap.copyOf(source).asProperties();
+
+        assertEquals("view value", view.getProperty("view.key"));
+        assertEquals("fallback", view.getProperty("view.missing", "fallback"));
+        assertTrue(view.stringPropertyNames().contains("view.key"));
+        StringWriter written = new StringWriter();
+        view.list(new PrintWriter(written));
+        assertTrue(written.toString().contains("view.key=view value"));
+
+        try {
+            view.setProperty("view.key", "changed");
+            fail("The Properties view should be read-only");
+        }
+        catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+        try {
+            view.keySet().clear();
+            fail("The Properties view should be read-only");
+        }
+        catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+        assertEquals("view value", view.getProperty("view.key"));
+    }
+
+    public void testCombinedLoadAsImmutableMap() {
+        ArrayList<String> paths = new ArrayList<String>();
+        paths.add(System.getProperty("user.dir") + "/src/test/java");
+        CombinedPropertyFileManager propertyFileManager = new CombinedPropertyFileManager();
+        propertyFileManager.setSearchPaths(paths);
+        propertyFileManager.setPropertyFileName(".*properties$");
+
+        ImmutablePropertyMap map = propertyFileManager.loadImmutableFromPaths();
+        assertFalse(map.isEmpty());
+        assertEquals(CombinedPropertyFileManager.loadAndCombineProperties(paths, ".*properties$"), map.asProperties());
+    }
+}
@@ -0,0 +1,145 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.JarEntryIndex;
+import net.olioinfo.fileutils.MatchingFileAndJarTraverser;
+import net.olioinfo.fileutils.VirtualFileEntry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class JarEntryIndexTest extends TestCase {
+
+    private Path workDirectory;
+
+    private Path jarFile;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public JarEntryIndexTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( JarEntryIndexTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        workDirectory = Files.createTempDirectory("jar-entry-index");
+        jarFile = workDirectory.resolve("test-properties.jar");
+        Files.copy(Paths.get(System.getProperty("user.dir"), "src/test/java/net/olioinfo/test/fileutils/resources1/test-properties.jar"), jarFile);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TemporaryFiles.deleteTree(workDirectory);
+    }
+
+    public void testUnchangedJarIsNotReopened() throws IOException {
+        Path indexFile = workDirectory.resolve("index/jar-entries");
+        JarEntryIndex index = new JarEntryIndex(indexFile);
+        List<String> entryNames = index.getEntryNames(jarFile);
+        assertEquals("The jar should have nine entries", 9, entryNames.size());
+        index.save();
+
+        // Replace the content but keep size and modification time: the index must answer without reading the jar
+        FileTime lastModified = Files.getLastModifiedTime(jarFile);
+        byte[] garbage = new byte[(int) Files.size(jarFile)];
+        Arrays.fill(garbage, (byte) 'x');
+        Files.write(jarFile, garbage);
+        Files.setLastModifiedTime(jarFile, lastModified);
+
+        JarEntryIndex reloadedIndex = new JarEntryIndex(indexFile);
+        assertEquals("The saved index should hold one jar", 1, reloadedIndex.size());
+        assertEquals("Entry names should come from the index", entryNames, reloadedIndex.getEntryNames(jarFile));
+
+        Files.setLastModifiedTime(jarFile, FileTime.fromMillis(lastModified.toMillis() + 60000));
+        try {
+            reloadedIndex.getEntryNames(jarFile);
+            fail("A changed jar should be read again");
+        }
+        catch (IOException ex) {
+            // expected, the jar is no longer a valid archive
+        }
+    }
+
+    public void testEntryNamesWithPrefixKeepJarOrder() throws IOException {
+        JarEntryIndex index = new JarEntryIndex(workDirectory.resolve("jar-entries"));
+        List<String> entryNames = index.getEntryNames(jarFile);
+        BasicFileAttributes attributes = Files.readAttributes(jarFile, BasicFileAttributes.class);
+
+        for (String prefix : new String[] { "", "META-INF/", "fileutils-test-", "test1/", "missing/", "\uffff" }) {
+            ArrayList<String> expected = new ArrayList<String>();
+            for (String entryName : entryNames) {
+                if (entryName.startsWith(prefix)) {
+                    expected.add(entryName);
+                }
+            }
+            assertEquals("Entries under " + prefix, expected, index.getEntryNamesWithPrefix(jarFile, attributes, prefix));
+        }
+    }
+
+    public void testIndexInMemory() throws IOException {
+        JarEntryIndex index = new JarEntryIndex();
+        assertNull(index.getIndexFile());
+        assertEquals(9, index.getEntryNames(jarFile).size());
+        assertEquals(1, index.size());
+        index.save();
+    }
+
+    public void testTraversalWithIndex() {
+        ArrayList<String> paths = new ArrayList<String>();
+        paths.add(workDirectory.toString());
+        List<String> regexes = Collections.singletonList(".*properties$");
+
+        JarEntryIndex index = new JarEntryIndex(workDirectory.resolve("jar-entries"));
+        ArrayList<VirtualFileEntry> withoutIndex = MatchingFileAndJarTraverser.findFilesFromPaths(paths, regexes, null);
+        ArrayList<VirtualFileEntry> firstScan = MatchingFileAndJarTraverser.findFilesFromPaths(paths, regexes, index);
+        ArrayList<VirtualFileEntry> secondScan = MatchingFileAndJarTraverser.findFilesFromPaths(paths, regexes, index);
+
+        assertEquals("There should be six matching entries", 6, withoutIndex.size());
+        assertEquals(withoutIndex.size(), firstScan.size());
+        assertEquals(withoutIndex.size(), secondScan.size());
+    }
+
+}
@@ -0,0 +1,111 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.JarFilePool;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.jar.JarFile;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class JarFilePoolTest extends TestCase {
+
+    private static final Path TEST_JAR = Paths.get(System.getProperty("user.dir"), "src/test/java/net/olioinfo/test/fileutils/resources1/test-properties.jar");
+
+    private Path workDirectory;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public JarFilePoolTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( JarFilePoolTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        workDirectory = Files.createTempDirectory("jar-file-pool");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TemporaryFiles.deleteTree(workDirectory);
+    }
+
+    public void testHandleIsReused() throws IOException {
+        JarFilePool pool = new JarFilePool(2);
+        try {
+            JarFile first = pool.acquire(TEST_JAR.toString());
+            pool.release(first);
+            JarFile second = pool.acquire(TEST_JAR.toString());
+            pool.release(second);
+            assertSame("The same Jar file should be handed out again", first, second);
+        }
+        finally {
+            pool.close();
+        }
+    }
+
+    public void testBoundClosesLeastRecentlyUsed() throws IOException {
+        Path otherJar = workDirectory.resolve("other.jar");
+        Files.copy(TEST_JAR, otherJar);
+
+        JarFilePool pool = new JarFilePool(1);
+        JarFile first = pool.acquire(TEST_JAR.toString());
+        pool.release(first);
+        JarFile second = pool.acquire(otherJar.toString());
+        try {
+            first.entries();
+            fail("The idle Jar file should have been closed to stay within the bound");
+        }
+        catch (IllegalStateException ex) {
+            // expected, the Jar file is closed
+        }
+        assertNotNull(second.getJarEntry("test-props.properties"));
+        pool.release(second);
+
+        pool.close();
+        try {
+            second.entries();
+            fail("Closing the pool should close its Jar files");
+        }
+        catch (IllegalStateException ex) {
+            // expected, the Jar file is closed
+        }
+    }
+
+}
@@ -17,12 +17,28 @@ package net.olioinfo.test.fileutils;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import net.olioinfo.fileutils.AbstractFileAndJarTraverser;
+import net.olioinfo.fileutils.JarEntryIndex;
 import net.olioinfo.fileutils.MatchingFileAndJarTraverser;
 import net.olioinfo.fileutils.MatchingFileTraverser;
+import net.olioinfo.fileutils.ScanMetrics;
 import net.olioinfo.fileutils.VirtualFileEntry;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 
 /**
@@ -67,4 +83,115 @@ public class MatchingFileAnJarTraverserTest extends TestCase {
         
     }
 
-}
\ No newline at end of file
+    public void testStreamFileAndMatch() {
+
+        ArrayList<String> paths = new ArrayList<String>();
+        String userDir = System.getProperty("user.dir");
+        paths.add(String.format("%s/%s",userDir,"src/test/java"));
+        ArrayList<VirtualFileEntry> matchingFileList = MatchingFileAndJarTraverser.findFilesFromPaths(paths,".*properties$");
+
+        List<VirtualFileEntry> streamedFileList;
+        try (Stream<VirtualFileEntry> matchingFiles = MatchingFileAndJarTraverser.streamFilesFromPaths(paths,".*properties$")) {
+            streamedFileList = matchingFiles.collect(Collectors.toList());
+        }
+        assertEquals("Streaming should find the same number of files", matchingFileList.size(), streamedFileList.size());
+        for (int i = 0; i < matchingFileList.size(); i++) {
+            assertEquals("Streaming should find the files in the same order", matchingFileList.get(i).getAbsoluteFilePath(), streamedFileList.get(i).getAbsoluteFilePath());
+            assertEquals("Streaming should find the files in the same order", matchingFileList.get(i).getRelativeFilePath(), streamedFileList.get(i).getRelativeFilePath());
+        }
+    }
+
+    public void testStreamStopsEarly() {
+
+        final AtomicInteger examined = new AtomicInteger();
+
+        class CountingTraverser extends AbstractFileAndJarTraverser {
+
+            @Override
+            public boolean includeFile(VirtualFileEntry virtualFileEntry) {
+                examined.incrementAndGet();
+                return virtualFileEntry.getRelativeFilePath().endsWith(".java");
+            }
+
+            @Override
+            public boolean includeDirectory(VirtualFileEntry virtualFileEntry) {
+                return false;
+            }
+        }
+
+        String userDir = System.getProperty("user.dir");
+        List<Path> roots = Collections.singletonList(Paths.get(userDir, "src"));
+        Optional<VirtualFileEntry> first;
+        try (Stream<VirtualFileEntry> matchingFiles = new CountingTraverser().stream(roots)) {
+            first = matchingFiles.findFirst();
+        }
+        assertTrue("A java file should be found", first.isPresent());
+        int examinedByFindFirst = examined.getAndSet(0);
+
+        CountingTraverser fullTraverser = new CountingTraverser();
+        try {
+            fullTraverser.traverse(Paths.get(userDir, "src"));
+        }
+        catch (Exception ex) {
+            System.out.format("testStreamStopsEarly exception %s\n",ex.toString());
+            ex.printStackTrace(System.out);
+        }
+        assertTrue("findFirst should stop before the whole tree is examined", examinedByFindFirst < examined.get());
+    }
+
+    /**
+     * Test that the package-scoped lookup finds the Jar entries and files directly under the package directory
+     */
+    public void testFindFilesInPackage() throws IOException {
+        Path workDirectory = Files.createTempDirectory("package-lookup");
+        try {
+            String packagePath = "net/olioinfo/test/fileutils/";
+            Path jarFile = workDirectory.resolve("package-lookup.jar");
+            ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jarFile));
+            try {
+                for (int i = 0; i < 20000; i++) {
+                    out.putNextEntry(new ZipEntry("filler/p" + (i % 100) + "/package-" + i + ".properties"));
+                    out.closeEntry();
+                }
+                for (String entryName : new String[] { packagePath + "package-a.properties", packagePath + "sub/package-b.properties",
+                                                       "other/" + packagePath + "package-c.properties", packagePath + "package-d.txt" }) {
+                    out.putNextEntry(new ZipEntry(entryName));
+                    out.closeEntry();
+                }
+            }
+            finally {
+                out.close();
+            }
+            Path classes = Files.createDirectories(workDirectory.resolve("classes").resolve(packagePath));
+            Files.write(classes.resolve("package-e.properties"), new byte[0]);
+
+            ArrayList<String> paths = new ArrayList<String>();
+            paths.add(workDirectory.toString());
+            JarEntryIndex index = new JarEntryIndex(workDirectory.resolve("jar-entries"));
+            for (JarEntryIndex jarEntryIndex : new JarEntryIndex[] { null, index, index }) {
+                ArrayList<String> found = new ArrayList<String>();
+                for (VirtualFileEntry virtualFileEntry : MatchingFileAndJarTraverser.findFilesInPackageFromPaths(MatchingFileAnJarTraverserTest.class, paths, "package-.*\\.properties", jarEntryIndex)) {
+                    found.add(virtualFileEntry.getFileType() == VirtualFileEntry.TYPE_FILE ? new File(virtualFileEntry.getAbsoluteFilePath()).getName() : virtualFileEntry.getRelativeFilePath());
+                }
+                Collections.sort(found);
+                assertEquals(Arrays.asList(packagePath + "package-a.properties", "package-e.properties"), found);
+            }
+
+            // Without a persistent index the lookup index is kept in memory, so the Jar file is read once
+            assertNotNull(JarEntryIndex.getLookupIndex());
+            for (int lookup = 0; lookup < 2; lookup++) {
+                ScanMetrics.Snapshot before = ScanMetrics.getShared().snapshot();
+                ArrayList<VirtualFileEntry> found = MatchingFileAndJarTraverser.findFilesInPackageFromPaths(MatchingFileAnJarTraverserTest.class, paths, "package-.*\\.properties");
+                ScanMetrics.Snapshot scan = ScanMetrics.getShared().snapshot().since(before);
+                assertEquals(2, found.size());
+                if (lookup > 0) {
+                    assertEquals(0, scan.getJarsOpened());
+                }
+            }
+        }
+        finally {
+            TemporaryFiles.deleteTree(workDirectory);
+        }
+    }
+
+}
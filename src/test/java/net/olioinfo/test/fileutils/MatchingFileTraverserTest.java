@@ -20,7 +20,11 @@ import junit.framework.TestSuite;
 import net.olioinfo.fileutils.MatchingFileTraverser;
 
 import java.io.File;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
@@ -111,4 +115,16 @@ public class MatchingFileTraverserTest extends TestCase {
         assertTrue("There should be no matching files",matchingFileList.size() == 0);
 
     }
-}
\ No newline at end of file
+
+    public void testStreamFileMatch() {
+        MatchingFileTraverser matchingFileTraverser = new MatchingFileTraverser();
+        matchingFileTraverser.setMatchingString(".*properties$");
+
+        List<String> matchingFileList;
+        try (Stream<String> matchingFiles = matchingFileTraverser.stream(Paths.get(System.getProperty("user.dir"), "src"))) {
+            matchingFileList = matchingFiles.collect(Collectors.toList());
+        }
+        assertTrue("There should be five matching files",matchingFileList.size() == 5);
+        assertTrue("Collecting into the file list should be left to traverse",matchingFileTraverser.getFileList().isEmpty());
+    }
+}
@@ -0,0 +1,83 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.MultiPatternMatcher;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class MultiPatternMatcherTest extends TestCase {
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public MultiPatternMatcherTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( MultiPatternMatcherTest.class );
+    }
+
+    public void testFirstMatchingPatternIsReported() {
+        String[] regexes = {
+                "test-props\\.properties", ".*\\.xml", "META-INF/.*", ".*-defaults\\.properties",
+                "(fileutils)-.*", "[a-z]+\\.properties", ".*\\.properties"
+        };
+        MultiPatternMatcher matcher = MultiPatternMatcher.fromRegexes(Arrays.asList(regexes));
+
+        String[] names = {
+                "test-props.properties", "config.xml", "META-INF/MANIFEST.MF", "fileutils-test-defaults.properties",
+                "fileutils-test-test.properties", "app.properties", "a/b/c.properties", "README", "test1/x.xml"
+        };
+        for (String name : names) {
+            int expected = -1;
+            for (int i = 0; i < regexes.length; i++) {
+                if (Pattern.compile(regexes[i]).matcher(name).matches()) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(String.format("First matching pattern for %s", name), expected, matcher.match(name));
+        }
+    }
+
+    public void testGlobs() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.fromGlobs(Arrays.asList("*.properties", "**.xml"));
+        assertEquals(0, matcher.match("a.properties"));
+        assertEquals(-1, matcher.match("dir/a.properties"));
+        assertEquals(1, matcher.match("dir/a.xml"));
+        assertFalse(matcher.matches("a.txt"));
+    }
+
+}
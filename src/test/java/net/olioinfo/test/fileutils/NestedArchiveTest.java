@@ -0,0 +1,214 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.CombinedPropertyFileManager;
+import net.olioinfo.fileutils.MatchingFileAndJarTraverser;
+import net.olioinfo.fileutils.ScanMetrics;
+import net.olioinfo.fileutils.VirtualFileEntry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class NestedArchiveTest extends TestCase {
+
+    private Path workDirectory;
+
+    private ArrayList<String> paths;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public NestedArchiveTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( NestedArchiveTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        workDirectory = Files.createTempDirectory("nested-archive");
+
+        byte[] innermost = zip(false,
+            "nested-inner.properties", text("nested.inner=3\nnested.common=inner\n"));
+        byte[] storedLibrary = zip(false,
+            "nested-stored.properties", text("nested.stored=1\nnested.common=stored\n"),
+            "lib/innermost.jar", innermost);
+        byte[] deflatedLibrary = zip(false,
+            "nested-deflated.properties", text("nested.deflated=2\n"));
+
+        Files.write(workDirectory.resolve("app.war"), zip(true,
+            "WEB-INF/classes/nested-war.properties", text("nested.war=0\n"),
+            "WEB-INF/lib/stored.jar", storedLibrary,
+            "WEB-INF/lib/deflated.jar", deflatedLibrary));
+        Files.write(workDirectory.resolve("boot.jar"), zip(true,
+            "BOOT-INF/lib/deflated.jar", deflatedLibrary));
+
+        paths = new ArrayList<String>();
+        paths.add(workDirectory.toString());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TemporaryFiles.deleteTree(workDirectory);
+    }
+
+    public void testNestedArchivesAreNotScannedByDefault() {
+        ArrayList<VirtualFileEntry> entries = MatchingFileAndJarTraverser.findFilesFromPaths(paths, Collections.singletonList(".*properties$"), null);
+        assertEquals(0, entries.size());
+    }
+
+    public void testNestedEntriesAreFound() {
+        ArrayList<VirtualFileEntry> entries = MatchingFileAndJarTraverser.findFilesFromPaths(paths, Collections.singletonList(".*properties$"), null, 1);
+        HashSet<String> virtualPaths = new HashSet<String>();
+        for (VirtualFileEntry entry : entries) {
+            virtualPaths.add(entry.getVirtualPath());
+        }
+
+        String war = workDirectory.resolve("app.war").toString();
+        String boot = workDirectory.resolve("boot.jar").toString();
+        assertTrue(virtualPaths.contains(war + "!/WEB-INF/classes/nested-war.properties"));
+        assertTrue(virtualPaths.contains(war + "!/WEB-INF/lib/stored.jar!/nested-stored.properties"));
+        assertTrue(virtualPaths.contains(war + "!/WEB-INF/lib/deflated.jar!/nested-deflated.properties"));
+        assertTrue(virtualPaths.contains(boot + "!/BOOT-INF/lib/deflated.jar!/nested-deflated.properties"));
+        assertFalse(virtualPaths.contains(war + "!/WEB-INF/lib/stored.jar!/lib/innermost.jar!/nested-inner.properties"));
+        assertEquals(4, entries.size());
+
+        entries = MatchingFileAndJarTraverser.findFilesFromPaths(paths, Collections.singletonList(".*properties$"), null, 2);
+        assertEquals(5, entries.size());
+        for (VirtualFileEntry entry : entries) {
+            if (entry.getRelativeFilePath().equals("nested-inner.properties")) {
+                assertEquals(VirtualFileEntry.TYPE_NESTED_JAR, entry.getFileType());
+                assertEquals("WEB-INF/lib/stored.jar!/lib/innermost.jar", entry.getNestedArchivePath());
+            }
+        }
+    }
+
+    public void testNestedEntriesAreLoaded() {
+        CombinedPropertyFileManager twoPhaseManager = newManager();
+        Properties expectedProps = twoPhaseManager.loadAllFromPaths();
+        assertEquals("0", expectedProps.getProperty("nested.war"));
+        assertEquals("1", expectedProps.getProperty("nested.stored"));
+        assertEquals("2", expectedProps.getProperty("nested.deflated"));
+        assertEquals("3", expectedProps.getProperty("nested.inner"));
+
+        CombinedPropertyFileManager singlePassManager = newManager();
+        singlePassManager.setSinglePass(true);
+        assertEquals(expectedProps, singlePassManager.loadAllFromPaths());
+    }
+
+    /**
+     * Test that a compressed nested archive holding several property files is read from its Jar file once per load,
+     * whether the entries are loaded serially or in parallel
+     */
+    public void testNestedArchiveIsReadOncePerLoad() throws IOException {
+        Path single = Files.createDirectories(workDirectory.resolve("single"));
+        Files.write(single.resolve("many.war"), zip(true,
+            "WEB-INF/lib/many.jar", zip(false,
+                "many-1.properties", text("many.1=1\n"),
+                "many-2.properties", text("many.2=2\n"),
+                "many-3.properties", text("many.3=3\n"),
+                "many-4.properties", text("many.4=4\n"))));
+        ArrayList<String> singlePaths = new ArrayList<String>();
+        singlePaths.add(single.toString());
+
+        for (int parallelism : new int[] { 1, 4 }) {
+            CombinedPropertyFileManager propertyFileManager = newManager();
+            propertyFileManager.setSearchPaths(singlePaths);
+            propertyFileManager.setParallelism(parallelism);
+
+            ScanMetrics.Snapshot before = ScanMetrics.getShared().snapshot();
+            Properties loadedProps = propertyFileManager.loadAllFromPaths();
+            ScanMetrics.Snapshot load = ScanMetrics.getShared().snapshot().since(before);
+
+            assertEquals(4, loadedProps.size());
+            assertEquals("4", loadedProps.getProperty("many.4"));
+            // Once to find the entries and once to load them
+            assertEquals(2, load.getJarsOpened());
+        }
+    }
+
+    private CombinedPropertyFileManager newManager() {
+        CombinedPropertyFileManager propertyFileManager = new CombinedPropertyFileManager();
+        propertyFileManager.setSearchPaths(paths);
+        propertyFileManager.setPropertyFileName(".*properties$");
+        propertyFileManager.setJarEntryIndex(null);
+        propertyFileManager.setNestedArchiveDepth(2);
+        return propertyFileManager;
+    }
+
+    private static byte[] text(String content) {
+        return content.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Build a zip archive from alternating names and contents, storing nested archives uncompressed if asked
+     */
+    private static byte[] zip(boolean storeArchives, Object... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        try {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                String name = (String) namesAndContents[i];
+                byte[] content = (byte[]) namesAndContents[i + 1];
+                ZipEntry entry = new ZipEntry(name);
+                if (storeArchives && name.endsWith("stored.jar")) {
+                    CRC32 crc = new CRC32();
+                    crc.update(content);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(content.length);
+                    entry.setCompressedSize(content.length);
+                    entry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(entry);
+                out.write(content);
+                out.closeEntry();
+            }
+        }
+        finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,156 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.CombinedPropertyFileManager;
+import net.olioinfo.fileutils.PropertySnapshot;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Properties;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class PropertySnapshotTest extends TestCase {
+
+    private Path workDirectory;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public PropertySnapshotTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( PropertySnapshotTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        workDirectory = Files.createTempDirectory("property-snapshot");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TemporaryFiles.deleteTree(workDirectory);
+    }
+
+    public void testLookupsMatchProperties() throws IOException {
+        Properties properties = new Properties();
+        for (int i = 0; i < 500; i++) {
+            properties.setProperty("key." + i, "value " + i);
+        }
+        properties.setProperty("caf\u00e9", "accent");
+        properties.setProperty("\u4e2d\u6587", "cjk");
+        properties.setProperty("", "empty key");
+        properties.setProperty("empty.value", "");
+
+        PropertySnapshot snapshot = PropertySnapshot.create("test", properties, Collections.<PropertySnapshot.SourceStamp>emptyList());
+        Path file = workDirectory.resolve("snapshot.bin");
+        snapshot.write(file);
+
+        for (PropertySnapshot candidate : new PropertySnapshot[] { snapshot, PropertySnapshot.open(file) }) {
+            assertEquals("test", candidate.getDescriptor());
+            assertEquals(properties.size(), candidate.size());
+            for (String key : properties.stringPropertyNames()) {
+                assertEquals(properties.getProperty(key), candidate.getProperty(key));
+            }
+            assertNull(candidate.getProperty("key.500"));
+            assertNull(candidate.getProperty("caf"));
+            assertEquals("default", candidate.getProperty("missing", "default"));
+            assertEquals(properties, candidate.toProperties());
+        }
+    }
+
+    public void testInvalidFileIsRejected() throws IOException {
+        Path file = workDirectory.resolve("snapshot.bin");
+        Files.write(file, "not a snapshot".getBytes(StandardCharsets.ISO_8859_1));
+        try {
+            PropertySnapshot.open(file);
+            fail("An invalid snapshot should be rejected");
+        }
+        catch (IOException ex) {
+            // Expected
+        }
+    }
+
+    public void testSnapshotIsReusedUntilASourceChanges() throws IOException {
+        Path sources = Files.createDirectories(workDirectory.resolve("sources"));
+        Path first = sources.resolve("snapshot-first.properties");
+        Files.write(first, "snapshot.common=first\nsnapshot.first=1\n".getBytes(StandardCharsets.ISO_8859_1));
+        Path nested = Files.createDirectories(sources.resolve("nested"));
+
+        ArrayList<String> paths = new ArrayList<String>();
+        paths.add(sources.toString());
+        paths.add(System.getProperty("user.dir") + "/src/test/java/net/olioinfo/test/fileutils/resources1");
+        Path snapshotFile = workDirectory.resolve("cache").resolve("snapshot.bin");
+
+        PropertySnapshot written = newManager(paths, snapshotFile).loadSnapshotFromPaths();
+        assertTrue(Files.exists(snapshotFile));
+        assertEquals(CombinedPropertyFileManager.loadAndCombineProperties(paths, ".*properties$"), written.toProperties());
+        assertTrue(written.isCurrent());
+
+        long writtenAt = Files.getLastModifiedTime(snapshotFile).toMillis();
+        PropertySnapshot reused = newManager(paths, snapshotFile).loadSnapshotFromPaths();
+        assertEquals(writtenAt, Files.getLastModifiedTime(snapshotFile).toMillis());
+        assertEquals(written.toProperties(), reused.toProperties());
+
+        // A new file in a directory that was searched invalidates the snapshot
+        Path second = nested.resolve("snapshot-second.properties");
+        Files.write(second, "snapshot.second=2\n".getBytes(StandardCharsets.ISO_8859_1));
+        Files.setLastModifiedTime(nested, FileTime.fromMillis(Files.getLastModifiedTime(nested).toMillis() + 2000));
+        assertFalse(reused.isCurrent());
+        PropertySnapshot reloaded = newManager(paths, snapshotFile).loadSnapshotFromPaths();
+        assertEquals("2", reloaded.getProperty("snapshot.second"));
+        assertEquals(CombinedPropertyFileManager.loadAndCombineProperties(paths, ".*properties$"), reloaded.toProperties());
+
+        // So does a change to a file that was loaded
+        Files.write(first, "snapshot.common=changed\n".getBytes(StandardCharsets.ISO_8859_1));
+        Files.setLastModifiedTime(first, FileTime.fromMillis(Files.getLastModifiedTime(first).toMillis() + 2000));
+        assertFalse(reloaded.isCurrent());
+        PropertySnapshot changed = newManager(paths, snapshotFile).loadSnapshotFromPaths();
+        assertNull(changed.getProperty("snapshot.first"));
+        assertEquals(CombinedPropertyFileManager.loadAndCombineProperties(paths, ".*properties$"), changed.toProperties());
+    }
+
+    private static CombinedPropertyFileManager newManager(ArrayList<String> paths, Path snapshotFile) {
+        CombinedPropertyFileManager propertyFileManager = new CombinedPropertyFileManager();
+        propertyFileManager.setSearchPaths(paths);
+        propertyFileManager.setPropertyFileName(".*properties$");
+        propertyFileManager.setSnapshotFile(snapshotFile);
+        return propertyFileManager;
+    }
+}
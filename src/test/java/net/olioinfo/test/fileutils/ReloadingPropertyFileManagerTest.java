@@ -0,0 +1,180 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.CombinedPropertyFileManager;
+import net.olioinfo.fileutils.ReloadingPropertyFileManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class ReloadingPropertyFileManagerTest extends TestCase {
+
+    private static final long WAIT_MILLIS = 10000;
+
+    private Path workDirectory;
+
+    private ArrayList<String> paths;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ReloadingPropertyFileManagerTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ReloadingPropertyFileManagerTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        workDirectory = Files.createTempDirectory("reloading-properties");
+        write(workDirectory.resolve("reload-a.properties"), "reload.common=a\nreload.a=1\n");
+        write(Files.createDirectories(workDirectory.resolve("sub")).resolve("reload-b.properties"), "reload.b=1\n");
+        paths = new ArrayList<String>();
+        paths.add(workDirectory.toString());
+        paths.add(System.getProperty("user.dir") + "/src/test/java/net/olioinfo/test/fileutils/resources1");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TemporaryFiles.deleteTree(workDirectory);
+    }
+
+    public void testInitialLoadMatchesCombinedLoad() throws IOException {
+        ReloadingPropertyFileManager manager = new ReloadingPropertyFileManager(paths, ".*properties$");
+        try {
+            manager.start();
+            assertEquals(CombinedPropertyFileManager.loadAndCombineProperties(paths, ".*properties$"), manager.getProperties());
+            assertEquals("a", manager.getProperties().getProperty("reload.common"));
+        }
+        finally {
+            manager.close();
+        }
+    }
+
+    public void testModifiedFileIsReloaded() throws Exception {
+        final ReloadingPropertyFileManager manager = new ReloadingPropertyFileManager(paths, ".*properties$");
+        try {
+            manager.start();
+            final Properties initial = manager.getProperties();
+
+            assertTrue(manager.isWatching());
+            write(workDirectory.resolve("sub").resolve("reload-b.properties"), "reload.b=2\nreload.common=b\n");
+            waitFor(() -> "2".equals(manager.getProperties().getProperty("reload.b")));
+
+            assertEquals("1", initial.getProperty("reload.b"));
+            assertEquals(CombinedPropertyFileManager.loadAndCombineProperties(paths, ".*properties$"), manager.getProperties());
+            assertNull(manager.getLastError());
+            assertTrue(manager.isWatching());
+        }
+        finally {
+            manager.close();
+        }
+        assertFalse("The manager should stop watching once closed", manager.isWatching());
+    }
+
+    public void testCreatedAndDeletedFilesAreReloaded() throws Exception {
+        final ReloadingPropertyFileManager manager = new ReloadingPropertyFileManager(paths, ".*properties$");
+        try {
+            manager.start();
+
+            Path created = Files.createDirectories(workDirectory.resolve("new").resolve("deeper")).resolve("reload-c.properties");
+            write(created, "reload.c=1\n");
+            waitFor(() -> "1".equals(manager.getProperties().getProperty("reload.c")));
+            assertEquals(CombinedPropertyFileManager.loadAndCombineProperties(paths, ".*properties$"), manager.getProperties());
+
+            Files.delete(created);
+            waitFor(() -> manager.getProperties().getProperty("reload.c") == null);
+            assertEquals(CombinedPropertyFileManager.loadAndCombineProperties(paths, ".*properties$"), manager.getProperties());
+        }
+        finally {
+            manager.close();
+        }
+    }
+
+    public void testReloadWithoutChangesKeepsProperties() throws IOException {
+        ReloadingPropertyFileManager manager = new ReloadingPropertyFileManager(paths, ".*properties$");
+        try {
+            manager.start();
+            Properties initial = manager.getProperties();
+            assertEquals(initial, manager.reload());
+            assertNotSame(initial, manager.getProperties());
+        }
+        finally {
+            manager.close();
+        }
+    }
+
+    public void testCloseRightAfterStart() throws IOException {
+        final ArrayList<Throwable> failures = new ArrayList<Throwable>();
+        Thread.UncaughtExceptionHandler previousHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, ex) -> {
+            synchronized (failures) {
+                failures.add(ex);
+            }
+        });
+        try {
+            for (int i = 0; i < 20; i++) {
+                ReloadingPropertyFileManager manager = new ReloadingPropertyFileManager(paths, ".*properties$");
+                manager.start();
+                manager.close();
+                assertFalse(manager.isWatching());
+                assertNull(manager.getLastError());
+            }
+        }
+        finally {
+            Thread.setDefaultUncaughtExceptionHandler(previousHandler);
+        }
+        synchronized (failures) {
+            assertTrue("The watch thread should stop quietly: " + failures, failures.isEmpty());
+        }
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out waiting for the properties to be reloaded", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+}
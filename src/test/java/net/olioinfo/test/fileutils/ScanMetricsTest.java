@@ -0,0 +1,146 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.CombinedPropertyFileManager;
+import net.olioinfo.fileutils.MatchingFileAndJarTraverser;
+import net.olioinfo.fileutils.ScanMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class ScanMetricsTest extends TestCase {
+
+    private static final String PROPERTY_FILES = ".*\\.(properties|xml)$";
+
+    private CorpusGenerator generator;
+
+    private CorpusGenerator.Corpus corpus;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ScanMetricsTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ScanMetricsTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        generator = new CorpusGenerator();
+        generator.setSeed(5L);
+        generator.setDepth(2);
+        generator.setWidth(3);
+        generator.setFilesPerDirectory(5);
+        generator.setJarCount(2);
+        generator.setEntriesPerJar(50);
+        corpus = generator.generate();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        corpus.delete();
+    }
+
+    public void testTraversalCounts() {
+        ArrayList<String> paths = new ArrayList<String>(Arrays.asList(corpus.getTree().toString(), corpus.getLib().toString()));
+
+        ScanMetrics.Snapshot before = ScanMetrics.getShared().snapshot();
+        MatchingFileAndJarTraverser.findFilesFromPaths(paths, Arrays.asList(PROPERTY_FILES), null, 0);
+        ScanMetrics.Snapshot scan = ScanMetrics.getShared().snapshot().since(before);
+
+        // The lib directory is listed as well as the tree
+        assertEquals(corpus.getDirectoryCount() + 1, scan.getDirectoriesListed());
+        assertEquals(corpus.getFileCount() + corpus.getJars().size(), scan.getFilesExamined());
+        assertEquals(corpus.getJars().size(), scan.getJarsOpened());
+        assertEquals(corpus.getJarEntryCount(), scan.getJarEntriesScanned());
+        assertEquals(corpus.getFileCount() + corpus.getJarEntryCount(), scan.getPatternEvaluations());
+        assertEquals(0L, scan.getBytesParsed());
+        assertTrue(scan.getNanos(ScanMetrics.Phase.WALK) > 0);
+        assertTrue(scan.getNanos(ScanMetrics.Phase.MATCH) > 0);
+        assertTrue(scan.getNanos(ScanMetrics.Phase.WALK) >= scan.getNanos(ScanMetrics.Phase.MATCH));
+    }
+
+    public void testLoadCountsBytesParsed() throws Exception {
+        long expectedBytes = 0;
+        for (String propertyFile : corpus.getPropertyFiles()) {
+            if (!propertyFile.contains("!/")) {
+                expectedBytes += Files.size(Paths.get(propertyFile));
+            }
+        }
+
+        CombinedPropertyFileManager manager = new CombinedPropertyFileManager();
+        manager.setSearchPaths(new ArrayList<String>(Arrays.asList(corpus.getTree().toString())));
+        manager.setPropertyFileName(PROPERTY_FILES);
+        manager.setJarEntryIndex(null);
+        manager.setParallelism(2);
+
+        ScanMetrics.Snapshot before = ScanMetrics.getShared().snapshot();
+        Properties properties = manager.loadAllFromPaths();
+        ScanMetrics.Snapshot load = ScanMetrics.getShared().snapshot().since(before);
+
+        assertFalse(properties.isEmpty());
+        assertEquals(expectedBytes, load.getBytesParsed());
+        assertTrue(load.getNanos(ScanMetrics.Phase.LOAD) > 0);
+        assertTrue(load.getNanos(ScanMetrics.Phase.MERGE) > 0);
+    }
+
+    public void testMBean() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(ScanMetrics.OBJECT_NAME);
+
+        ScanMetrics.registerMBean();
+        ScanMetrics.registerMBean();
+        try {
+            assertTrue(server.isRegistered(name));
+            MatchingFileAndJarTraverser.findFilesFromPaths(new ArrayList<String>(Arrays.asList(corpus.getTree().toString())), Arrays.asList(PROPERTY_FILES), null, 0);
+            long filesExamined = (Long) server.getAttribute(name, "FilesExamined");
+            assertTrue(filesExamined >= corpus.getFileCount());
+            assertEquals(ScanMetrics.getShared().getFilesExamined(), filesExamined);
+        }
+        finally {
+            ScanMetrics.unregisterMBean();
+        }
+        assertFalse(server.isRegistered(name));
+        ScanMetrics.unregisterMBean();
+    }
+
+}
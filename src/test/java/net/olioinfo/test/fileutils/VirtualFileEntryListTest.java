@@ -0,0 +1,246 @@
+/* Copyright 2009-2010 Tracy Flynn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.AbstractFileAndJarTraverser;
+import net.olioinfo.fileutils.MatchingFileAndJarTraverser;
+import net.olioinfo.fileutils.VirtualFileEntry;
+import net.olioinfo.fileutils.VirtualFileEntryList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class VirtualFileEntryListTest extends TestCase {
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public VirtualFileEntryListTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( VirtualFileEntryListTest.class );
+    }
+
+    public void testEntriesReadBackUnchanged() {
+        ArrayList<VirtualFileEntry> entries = new ArrayList<VirtualFileEntry>();
+        entries.add(entry(VirtualFileEntry.TYPE_FILE, "/apps/conf/application.properties", "application.properties", null));
+        entries.add(entry(VirtualFileEntry.TYPE_FILE, "/apps/conf/logging.xml", "logging.xml", null));
+        entries.add(entry(VirtualFileEntry.TYPE_DIR, "/apps/conf", "conf", null));
+        entries.add(entry(VirtualFileEntry.TYPE_JAR, "/apps/lib/library.jar", "config/application.properties", null));
+        entries.add(entry(VirtualFileEntry.TYPE_JAR, "/apps/lib/library.jar", "config/caf\u00e9.properties", null));
+        entries.add(entry(VirtualFileEntry.TYPE_NESTED_JAR, "/apps/shop.war", "config/module.properties", "WEB-INF/lib/config.jar"));
+        entries.add(entry(VirtualFileEntry.TYPE_FILE, "/apps/conf/other-name", "application.properties", null));
+        entries.add(entry(VirtualFileEntry.TYPE_FILE, "/apps/conf/no-name", null, null));
+        entries.add(entry(VirtualFileEntry.TYPE_JAR, "/apps/lib/library.jar", "", null));
+        entries.add(entry(null, null, null, null));
+
+        VirtualFileEntryList list = new VirtualFileEntryList();
+        list.addAll(entries);
+
+        assertEquals(entries.size(), list.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertSameValues(entries.get(i), list.get(i));
+            assertEquals(entries.get(i).getFileType(), list.getFileType(i));
+            assertEquals(entries.get(i).getAbsoluteFilePath(), list.getAbsoluteFilePath(i));
+            assertEquals(entries.get(i).getRelativeFilePath(), list.getRelativeFilePath(i));
+            assertEquals(entries.get(i).getNestedArchivePath(), list.getNestedArchivePath(i));
+            if (entries.get(i).getAbsoluteFilePath() != null) {
+                assertEquals(entries.get(i).getVirtualPath(), list.getVirtualPath(i));
+            }
+        }
+        assertNotSame(list.get(0), list.get(0));
+    }
+
+    public void testPathsAreShared() {
+        VirtualFileEntryList list = new VirtualFileEntryList();
+        for (int i = 0; i < 1000; i++) {
+            list.add(VirtualFileEntry.TYPE_JAR, "/apps/lib/library.jar", "com/example/Class" + i + ".class", null);
+            list.add(VirtualFileEntry.TYPE_FILE, "/apps/conf/file-" + i + ".properties", "file-" + i + ".properties", null);
+        }
+
+        // The Jar file and the directory of the regular files
+        assertEquals(2, list.getPathCount());
+        assertEquals(2000, list.size());
+        assertEquals("/apps/conf/file-999.properties", list.getAbsoluteFilePath(1999));
+        assertEquals("com/example/Class999.class", list.getRelativeFilePath(1998));
+    }
+
+    public void testTrimmedListGrowsAgain() {
+        VirtualFileEntryList list = new VirtualFileEntryList();
+        list.trimToSize();
+        list.add(VirtualFileEntry.TYPE_JAR, "/a.jar", "a.properties", null);
+        list.trimToSize();
+        for (int i = 0; i < 100; i++) {
+            list.add(VirtualFileEntry.TYPE_JAR, "/a.jar", "b" + i + ".properties", null);
+        }
+        assertEquals(101, list.size());
+        assertEquals("a.properties", list.getRelativeFilePath(0));
+        assertEquals("b99.properties", list.getRelativeFilePath(100));
+    }
+
+    public void testBadIndexAndType() {
+        VirtualFileEntryList list = new VirtualFileEntryList();
+        try {
+            list.get(0);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            // Expected
+        }
+        try {
+            list.add(99, "/a.jar", "a.properties", null);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // Expected
+        }
+        assertEquals(0, list.size());
+    }
+
+    public void testFindFileEntriesMatchesFindFiles() throws IOException {
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setSeed(23L);
+        generator.setDepth(2);
+        generator.setWidth(3);
+        generator.setFilesPerDirectory(6);
+        generator.setJarCount(2);
+        generator.setEntriesPerJar(60);
+        generator.setNestedJarsPerJar(2);
+        generator.setNestedJarEntries(20);
+        CorpusGenerator.Corpus corpus = generator.generate();
+        try {
+            ArrayList<String> paths = new ArrayList<String>(Arrays.asList(corpus.getTree().toString(), corpus.getLib().toString()));
+            ArrayList<VirtualFileEntry> found = MatchingFileAndJarTraverser.findFilesFromPaths(paths, Arrays.asList(".*\\.(properties|xml)$"), null, 1);
+            VirtualFileEntryList compact = MatchingFileAndJarTraverser.findFileEntriesFromPaths(paths, Arrays.asList(".*\\.(properties|xml)$"), null, 1);
+
+            assertFalse(found.isEmpty());
+            assertEquals(found.size(), compact.size());
+            for (int i = 0; i < found.size(); i++) {
+                assertSameValues(found.get(i), compact.get(i));
+            }
+        }
+        finally {
+            corpus.delete();
+        }
+    }
+
+    /**
+     * Traverser accepting the property and XML files
+     */
+    static class PropertyFileTraverser extends AbstractFileAndJarTraverser {
+
+        @Override
+        public boolean includeFile(VirtualFileEntry virtualFileEntry) {
+            return virtualFileEntry.getRelativeFilePath().matches(".*\\.(properties|xml)$");
+        }
+
+        @Override
+        public boolean includeDirectory(VirtualFileEntry virtualFileEntry) {
+            return false;
+        }
+    }
+
+    /**
+     * Test that traversers running at the same time can share one list, and that the file list copies it
+     */
+    public void testSharedByConcurrentTraversers() throws Exception {
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setSeed(29L);
+        generator.setDepth(3);
+        generator.setWidth(3);
+        generator.setFilesPerDirectory(8);
+        generator.setJarCount(4);
+        generator.setEntriesPerJar(100);
+        CorpusGenerator.Corpus corpus = generator.generate();
+        try {
+            final File[] roots = { corpus.getTree().toFile(), corpus.getLib().toFile() };
+            ArrayList<String> paths = new ArrayList<String>(Arrays.asList(roots[0].toString(), roots[1].toString()));
+            int expected = MatchingFileAndJarTraverser.findFilesFromPaths(paths, Arrays.asList(".*\\.(properties|xml)$"), null, 0).size();
+
+            final VirtualFileEntryList shared = new VirtualFileEntryList();
+            final PropertyFileTraverser[] traversers = new PropertyFileTraverser[roots.length];
+            final Exception[] failures = new Exception[roots.length];
+            Thread[] threads = new Thread[roots.length];
+            for (int i = 0; i < roots.length; i++) {
+                final int root = i;
+                traversers[root] = new PropertyFileTraverser();
+                traversers[root].setJarEntryIndex(null);
+                traversers[root].setFileEntries(shared);
+                threads[root] = new Thread(() -> {
+                    try {
+                        traversers[root].traverseParallel(roots[root], 4);
+                    }
+                    catch (Exception ex) {
+                        failures[root] = ex;
+                    }
+                });
+                threads[root].start();
+            }
+            for (int i = 0; i < roots.length; i++) {
+                threads[i].join();
+                assertNull(failures[i]);
+            }
+
+            assertTrue(expected > 0);
+            assertEquals(expected, shared.size());
+            ArrayList<VirtualFileEntry> copy = traversers[0].getFileList();
+            assertEquals(expected, copy.size());
+            assertNotSame(copy, traversers[1].getFileList());
+            shared.add(entry(VirtualFileEntry.TYPE_FILE, "/apps/conf/late.properties", "late.properties", null));
+            assertEquals(expected, copy.size());
+        }
+        finally {
+            corpus.delete();
+        }
+    }
+
+    private static VirtualFileEntry entry(Integer fileType, String absoluteFilePath, String relativeFilePath, String nestedArchivePath) {
+        VirtualFileEntry virtualFileEntry = new VirtualFileEntry();
+        virtualFileEntry.setFileType(fileType);
+        virtualFileEntry.setAbsoluteFilePath(absoluteFilePath);
+        virtualFileEntry.setRelativeFilePath(relativeFilePath);
+        virtualFileEntry.setNestedArchivePath(nestedArchivePath);
+        return virtualFileEntry;
+    }
+
+    private static void assertSameValues(VirtualFileEntry expected, VirtualFileEntry actual) {
+        assertEquals(expected.getFileType(), actual.getFileType());
+        assertEquals(expected.getAbsoluteFilePath(), actual.getAbsoluteFilePath());
+        assertEquals(expected.getRelativeFilePath(), actual.getRelativeFilePath());
+        assertEquals(expected.getNestedArchivePath(), actual.getNestedArchivePath());
+    }
+
+}
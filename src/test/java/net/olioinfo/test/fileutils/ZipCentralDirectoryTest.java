@@ -0,0 +1,188 @@
+/* Copyright 2009-2010 Tracy Flynn
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.olioinfo.test.fileutils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.olioinfo.fileutils.ZipCentralDirectory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+/**
+ * Class description
+ *
+ * @author Tracy Flynn
+ * @since Oct 18, 2026
+ */
+public class ZipCentralDirectoryTest extends TestCase {
+
+    private static final Path TEST_JAR = Paths.get(System.getProperty("user.dir"), "src/test/java/net/olioinfo/test/fileutils/resources1/test-properties.jar");
+
+    private Path workDirectory;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ZipCentralDirectoryTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ZipCentralDirectoryTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        workDirectory = Files.createTempDirectory("zip-central-directory");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TemporaryFiles.deleteTree(workDirectory);
+    }
+
+    public void testSameEntriesAsJarFile() throws IOException {
+        ZipCentralDirectory centralDirectory = ZipCentralDirectory.open(TEST_JAR);
+        JarFile jarFile = new JarFile(TEST_JAR.toFile());
+        try {
+            List<ZipCentralDirectory.Entry> entries = centralDirectory.getEntries();
+            assertEquals("The jar should have nine entries", 9, entries.size());
+            assertEquals(9, centralDirectory.size());
+
+            Enumeration<JarEntry> jarEntries = jarFile.entries();
+            for (ZipCentralDirectory.Entry entry : entries) {
+                JarEntry jarEntry = jarEntries.nextElement();
+                assertEquals(jarEntry.getName(), entry.getName());
+                assertEquals(jarEntry.getSize(), entry.getSize());
+                assertEquals(jarEntry.getCompressedSize(), entry.getCompressedSize());
+                assertEquals(jarEntry.getCrc(), entry.getCrc());
+                assertEquals(jarEntry.getMethod(), entry.getMethod());
+                assertEquals(jarEntry.isDirectory(), entry.isDirectory());
+                if (!entry.isDirectory()) {
+                    assertEquals(new String(readAll(jarFile.getInputStream(jarEntry)), "UTF-8"), new String(readAll(centralDirectory.getInputStream(entry)), "UTF-8"));
+                }
+            }
+            assertFalse(jarEntries.hasMoreElements());
+            assertNotNull(centralDirectory.getEntry("test1/fileutils-test-defaults.properties"));
+            assertNull(centralDirectory.getEntry("missing.properties"));
+        }
+        finally {
+            jarFile.close();
+            centralDirectory.close();
+        }
+    }
+
+    public void testPrependedData() throws IOException {
+        Path prefixed = workDirectory.resolve("prefixed.jar");
+        OutputStream out = Files.newOutputStream(prefixed);
+        try {
+            out.write("#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes("UTF-8"));
+            out.write(Files.readAllBytes(TEST_JAR));
+        }
+        finally {
+            out.close();
+        }
+        ZipCentralDirectory centralDirectory = ZipCentralDirectory.open(prefixed);
+        try {
+            ZipCentralDirectory.Entry entry = centralDirectory.getEntry("test-props.properties");
+            assertTrue(new String(readAll(centralDirectory.getInputStream(entry)), "UTF-8").contains("test.props.common"));
+        }
+        finally {
+            centralDirectory.close();
+        }
+    }
+
+    public void testZip64AndStoredEntries() throws IOException {
+        Path large = workDirectory.resolve("large.zip");
+        int count = 66000;
+        ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(large));
+        try {
+            for (int i = 0; i < count; i++) {
+                out.putNextEntry(new ZipEntry(String.format("dir/entry-%d.properties", i)));
+                out.write(String.format("key=%d\n", i).getBytes("UTF-8"));
+                out.closeEntry();
+            }
+        }
+        finally {
+            out.close();
+        }
+        ZipCentralDirectory centralDirectory = ZipCentralDirectory.open(large);
+        try {
+            assertEquals("Zip64 entry count should be read", count, centralDirectory.size());
+            List<String> names = centralDirectory.getEntryNames();
+            assertEquals(count, names.size());
+            assertEquals("dir/entry-65999.properties", names.get(count - 1));
+            ZipCentralDirectory.Entry entry = centralDirectory.getEntry("dir/entry-12345.properties");
+            assertEquals("key=12345\n", new String(readAll(centralDirectory.getInputStream(entry)), "UTF-8"));
+        }
+        finally {
+            centralDirectory.close();
+        }
+
+        ByteBuffer archive = ByteBuffer.wrap(Files.readAllBytes(TEST_JAR));
+        ZipCentralDirectory inMemory = ZipCentralDirectory.read(archive);
+        assertEquals(9, inMemory.getEntryNames().size());
+    }
+
+    public void testNotAnArchive() throws IOException {
+        Path notAnArchive = workDirectory.resolve("broken.jar");
+        Files.write(notAnArchive, "not a zip file".getBytes("UTF-8"));
+        try {
+            ZipCentralDirectory.open(notAnArchive);
+            fail("Opening a file that is not an archive should fail");
+        }
+        catch (IOException ex) {
+            // expected
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        }
+        finally {
+            in.close();
+        }
+    }
+
+}